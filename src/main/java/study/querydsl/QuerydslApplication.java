@@ -1,7 +1,16 @@
 package study.querydsl;
 
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import study.querydsl.repository.support.BulkClauseListener;
+import study.querydsl.repository.support.DeadlineJPAQueryFactory;
+import study.querydsl.repository.support.WindowFunctionContributor;
+
+import javax.persistence.EntityManager;
 
 @SpringBootApplication
 public class QuerydslApplication {
@@ -10,4 +19,19 @@ public class QuerydslApplication {
 		SpringApplication.run(QuerydslApplication.class, args);
 	}
 
+//	MemberRepositoryImpl 에서 주입받는 JPAQueryFactory. 스프링이 주입하는 EntityManager 는 트랜잭션 단위로 바인딩되는 프록시라 싱글톤으로 사용해도 된다.
+//	요청 deadline(@Deadline)이 있으면 만들어지는 모든 쿼리에 query timeout 힌트가 들어간다.
+//	벌크 update/delete 는 실행 후 BulkClauseListener(회원 수 counter, 팀 사전 등)에 알린다.
+	@Bean
+	JPAQueryFactory jpaQueryFactory(EntityManager em, ObjectProvider<BulkClauseListener> bulkClauseListener) {
+		BulkClauseListener listeners = BulkClauseListener.allOf(bulkClauseListener);
+		return new DeadlineJPAQueryFactory(em, () -> listeners);
+	}
+
+//	HQL 에서 쓸 수 없는 SQL 함수(count(*) over() 등)를 등록한다.
+	@Bean
+	HibernatePropertiesCustomizer sqlFunctionCustomizer() {
+		return properties -> properties.put("hibernate.metadata_builder_contributor", new WindowFunctionContributor());
+	}
+
 }
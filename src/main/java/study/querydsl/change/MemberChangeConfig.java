@@ -0,0 +1,32 @@
+package study.querydsl.change;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//MemberChangeHandler 빈(검색 조건 구독, read model 등)이 있을 때만 commit 후 이벤트 리스너를 hibernate 에 붙인다.
+@Configuration
+public class MemberChangeConfig {
+
+    @Bean
+    public MemberChangeListener memberChangeListener(EntityManagerFactory entityManagerFactory,
+                                                     ObjectProvider<MemberChangeHandler> handlers) {
+        List<MemberChangeHandler> resolved = handlers.orderedStream().collect(Collectors.toList());
+        MemberChangeListener listener = new MemberChangeListener(resolved);
+        if (!resolved.isEmpty()) {
+            EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry().getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+            registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+            registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        }
+        return listener;
+    }
+}
@@ -0,0 +1,22 @@
+package study.querydsl.change;
+
+/**
+ * commit 된 Member/Team 변경을 받는 쪽
+ *
+ * commit 한 스레드에서 호출되므로 오래 걸리는 일은 다른 스레드로 넘긴다.
+ * before 는 영속성 컨텍스트가 로딩했던 상태라서 없을 수 있다. (detached 엔티티 update)
+ * JDBC/벌크 update 처럼 영속성 컨텍스트를 거치지 않는 변경은 전달되지 않는다.
+ */
+public interface MemberChangeHandler {
+
+    void memberInserted(MemberSnapshot after);
+
+    void memberUpdated(MemberSnapshot before, MemberSnapshot after);
+
+    void memberDeleted(MemberSnapshot before);
+
+//    insert 면 previousName 은 null
+    void teamSaved(Long teamId, String previousName, String name);
+
+    void teamDeleted(Long teamId);
+}
@@ -0,0 +1,122 @@
+package study.querydsl.change;
+
+import org.hibernate.Hibernate;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.tuple.entity.EntityMetamodel;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.List;
+
+/**
+ * commit 된 Member/Team 변경을 MemberChangeHandler 들에게 넘긴다.
+ *
+ * commit 한 스레드에서 호출되므로 값만 복사해서 넘기고, 프록시 초기화나 조회는 하지 않는다.
+ * 변경 전 값은 영속성 컨텍스트가 로딩했던 상태(oldState)에서 읽는다. 없으면(detached update) 변경 전을 모르는 것으로 본다.
+ */
+public class MemberChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    private final List<MemberChangeHandler> handlers;
+
+    public MemberChangeListener(List<MemberChangeHandler> handlers) {
+        this.handlers = handlers;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            MemberSnapshot after = snapshotOf((Member) entity);
+            handlers.forEach(handler -> handler.memberInserted(after));
+        } else if (entity instanceof Team) {
+            Team team = (Team) entity;
+            handlers.forEach(handler -> handler.teamSaved(team.getId(), null, team.getName()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            MemberSnapshot before = event.getOldState() == null ? null
+                    : snapshotOf((Long) event.getId(), event.getOldState(), event.getPersister());
+            MemberSnapshot after = snapshotOf((Member) entity);
+            handlers.forEach(handler -> handler.memberUpdated(before, after));
+        } else if (entity instanceof Team) {
+            Team team = (Team) entity;
+            String previous = event.getOldState() == null ? null
+                    : (String) event.getOldState()[propertyIndex(event.getPersister(), "name")];
+            handlers.forEach(handler -> handler.teamSaved(team.getId(), previous, team.getName()));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            MemberSnapshot before = snapshotOf((Long) event.getId(), event.getDeletedState(), event.getPersister());
+            handlers.forEach(handler -> handler.memberDeleted(before));
+        } else if (entity instanceof Team) {
+            handlers.forEach(handler -> handler.teamDeleted((Long) event.getId()));
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        Class<?> entityClass = persister.getMappedClass();
+        return !handlers.isEmpty() && (entityClass == Member.class || entityClass == Team.class);
+    }
+
+    private static MemberSnapshot snapshotOf(Member member) {
+        return new MemberSnapshot(member.getId(), member.getUsername(), member.getAge(),
+                teamIdOf(member.getTeam()), teamNameOf(member.getTeam()));
+    }
+
+    private static MemberSnapshot snapshotOf(Long memberId, Object[] state, EntityPersister persister) {
+        Object team = state[propertyIndex(persister, "team")];
+        return new MemberSnapshot(memberId,
+                (String) state[propertyIndex(persister, "username")],
+                (Integer) state[propertyIndex(persister, "age")],
+                teamIdOf(team), teamNameOf(team));
+    }
+
+    private static int propertyIndex(EntityPersister persister, String property) {
+        EntityMetamodel metamodel = persister.getEntityMetamodel();
+        return metamodel.getPropertyIndex(property);
+    }
+
+//    프록시는 초기화하지 않고 id 만 꺼낸다
+    private static Long teamIdOf(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    private static String teamNameOf(Object team) {
+        return team != null && Hibernate.isInitialized(team) ? ((Team) Hibernate.unproxy(team)).getName() : null;
+    }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.change;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//commit 된 시점의 회원 값. teamName 은 팀이 프록시면 비어 있다. (필요한 쪽에서 teamId 로 찾는다)
+@Getter
+@AllArgsConstructor
+public class MemberSnapshot {
+    private final Long memberId;
+    private final String username;
+    private final int age;
+    private final Long teamId;
+    private final String teamName;
+
+    public MemberSnapshot withTeamName(String teamName) {
+        return new MemberSnapshot(memberId, username, age, teamId, teamName);
+    }
+}
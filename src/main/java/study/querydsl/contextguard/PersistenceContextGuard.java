@@ -0,0 +1,57 @@
+package study.querydsl.contextguard;
+
+import lombok.Getter;
+
+/**
+ * 영속성 컨텍스트 크기 한도
+ *
+ * 현재 스레드에 바인딩되어 있으면 PersistenceContextGuardListener 가 이 한도를 쓰고,
+ * 없으면 fail-all-transactions 일 때만 설정의 기본 한도(FAIL)를 쓴다.
+ * 관리 중인 엔티티 수나 추정 크기가 한도를 넘으면
+ * - FLUSH_CLEAR : 다음 persist / find / 쿼리 실행 직전에 flush 후 clear 한다. 그 전에 들고 있던 엔티티는 준영속이 되므로 더 바꿔도 반영되지 않는다.
+ *   @PersistenceContextLimit 메서드가 트랜잭션을 시작한 경우에만 쓴다. 호출한 쪽 트랜잭션에 참여하면
+ *   영속성 컨텍스트도 호출한 쪽 것이므로 비우지 않고 FAIL 로 바꾼다.
+ * - FAIL : PersistenceContextLimitExceededException 으로 바로 실패한다. (트랜잭션은 롤백)
+ */
+@Getter
+public final class PersistenceContextGuard {
+
+    public enum Action {
+        FLUSH_CLEAR, FAIL
+    }
+
+    private static final ThreadLocal<PersistenceContextGuard> CURRENT = new ThreadLocal<>();
+
+    private final int maxEntities;
+    private final long maxBytes;
+    private final Action action;
+
+    public PersistenceContextGuard(int maxEntities, long maxBytes, Action action) {
+        this.maxEntities = maxEntities;
+        this.maxBytes = maxBytes;
+        this.action = action;
+    }
+
+    public static PersistenceContextGuard current() {
+        return CURRENT.get();
+    }
+
+//    이전 값을 돌려준다. 끝나면 restore 로 되돌린다. (중첩 호출)
+    public static PersistenceContextGuard bind(PersistenceContextGuard guard) {
+        PersistenceContextGuard previous = CURRENT.get();
+        CURRENT.set(guard);
+        return previous;
+    }
+
+    public static void restore(PersistenceContextGuard previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    boolean isExceeded(int entities, long bytes) {
+        return entities > maxEntities || bytes > maxBytes;
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.contextguard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+import javax.persistence.EntityManagerFactory;
+
+//persistence-context-guard.enabled=true 일 때만 등록. 기본 listener 보다 앞에 붙여서 작업 직전에 확인한다.
+@Configuration
+@EnableConfigurationProperties(PersistenceContextGuardProperties.class)
+@ConditionalOnProperty(prefix = "persistence-context-guard", name = "enabled", havingValue = "true")
+public class PersistenceContextGuardConfig {
+
+    @Bean
+    public PersistenceContextGuardListener persistenceContextGuardListener(PersistenceContextGuardProperties properties,
+                                                                           EntityManagerFactory entityManagerFactory,
+                                                                           MeterRegistry meterRegistry) {
+        PersistenceContextGuardListener listener = new PersistenceContextGuardListener(
+                properties.isFailAllTransactions() ? defaults(properties) : null, meterRegistry);
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.prependListeners(EventType.PERSIST, listener);
+        registry.prependListeners(EventType.LOAD, listener);
+        registry.prependListeners(EventType.AUTO_FLUSH, listener);
+        registry.appendListeners(EventType.POST_LOAD, listener);
+        return listener;
+    }
+
+//    @Transactional 과 같은 방식으로 프록시에 붙도록 infrastructure advisor 로 등록한다.
+//    메서드가 트랜잭션을 시작하는지 보려면 트랜잭션 advisor 보다 바깥에서 실행되어야 한다.
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor persistenceContextLimitAdvisor(PersistenceContextGuardProperties properties) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(PersistenceContextLimit.class),
+                new PersistenceContextLimitInterceptor(defaults(properties)));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    private static PersistenceContextGuard defaults(PersistenceContextGuardProperties properties) {
+        return new PersistenceContextGuard(properties.getMaxEntities(), properties.getMaxBytes().toBytes(),
+                PersistenceContextGuard.Action.FAIL);
+    }
+}
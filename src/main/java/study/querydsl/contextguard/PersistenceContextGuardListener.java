@@ -0,0 +1,138 @@
+package study.querydsl.contextguard;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.FlushMode;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.event.spi.PersistEvent;
+import org.hibernate.event.spi.PersistEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.util.Map;
+
+/**
+ * 영속성 컨텍스트 크기 감시
+ *
+ * flush/clear 는 작업 도중에 하면 안 되므로, 사용자가 호출한 작업이 시작되기 직전(기본 listener 앞)에만 한다.
+ * - persist : cascade 로 호출된 persist 는 제외. 이미 관리 중인 엔티티를 다시 persist 하는 경우도 제외.
+ * - find : em.find (LoadType GET). 프록시 초기화 같은 내부 로딩은 제외.
+ * - 쿼리 : 쿼리 실행 전 auto flush 이벤트.
+ * FAIL 은 엔티티가 로딩될 때마다도 확인해서, 쿼리 하나가 한도를 넘는 만큼 가져오는 도중에도 실패시킨다.
+ *
+ * 추정 크기는 (관리 중인 엔티티 수) x (엔티티 + loaded state 스냅샷 + EntityEntry 의 대략적인 크기) 이다.
+ */
+@Slf4j
+public class PersistenceContextGuardListener implements PersistEventListener, LoadEventListener,
+        AutoFlushEventListener, PostLoadEventListener {
+
+//    fail-all-transactions 가 아니면 null. @PersistenceContextLimit 밖의 트랜잭션은 확인하지 않는다.
+    private final PersistenceContextGuard defaults;
+    private final Counter flushClears;
+    private final Counter failures;
+    private final DistributionSummary clearedEntities;
+
+    private volatile long entityBytes;
+
+    public PersistenceContextGuardListener(PersistenceContextGuard defaults, MeterRegistry meterRegistry) {
+        this.defaults = defaults;
+        this.flushClears = Counter.builder("persistence_context.guard")
+                .description("automatic flush and clear or fail fast by the persistence context guard")
+                .tag("action", "flush_clear")
+                .register(meterRegistry);
+        this.failures = Counter.builder("persistence_context.guard")
+                .description("automatic flush and clear or fail fast by the persistence context guard")
+                .tag("action", "fail")
+                .register(meterRegistry);
+        this.clearedEntities = DistributionSummary.builder("persistence_context.guard.cleared_entities")
+                .description("managed entities when the guard cleared the persistence context")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onPersist(PersistEvent event) throws HibernateException {
+        Object entity = event.getObject();
+        if (entity instanceof HibernateProxy || event.getSession().getPersistenceContextInternal().isEntryFor(entity)) {
+            return;
+        }
+        check(event.getSession(), true);
+    }
+
+    @Override
+    public void onPersist(PersistEvent event, Map createdAlready) throws HibernateException {
+    }
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+        if (loadType == LoadEventListener.GET) {
+            check(event.getSession(), true);
+        }
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) throws HibernateException {
+        check(event.getSession(), true);
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        check(event.getSession(), false);
+    }
+
+    private void check(EventSource session, boolean safePoint) {
+        if (!session.isTransactionInProgress()) {
+            return;
+        }
+        PersistenceContextGuard current = PersistenceContextGuard.current();
+        PersistenceContextGuard guard = current != null ? current : defaults;
+        if (guard == null) {
+            return;
+        }
+        PersistenceContext persistenceContext = session.getPersistenceContextInternal();
+        int entities = persistenceContext.getNumberOfManagedEntities();
+        long bytes = entities * entityBytes(session);
+        if (!guard.isExceeded(entities, bytes)) {
+            return;
+        }
+
+        if (guard.getAction() == PersistenceContextGuard.Action.FAIL) {
+            failures.increment();
+            throw new PersistenceContextLimitExceededException(entities, bytes, guard);
+        }
+        if (!safePoint || !persistenceContext.isLoadFinished()) {
+            return;
+        }
+//        readOnly 트랜잭션(FlushMode.MANUAL)은 flush 하지 않고 비우기만 한다
+        if (session.getHibernateFlushMode() != FlushMode.MANUAL) {
+            session.flush();
+        }
+        session.clear();
+        flushClears.increment();
+        clearedEntities.record(entities);
+        log.debug("persistence context cleared at {} entities (~{} bytes)", entities, bytes);
+    }
+
+    private long entityBytes(EventSource session) {
+        long bytes = entityBytes;
+        if (bytes == 0) {
+            Map<String, EntityPersister> persisters = session.getFactory().getMetamodel().entityPersisters();
+            long total = 0;
+            for (EntityPersister persister : persisters.values()) {
+                total += 96 + 48L * persister.getPropertyTypes().length;
+            }
+            bytes = persisters.isEmpty() ? 96 : total / persisters.size();
+            entityBytes = bytes;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,18 @@
+package study.querydsl.contextguard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+//@PersistenceContextLimit 에서 0 인 한도는 이 값을 쓴다.
+//fail-all-transactions=true 면 @PersistenceContextLimit 이 없는 트랜잭션도 이 한도를 넘을 때 실패시킨다. (기본은 끔)
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "persistence-context-guard")
+public class PersistenceContextGuardProperties {
+    private boolean enabled = false;
+    private int maxEntities = 100_000;
+    private DataSize maxBytes = DataSize.ofMegabytes(256);
+    private boolean failAllTransactions = false;
+}
@@ -0,0 +1,18 @@
+package study.querydsl.contextguard;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//메서드(트랜잭션) 단위 영속성 컨텍스트 한도. 0 인 값은 persistence-context-guard 설정값을 쓴다.
+//FLUSH_CLEAR 는 메서드가 트랜잭션을 시작할 때만 동작하고, 호출한 쪽 트랜잭션에 참여하면 FAIL 로 동작한다.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PersistenceContextLimit {
+    int maxEntities() default 0;
+
+    long maxBytes() default 0;
+
+    PersistenceContextGuard.Action action() default PersistenceContextGuard.Action.FLUSH_CLEAR;
+}
@@ -0,0 +1,10 @@
+package study.querydsl.contextguard;
+
+//영속성 컨텍스트 한도 초과 (action = FAIL)
+public class PersistenceContextLimitExceededException extends RuntimeException {
+
+    public PersistenceContextLimitExceededException(int entities, long bytes, PersistenceContextGuard guard) {
+        super("Persistence context holds " + entities + " entities (~" + bytes + " bytes), limit is "
+                + guard.getMaxEntities() + " entities / " + guard.getMaxBytes() + " bytes");
+    }
+}
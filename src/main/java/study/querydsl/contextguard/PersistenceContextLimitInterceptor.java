@@ -0,0 +1,59 @@
+package study.querydsl.contextguard;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+
+//@PersistenceContextLimit 이 붙은 메서드를 실행하는 동안 PersistenceContextGuard 를 스레드에 바인딩한다.
+//트랜잭션 advisor 보다 바깥에서 실행되므로, 들어올 때 트랜잭션이 있으면 호출한 쪽 트랜잭션에 참여하는 것이다.
+//이때 FLUSH_CLEAR 는 호출한 쪽 영속성 컨텍스트를 비우게 되므로 FAIL 로 바꾼다. (REQUIRES_NEW 는 새 영속성 컨텍스트라 제외)
+public class PersistenceContextLimitInterceptor implements MethodInterceptor {
+
+    private final PersistenceContextGuard defaults;
+
+    public PersistenceContextLimitInterceptor(PersistenceContextGuard defaults) {
+        this.defaults = defaults;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        PersistenceContextLimit limit = AnnotatedElementUtils.findMergedAnnotation(invocation.getMethod(),
+                PersistenceContextLimit.class);
+        if (limit == null) {
+            return invocation.proceed();
+        }
+        PersistenceContextGuard.Action action = limit.action();
+        if (action == PersistenceContextGuard.Action.FLUSH_CLEAR && joinsCallerTransaction(invocation)) {
+            action = PersistenceContextGuard.Action.FAIL;
+        }
+        PersistenceContextGuard previous = PersistenceContextGuard.bind(new PersistenceContextGuard(
+                limit.maxEntities() > 0 ? limit.maxEntities() : defaults.getMaxEntities(),
+                limit.maxBytes() > 0 ? limit.maxBytes() : defaults.getMaxBytes(),
+                action));
+        try {
+            return invocation.proceed();
+        } finally {
+            PersistenceContextGuard.restore(previous);
+        }
+    }
+
+    private static boolean joinsCallerTransaction(MethodInvocation invocation) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        Method method = invocation.getThis() != null
+                ? AopUtils.getMostSpecificMethod(invocation.getMethod(), invocation.getThis().getClass())
+                : invocation.getMethod();
+        Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
+        if (transactional == null) {
+            transactional = AnnotatedElementUtils.findMergedAnnotation(method.getDeclaringClass(), Transactional.class);
+        }
+        return transactional == null || transactional.propagation() != Propagation.REQUIRES_NEW;
+    }
+}
@@ -1,38 +1,122 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import study.querydsl.deadline.Deadline;
+import study.querydsl.deadline.QueryDeadline;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.live.MemberSubscriptionHub;
+import study.querydsl.readmodel.MemberReadModelRepository;
+import study.querydsl.repository.MemberBatchSearchRepository;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.paging.AdaptiveMemberPaging;
+import study.querydsl.repository.paging.PagingStrategy;
+import study.querydsl.sql.MemberSqlRepository;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
+    private static final int MAX_BATCH_SIZE = 50;
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+//    querydsl-sql.enabled=true 일 때만 있다. 없으면 JPA 구현으로 조회.
+    private final ObjectProvider<MemberSqlRepository> memberSqlRepository;
+//    member-read-model.enabled=true 일 때만 있다. 있으면 SQL 없이 메모리에서 검색한다.
+    private final ObjectProvider<MemberReadModelRepository> memberReadModelRepository;
+    private final AdaptiveMemberPaging adaptiveMemberPaging;
+    private final MemberBatchSearchRepository memberBatchSearchRepository;
+//    member-live-query.enabled=true 일 때만 있다.
+    private final ObjectProvider<MemberSubscriptionHub> memberSubscriptionHub;
 
+    @Deadline(millis = 1000)
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
-        return memberJpaRepository.searchByWhereParam(condition);
+        MemberReadModelRepository readModelRepository = memberReadModelRepository.getIfAvailable();
+        if (readModelRepository != null) {
+            return readModelRepository.searchByWhereParam(condition);
+        }
+        MemberSqlRepository sqlRepository = memberSqlRepository.getIfAvailable();
+        return sqlRepository != null ? sqlRepository.searchByWhereParam(condition) : memberJpaRepository.searchByWhereParam(condition);
     }
 
 //    spring jpa가 page 정보를 자동으로 pageable 객체에 넣어준다
 //    page 정보 전달 인자 예시 : ApiUrl?page=0&size=5
+    @Deadline(millis = 3000)
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
-        return memberRepository.searchPageSimple(condition, pageable);
+        return memberSearch().searchPageSimple(condition, pageable);
     }
 
+//    count 쿼리가 느릴 수 있어 별도 스레드에서 실행. deadline 이 지나면 실행 중인 쿼리를 cancel 한다.
+//    deadline 이 바인딩되지 않았으면(interceptor 미등록) 기본 async timeout 으로 실행한다.
+    @Deadline(millis = 3000)
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
-        return memberRepository.searchPageComplex(condition, pageable);
+    public WebAsyncTask<Page<MemberTeamDto>> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
+        MemberRepositoryCustom memberSearch = memberSearch();
+        QueryDeadline deadline = QueryDeadline.current();
+        if (deadline == null) {
+            return new WebAsyncTask<>(() -> memberSearch.searchPageComplex(condition, pageable));
+        }
+        return deadline.asyncTask(() -> memberSearch.searchPageComplex(condition, pageable));
+    }
+
+//    쿼리 모양별로 관측한 지연시간으로 페이징 방식을 고른다. paging 파라미터로 방식을 고정할 수 있다.
+//    예시 : /v4/members?teamName=teamA&page=3&size=20&paging=SKIP_COUNT
+    @Deadline(millis = 3000)
+    @GetMapping("/v4/members")
+    public Page<MemberTeamDto> searchMemberV4(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(required = false) PagingStrategy paging){
+        return adaptiveMemberPaging.search(condition, pageable, paging);
+    }
+
+//    요청 id -> 검색 조건. 조건들을 쿼리 하나로 합쳐 조회하고 같은 요청 id 로 결과를 돌려준다.
+//    예시 : POST /members/search:batch {"widgetA": {"teamName": "teamA"}, "widgetB": {"ageGoe": 30}}
+    @Deadline(millis = 3000)
+    @PostMapping("/members/search:batch")
+    public Map<String, List<MemberTeamDto>> searchMemberBatch(@RequestBody Map<String, MemberSearchCondition> conditions){
+        if (conditions.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "batch size must be <= " + MAX_BATCH_SIZE);
+        }
+        return memberBatchSearchRepository.searchBatch(conditions);
+    }
+
+//    /v2/members 를 같은 조건으로 주기적으로 조회하는 대신, 조건에 맞는 회원의 변경을 SSE 로 받는다.
+//    이벤트 이름은 insert(조건에 들어옴), update, delete(조건에서 빠짐). 연결이 끊기면 다시 구독하고 한번 조회해서 맞춘다.
+//    예시 : /members/subscribe?teamName=teamA&ageGoe=20
+    @GetMapping(path = "/members/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeMembers(MemberSearchCondition condition){
+        MemberSubscriptionHub hub = memberSubscriptionHub.getIfAvailable();
+        if (hub == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "live query is disabled");
+        }
+        return hub.subscribe(condition);
+    }
+
+    private MemberRepositoryCustom memberSearch() {
+        MemberReadModelRepository readModelRepository = memberReadModelRepository.getIfAvailable();
+        if (readModelRepository != null) {
+            return readModelRepository;
+        }
+        return memberSqlRepository.getIfAvailable(() -> memberRepository);
     }
 }
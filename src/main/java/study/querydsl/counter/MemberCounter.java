@@ -0,0 +1,19 @@
+package study.querydsl.counter;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+
+//전체/팀별 회원 수. 테이블(ddl) 정의용이고 읽고 쓰는 것은 MemberCounters 가 JDBC 로 한다.
+//한 row 에 update 가 몰리지 않도록 (team_id, slot) 으로 나눠 두고, 읽을 때 slot 을 합친다.
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberCounter {
+    @EmbeddedId
+    private MemberCounterId id;
+    private long cnt;
+}
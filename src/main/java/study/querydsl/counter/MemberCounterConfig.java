@@ -0,0 +1,41 @@
+package study.querydsl.counter;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+//member-counter.enabled=true 일 때만 등록. 시작할 때 한번 다시 세고(rebuild), 그 전까지는 count 쿼리를 그대로 쓴다.
+@Configuration
+@EnableConfigurationProperties(MemberCounterProperties.class)
+@ConditionalOnProperty(prefix = "member-counter", name = "enabled", havingValue = "true")
+public class MemberCounterConfig {
+
+    @Bean
+    public MemberCounters memberCounters(MemberCounterProperties properties, EntityManagerFactory entityManagerFactory,
+                                         JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        MemberCounters counters = new MemberCounters(properties, entityManagerFactory, jdbcTemplate,
+                new TransactionTemplate(transactionManager));
+        MemberCounterListener listener = new MemberCounterListener(counters);
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+        return counters;
+    }
+
+    @Bean
+    public ApplicationRunner memberCountersRebuilder(MemberCounters memberCounters) {
+        return args -> memberCounters.rebuild();
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.counter;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+
+@Embeddable
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberCounterId implements Serializable {
+//    0 이면 전체 회원 수
+    private Long teamId;
+    private Integer slot;
+
+    public MemberCounterId(Long teamId, Integer slot) {
+        this.teamId = teamId;
+        this.slot = slot;
+    }
+}
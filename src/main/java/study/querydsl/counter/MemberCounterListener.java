@@ -0,0 +1,82 @@
+package study.querydsl.counter;
+
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.Objects;
+
+/**
+ * flush 중에 Member insert/delete/팀 변경과 Team insert/delete 를 MemberCounters 의 세션별 delta 로 넘긴다.
+ *
+ * commit 후가 아니라 flush 시점 이벤트를 쓰는 이유는 delta 를 같은 트랜잭션 안에서 counter row 에 더해야 하기 때문이다.
+ * 변경 전 팀은 영속성 컨텍스트가 로딩했던 상태(oldState)에서 읽는다. 없으면(detached update) commit 직전에 다시 센다.
+ */
+public class MemberCounterListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final MemberCounters counters;
+
+    public MemberCounterListener(MemberCounters counters) {
+        this.counters = counters;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            counters.memberAdded(event.getSession(), teamIdOf(event.getState(), event.getPersister()));
+        } else if (entity instanceof Team) {
+            counters.teamCreated(event.getSession(), (Long) event.getId());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        if (event.getOldState() == null) {
+            counters.recountOnCommit(event.getSession());
+            return;
+        }
+        Long before = teamIdOf(event.getOldState(), event.getPersister());
+        Long after = teamIdOf(event.getState(), event.getPersister());
+        if (!Objects.equals(before, after)) {
+            counters.memberMoved(event.getSession(), before, after);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Member) {
+            counters.memberRemoved(event.getSession(), teamIdOf(event.getDeletedState(), event.getPersister()));
+        } else if (entity instanceof Team) {
+            counters.teamRemoved(event.getSession(), (Long) event.getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+//    프록시는 초기화하지 않고 id 만 꺼낸다
+    private static Long teamIdOf(Object[] state, EntityPersister persister) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+}
@@ -0,0 +1,14 @@
+package study.querydsl.counter;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+//전체/팀별 회원 수를 member_counter 테이블에 유지한다. slots 는 같은 카운터를 나눠 쓰는 row 수(동시 commit 간 row lock 경합 완화)
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member-counter")
+public class MemberCounterProperties {
+    private boolean enabled = false;
+    private int slots = 8;
+}
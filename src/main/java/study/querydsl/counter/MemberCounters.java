@@ -0,0 +1,374 @@
+package study.querydsl.counter;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.FlushMode;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkClauseListener;
+import study.querydsl.repository.support.ExactCountProvider;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 전체 회원 수와 팀별 회원 수를 member_counter 테이블에 유지하고, count 쿼리 대신 돌려준다.
+ *
+ * - Member insert/delete/changeTeam 은 MemberCounterListener 가 세션별 delta 로 모으고,
+ *   commit 직전(hibernate beforeTransactionCompletion, flush 뒤) 같은 트랜잭션에서 slot row 에 더한다. rollback 되면 같이 없어진다.
+ * - DeadlineJPAQueryFactory 로 만든 벌크 update/delete 가 회원 수나 팀을 바꿀 수 있으면 commit 직전에 전부 다시 센다(recount).
+ * - JPQL 문자열, native SQL, JDBC 로 직접 바꾼 회원/팀은 알 수 없다. 그런 작업 뒤에는 rebuild() 를 호출한다.
+ * - 아직 반영하지 않은 delta 가 있는 트랜잭션 안에서는 값을 주지 않는다(empty). 호출하는 쪽은 count 쿼리로 돌아간다.
+ * - recount 는 member_counter 전체를 지우고 다시 채우므로, 동시에 commit 하는 다른 트랜잭션은 row lock 을 기다리거나 실패할 수 있다.
+ */
+@Slf4j
+public class MemberCounters implements ExactCountProvider, BulkClauseListener {
+
+    static final long TOTAL = 0L;
+
+    private static final String TOTAL_SQL = "select coalesce(sum(cnt), 0) from member_counter where team_id = 0";
+    private static final String TEAM_SQL = "select coalesce(sum(c.cnt), 0) from member_counter c"
+            + " join team t on t.id = c.team_id where t.name = ?";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int slots;
+    private final Map<SessionImplementor, Pending> pending = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public MemberCounters(MemberCounterProperties properties, EntityManagerFactory entityManagerFactory,
+                          JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.slots = Math.max(1, properties.getSlots());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+//    member/team 테이블에서 다시 센다. 시작할 때, 그리고 JDBC 등으로 직접 데이터를 바꾼 뒤 호출한다.
+    public void rebuild() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            recount(connection);
+            return null;
+        }));
+        ready = true;
+        log.info("member counters rebuilt in {}ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public OptionalLong total() {
+        return readable() ? OptionalLong.of(jdbcTemplate.queryForObject(TOTAL_SQL, Long.class)) : OptionalLong.empty();
+    }
+
+//    같은 이름의 팀이 여러 개면 합친다. (team.name = ? 조건과 같은 결과)
+    public OptionalLong countOfTeam(String teamName) {
+        return readable() ? OptionalLong.of(jdbcTemplate.queryForObject(TEAM_SQL, Long.class, teamName))
+                : OptionalLong.empty();
+    }
+
+//    조건 규칙은 MemberRepositoryImpl 의 usernameEq/teamNameEq/ageGoe/ageLoe 와 같다. teamName 만 있거나 조건이 없을 때만 센다.
+    public OptionalLong countOf(MemberSearchCondition condition) {
+        if (hasText(condition.getUsername()) || condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+            return OptionalLong.empty();
+        }
+        return hasText(condition.getTeamName()) ? countOfTeam(condition.getTeamName()) : total();
+    }
+
+    /**
+     * count 쿼리 모양이 다음 중 하나일 때만 센다. 나머지는 empty.
+     * - from member [left join member.team team]                     : 전체
+     * - from member [left|inner join member.team team] where team.name = '상수' : 팀별
+     */
+    @Override
+    public OptionalLong countOf(QueryMetadata countQuery) {
+        if (countQuery.isDistinct() || !countQuery.getGroupBy().isEmpty() || countQuery.getHaving() != null
+                || !countQuery.getFlags().isEmpty() || !countQuery.getParams().isEmpty()) {
+            return OptionalLong.empty();
+        }
+        List<JoinExpression> joins = countQuery.getJoins();
+        if (joins.isEmpty() || joins.size() > 2) {
+            return OptionalLong.empty();
+        }
+        Expression<?> root = joins.get(0).getTarget();
+        if (!(root instanceof EntityPath) || root.getType() != Member.class) {
+            return OptionalLong.empty();
+        }
+        Path<?> teamAlias = null;
+        boolean innerJoin = false;
+        if (joins.size() == 2) {
+            JoinExpression join = joins.get(1);
+            teamAlias = teamAliasOf(join, (Path<?>) root);
+            if (teamAlias == null) {
+                return OptionalLong.empty();
+            }
+            innerJoin = join.getType() == JoinType.INNERJOIN || join.getType() == JoinType.JOIN;
+        }
+
+        Expression<?> where = countQuery.getWhere();
+        if (where == null) {
+            return innerJoin ? OptionalLong.empty() : total();
+        }
+        String teamName = teamNameOf(where, (Path<?>) root, teamAlias);
+        return teamName != null ? countOfTeam(teamName) : OptionalLong.empty();
+    }
+
+//    join member.team [as team], on 조건 없음
+    private static Path<?> teamAliasOf(JoinExpression join, Path<?> root) {
+        if (join.getCondition() != null || (join.getType() != JoinType.LEFTJOIN
+                && join.getType() != JoinType.INNERJOIN && join.getType() != JoinType.JOIN)) {
+            return null;
+        }
+        Expression<?> target = join.getTarget();
+        Path<?> association;
+        Path<?> alias;
+        if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+            Operation<?> operation = (Operation<?>) target;
+            if (!(operation.getArg(0) instanceof Path) || !(operation.getArg(1) instanceof Path)) {
+                return null;
+            }
+            association = (Path<?>) operation.getArg(0);
+            alias = (Path<?>) operation.getArg(1);
+        } else if (target instanceof Path) {
+            association = (Path<?>) target;
+            alias = association;
+        } else {
+            return null;
+        }
+        return isTeamOf(association, root) ? alias : null;
+    }
+
+//    where team.name = '상수'. member.team.name 처럼 join 없이 쓴 경로(암묵적 inner join)도 같은 결과다.
+    private static String teamNameOf(Expression<?> where, Path<?> root, Path<?> teamAlias) {
+        if (!(where instanceof Operation) || ((Operation<?>) where).getOperator() != Ops.EQ) {
+            return null;
+        }
+        Operation<?> eq = (Operation<?>) where;
+        Expression<?> left = eq.getArg(0);
+        Expression<?> right = eq.getArg(1);
+        if (left instanceof Constant) {
+            Expression<?> swap = left;
+            left = right;
+            right = swap;
+        }
+        if (!(left instanceof Path) || !(right instanceof Constant) || !(((Constant<?>) right).getConstant() instanceof String)) {
+            return null;
+        }
+        Path<?> name = (Path<?>) left;
+        Path<?> owner = name.getMetadata().getParent();
+        if (owner == null || !"name".equals(name.getMetadata().getName())) {
+            return null;
+        }
+        boolean aliased = teamAlias != null && owner.equals(teamAlias);
+        if (!aliased && !isTeamOf(owner, root)) {
+            return null;
+        }
+        return (String) ((Constant<?>) right).getConstant();
+    }
+
+    private static boolean isTeamOf(Path<?> path, Path<?> root) {
+        return path.getType() == Team.class && root.equals(path.getMetadata().getParent())
+                && "team".equals(path.getMetadata().getName());
+    }
+
+//    벌크 delete 나 회원의 팀을 바꾸는 벌크 update 는 어떤 row 가 바뀌었는지 모르므로 commit 직전에 다시 센다
+    @Override
+    public void bulkExecuted(EntityPath<?> entity, Set<Path<?>> updatedPaths, boolean delete) {
+        boolean affectsCounts;
+        if (entity.getType() == Member.class) {
+            affectsCounts = delete || updatedPaths.stream().anyMatch(path -> Team.class.isAssignableFrom(path.getType()));
+        } else {
+            affectsCounts = delete && entity.getType() == Team.class;
+        }
+        if (!affectsCounts) {
+            return;
+        }
+        SessionImplementor session = currentSession();
+        if (session != null) {
+            recountOnCommit(session);
+        } else {
+            log.warn("bulk {} on {} outside of a transaction, member counters may be stale until rebuild()",
+                    delete ? "delete" : "update", entity.getType().getSimpleName());
+        }
+    }
+
+    void memberAdded(SessionImplementor session, Long teamId) {
+        Pending p = pendingOf(session);
+        p.add(TOTAL, 1);
+        if (teamId != null) {
+            p.add(teamId, 1);
+        }
+    }
+
+    void memberRemoved(SessionImplementor session, Long teamId) {
+        Pending p = pendingOf(session);
+        p.add(TOTAL, -1);
+        if (teamId != null) {
+            p.add(teamId, -1);
+        }
+    }
+
+    void memberMoved(SessionImplementor session, Long fromTeamId, Long toTeamId) {
+        Pending p = pendingOf(session);
+        if (fromTeamId != null) {
+            p.add(fromTeamId, -1);
+        }
+        if (toTeamId != null) {
+            p.add(toTeamId, 1);
+        }
+    }
+
+    void teamCreated(SessionImplementor session, Long teamId) {
+        pendingOf(session).newTeams.add(teamId);
+    }
+
+    void teamRemoved(SessionImplementor session, Long teamId) {
+        pendingOf(session).deletedTeams.add(teamId);
+    }
+
+    void recountOnCommit(SessionImplementor session) {
+        pendingOf(session).recount = true;
+    }
+
+//    세션(트랜잭션)마다 처음 변경이 생길 때 commit 직전/직후 콜백을 한번 등록한다. 세션은 한 스레드에서만 쓰므로 Pending 은 동기화하지 않는다.
+    private Pending pendingOf(SessionImplementor session) {
+        return pending.computeIfAbsent(session, s -> {
+            Pending created = new Pending(ThreadLocalRandom.current().nextInt(slots));
+            s.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) completing -> apply(completing, created));
+            s.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> pending.remove(s));
+            return created;
+        });
+    }
+
+    private void apply(SessionImplementor session, Pending p) {
+        session.doWork(connection -> {
+            if (p.recount) {
+                recount(connection);
+                return;
+            }
+            for (Long teamId : p.newTeams) {
+                createSlots(connection, teamId);
+            }
+//            team_id 순서로 update 해서 같은 slot 을 쓰는 트랜잭션끼리 row lock 순서가 엇갈리지 않게 한다
+            for (Map.Entry<Long, Long> delta : p.deltas.entrySet()) {
+                if (delta.getValue() != 0) {
+                    add(connection, delta.getKey(), p.slot, delta.getValue());
+                }
+            }
+            for (Long teamId : p.deletedTeams) {
+                update(connection, "delete from member_counter where team_id = ?", teamId);
+            }
+        });
+    }
+
+    private void add(Connection connection, long teamId, int slot, long delta) throws SQLException {
+        int updated = update(connection, "update member_counter set cnt = cnt + ? where team_id = ? and slot = ?",
+                delta, teamId, slot);
+//        slot row 는 팀을 만들 때/recount 때 만들어 두므로 보통은 여기까지 오지 않는다 (slots 설정을 늘린 직후 등)
+        if (updated == 0) {
+            update(connection, "insert into member_counter (team_id, slot, cnt) values (?, ?, ?)", teamId, slot, delta);
+        }
+    }
+
+    private void createSlots(Connection connection, long teamId) throws SQLException {
+        for (int slot = 0; slot < slots; slot++) {
+            update(connection, "insert into member_counter (team_id, slot, cnt) values (?, ?, 0)", teamId, slot);
+        }
+    }
+
+    private void recount(Connection connection) throws SQLException {
+        update(connection, "delete from member_counter");
+        update(connection, "insert into member_counter (team_id, slot, cnt) select 0, 0, count(*) from member");
+        update(connection, "insert into member_counter (team_id, slot, cnt)"
+                + " select t.id, 0, count(m.member_id) from team t left join member m on m.team_id = t.id group by t.id");
+        for (int slot = 1; slot < slots; slot++) {
+            update(connection, "insert into member_counter (team_id, slot, cnt)"
+                    + " select team_id, ?, 0 from member_counter where slot = 0", slot);
+        }
+    }
+
+    private static int update(Connection connection, String sql, Object... args) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return statement.executeUpdate();
+        }
+    }
+
+//    현재 트랜잭션에 아직 반영하지 않은 변경이 있으면 counter 는 그 변경을 모른다.
+//    AUTO flush 면 count 쿼리도 flush 후 실행되므로 먼저 flush 해서 delta 를 만든 뒤 확인한다.
+    private boolean readable() {
+        if (!ready) {
+            return false;
+        }
+        SessionImplementor session = currentSession();
+        if (session == null) {
+            return true;
+        }
+        FlushMode flushMode = session.getHibernateFlushMode();
+        if ((flushMode == FlushMode.AUTO || flushMode == FlushMode.ALWAYS) && session.isTransactionInProgress()) {
+            session.flush();
+        }
+        Pending p = pending.get(session);
+        return p == null || p.isEmpty();
+    }
+
+    private SessionImplementor currentSession() {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+        return holder != null ? holder.getEntityManager().unwrap(SessionImplementor.class) : null;
+    }
+
+    private static final class Pending {
+        private final int slot;
+        private final Map<Long, Long> deltas = new TreeMap<>();
+        private final Set<Long> newTeams = new TreeSet<>();
+        private final Set<Long> deletedTeams = new TreeSet<>();
+        private boolean recount;
+
+        private Pending(int slot) {
+            this.slot = slot;
+        }
+
+        private void add(long teamId, long delta) {
+            deltas.merge(teamId, delta, Long::sum);
+        }
+
+        private boolean isEmpty() {
+            return !recount && newTeams.isEmpty() && deletedTeams.isEmpty()
+                    && deltas.values().stream().allMatch(delta -> delta == 0);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package study.querydsl.deadline;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//컨트롤러 메서드별 쿼리 deadline. 요청 시작부터 millis 안에 끝나지 않은 쿼리는 취소된다.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Deadline {
+    long millis();
+}
@@ -0,0 +1,33 @@
+package study.querydsl.deadline;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+//@Deadline 이 붙은 핸들러를 실행하는 동안 QueryDeadline 을 스레드에 바인딩한다.
+public class DeadlineInterceptor implements AsyncHandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            Deadline deadline = ((HandlerMethod) handler).getMethodAnnotation(Deadline.class);
+            if (deadline != null) {
+                QueryDeadline.bind(QueryDeadline.after(Duration.ofMillis(deadline.millis())));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryDeadline.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        QueryDeadline.clear();
+    }
+}
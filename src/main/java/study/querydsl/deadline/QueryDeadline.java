@@ -0,0 +1,99 @@
+package study.querydsl.deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * 요청 단위 쿼리 deadline
+ *
+ * 현재 스레드에 바인딩되어 있으면 DeadlineJPAQuery 가 남은 시간을 query timeout 힌트로 넣고,
+ * DeadlineDataSource 가 마지막으로 만든 Statement 를 기억해 두었다가 cancel() 시 Statement.cancel() 을 호출한다.
+ */
+@Slf4j
+public final class QueryDeadline {
+
+    private static final ThreadLocal<QueryDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private volatile Statement statement;
+    private volatile boolean cancelled;
+
+    private QueryDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static QueryDeadline after(Duration timeout) {
+        return new QueryDeadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    public static QueryDeadline current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(QueryDeadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, (deadlineNanos - System.nanoTime()) / 1_000_000);
+    }
+
+    public boolean isExpired() {
+        return cancelled || System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    void register(Statement statement) {
+        this.statement = statement;
+        if (cancelled) {
+            cancelQuietly(statement);
+        }
+    }
+
+//    시간이 지났거나 요청이 끝났을 때 호출. 실행 중인 쿼리를 DB 에서 중단시키고 커넥션을 빨리 반납하게 한다.
+    public void cancel() {
+        cancelled = true;
+        Statement current = statement;
+        if (current != null) {
+            cancelQuietly(current);
+        }
+    }
+
+//    요청 스레드 대신 별도 스레드에서 실행하고, async timeout/오류/완료 시 실행 중인 쿼리를 취소한다.
+//    servlet async 는 쿼리 실행 중에 클라이언트가 끊긴 것을 알려주지 않으므로 연결 종료로는 취소되지 않는다. (deadline 까지는 실행된다)
+    public <T> WebAsyncTask<T> asyncTask(Callable<T> callable) {
+        WebAsyncTask<T> task = new WebAsyncTask<>(Math.max(1, remainingMillis()), () -> {
+            bind(this);
+            try {
+                return callable.call();
+            } finally {
+                clear();
+            }
+        });
+        task.onTimeout(() -> {
+            cancel();
+            throw new AsyncRequestTimeoutException();
+        });
+        task.onCompletion(this::cancel);
+        return task;
+    }
+
+    private static void cancelQuietly(Statement statement) {
+        try {
+            if (!statement.isClosed()) {
+                statement.cancel();
+            }
+        } catch (SQLException e) {
+            log.debug("statement cancel failed", e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package study.querydsl.dictionary;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Path;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.change.MemberChangeHandler;
+import study.querydsl.change.MemberSnapshot;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkClauseListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 팀 이름 -> id, id -> 이름 사전
+ *
+ * team 은 작고 거의 바뀌지 않으므로 전체를 메모리에 두고, 회원 검색의 teamName 조건을 member.team_id 조건으로 바꿔서
+ * team join 없이 member 만 읽게 한다. 결과 DTO 의 teamName 은 조회 후 사전에서 채운다.
+ *
+ * - 시작할 때 team 테이블을 한번 읽고(load), 이후에는 commit 된 Team 변경(MemberChangeHandler)으로 갱신한다.
+ *   읽는 쪽은 lock 없이 보도록 바뀔 때마다 새 map 으로 바꿔 끼운다.
+ * - DeadlineJPAQueryFactory 로 만든 Team 벌크 update/delete 는 commit 후 다시 읽는다.
+ *   JPQL 문자열/native/JDBC 로 직접 바꾼 팀은 알 수 없으므로 그런 작업 뒤에는 load() 를 호출한다.
+ * - 읽기/쓰기 트랜잭션 안에서는 아직 commit 하지 않은 팀 변경이 사전에 없으므로 쓰지 않는다(isUsable). 호출하는 쪽은 join 으로 돌아간다.
+ * - 같은 이름의 팀이 여러 개일 수 있으므로 이름 -> id 목록이다.
+ */
+@Slf4j
+public class TeamDictionary implements MemberChangeHandler, BulkClauseListener {
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Entries entries = new Entries(Map.of(), Map.of());
+    private volatile boolean ready;
+
+    public TeamDictionary(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public synchronized void load() {
+        Map<Long, String> names = new HashMap<>();
+        jdbcTemplate.query("select id, name from team", rs -> {
+            names.put(rs.getLong(1), rs.getString(2));
+        });
+        entries = Entries.of(names);
+        ready = true;
+        log.info("team dictionary loaded {} teams", names.size());
+    }
+
+    public boolean isUsable() {
+        return ready && !(TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+//    없는 이름이면 빈 목록. (검색 결과도 없다)
+    public List<Long> teamIdsOf(String teamName) {
+        return entries.ids.getOrDefault(teamName, List.of());
+    }
+
+    public String nameOf(Long teamId) {
+        return teamId != null ? entries.names.get(teamId) : null;
+    }
+
+//    teamId 로 teamName 을 채운다
+    public List<MemberTeamDto> fillTeamNames(List<MemberTeamDto> rows) {
+        Map<Long, String> names = entries.names;
+        for (MemberTeamDto row : rows) {
+            if (row.getTeamId() != null) {
+                row.setTeamName(names.get(row.getTeamId()));
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public synchronized void teamSaved(Long teamId, String previousName, String name) {
+        Map<Long, String> names = new HashMap<>(entries.names);
+        names.put(teamId, name);
+        entries = Entries.of(names);
+    }
+
+    @Override
+    public synchronized void teamDeleted(Long teamId) {
+        Map<Long, String> names = new HashMap<>(entries.names);
+        names.remove(teamId);
+        entries = Entries.of(names);
+    }
+
+    @Override
+    public void memberInserted(MemberSnapshot after) {
+    }
+
+    @Override
+    public void memberUpdated(MemberSnapshot before, MemberSnapshot after) {
+    }
+
+    @Override
+    public void memberDeleted(MemberSnapshot before) {
+    }
+
+//    Team 벌크 update/delete 는 어떤 팀이 바뀌었는지 모르므로 commit 후 다시 읽는다
+    @Override
+    public void bulkExecuted(EntityPath<?> entity, Set<Path<?>> updatedPaths, boolean delete) {
+        if (entity.getType() != Team.class) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    load();
+                }
+            });
+        } else {
+            load();
+        }
+    }
+
+    private static final class Entries {
+        private final Map<Long, String> names;
+        private final Map<String, List<Long>> ids;
+
+        private Entries(Map<Long, String> names, Map<String, List<Long>> ids) {
+            this.names = names;
+            this.ids = ids;
+        }
+
+        private static Entries of(Map<Long, String> names) {
+            Map<String, List<Long>> ids = new HashMap<>();
+            names.forEach((id, name) -> {
+                if (name != null) {
+                    ids.computeIfAbsent(name, key -> new ArrayList<>()).add(id);
+                }
+            });
+            ids.replaceAll((name, teamIds) -> Collections.unmodifiableList(teamIds));
+            return new Entries(Collections.unmodifiableMap(names), Collections.unmodifiableMap(ids));
+        }
+    }
+}
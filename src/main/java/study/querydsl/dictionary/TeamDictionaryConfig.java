@@ -0,0 +1,25 @@
+package study.querydsl.dictionary;
+
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+//team-dictionary.enabled=true 일 때만 등록. 시작할 때 한번 load 하고, 이후 Team 변경은 MemberChangeConfig 가 넘겨준다.
+@Configuration
+@EnableConfigurationProperties(TeamDictionaryProperties.class)
+@ConditionalOnProperty(prefix = "team-dictionary", name = "enabled", havingValue = "true")
+public class TeamDictionaryConfig {
+
+    @Bean
+    public TeamDictionary teamDictionary(JdbcTemplate jdbcTemplate) {
+        return new TeamDictionary(jdbcTemplate);
+    }
+
+    @Bean
+    public ApplicationRunner teamDictionaryLoader(TeamDictionary teamDictionary) {
+        return args -> teamDictionary.load();
+    }
+}
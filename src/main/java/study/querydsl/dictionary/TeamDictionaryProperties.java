@@ -0,0 +1,13 @@
+package study.querydsl.dictionary;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+//팀 이름 -> id 사전을 메모리에 두고 회원 검색에서 team join 을 뺀다
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "team-dictionary")
+public class TeamDictionaryProperties {
+    private boolean enabled = false;
+}
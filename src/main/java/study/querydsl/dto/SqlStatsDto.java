@@ -0,0 +1,33 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import study.querydsl.trace.SqlFingerprintStats;
+
+import java.util.concurrent.TimeUnit;
+
+@Data
+public class SqlStatsDto {
+    private String fingerprint;
+    private long calls;
+    private long errors;
+    private long rows;
+    private double totalMillis;
+    private double meanMillis;
+    private double p50Millis;
+    private double p95Millis;
+    private double p99Millis;
+    private double maxMillis;
+
+    public SqlStatsDto(SqlFingerprintStats stats) {
+        this.fingerprint = stats.getFingerprint();
+        this.calls = stats.getCalls();
+        this.errors = stats.getErrors();
+        this.rows = stats.getRows();
+        this.totalMillis = stats.getTotalNanos() / 1_000_000.0;
+        this.meanMillis = calls == 0 ? 0 : totalMillis / calls;
+        this.p50Millis = stats.percentileMicros(0.50) / 1_000.0;
+        this.p95Millis = stats.percentileMicros(0.95) / 1_000.0;
+        this.p99Millis = stats.percentileMicros(0.99) / 1_000.0;
+        this.maxMillis = TimeUnit.NANOSECONDS.toMicros(stats.getMaxNanos()) / 1_000.0;
+    }
+}
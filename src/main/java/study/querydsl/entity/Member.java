@@ -1,8 +1,10 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
 
 import javax.persistence.*;
+import java.util.Locale;
 
 @Entity
 @Getter
@@ -10,6 +12,12 @@ import javax.persistence.*;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 //ToString에서 team은 제외시키는것이 좋음. 무한루프 발생 가능성.
+//정렬 허용 키(SortPolicy)는 아래 인덱스가 있는 컬럼만 사용한다.
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_username_normalized", columnList = "username_normalized"),
+        @Index(name = "idx_member_age", columnList = "age")
+})
 public class Member {
 
     @Id
@@ -17,6 +25,11 @@ public class Member {
     @Column(name = "member_id")
     private Long id;
     private String username;
+//    대소문자 무시 검색용. lower(username) 으로 검색하면 인덱스를 못 타므로 소문자로 저장해두고 따로 인덱스를 건다.
+//    벌크 update 로 username 을 바꾸면 callback 이 호출되지 않으므로 같이 바꿔야 한다.
+    @Setter(AccessLevel.NONE)
+    @Column(name = "username_normalized")
+    private String usernameNormalized;
     private int age;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -34,14 +47,35 @@ public class Member {
 
     public Member(String username, int age, Team team){
         this.username = username;
+        this.usernameNormalized = normalizeUsername(username);
         this.age = age;
         if(team != null){
             changeTeam(team);
         }
     }
 
+    public void setUsername(String username) {
+        this.username = username;
+        this.usernameNormalized = normalizeUsername(username);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void syncUsernameNormalized() {
+        this.usernameNormalized = normalizeUsername(username);
+    }
+
+    public static String normalizeUsername(String username) {
+        return username == null ? null : username.toLowerCase(Locale.ROOT);
+    }
+
+//    빌드에서 enhancement 의 association management 를 끄고 있으므로 양방향 메모리 상태는 여기서 맞춘다.
+//    team.members 는 로딩하지 않는다. 이전 팀이 아직 프록시면 이전 팀의 컬렉션도 메모리에 없으므로 건드리지 않는다.
     public void changeTeam(Team team) {
+        if (this.team != null && Hibernate.isInitialized(this.team)) {
+            this.team.removeMember(this);
+        }
         this.team = team;
-        team.getMembers().add(this);
+        team.addMember(this);
     }
 }
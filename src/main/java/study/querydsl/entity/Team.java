@@ -1,6 +1,9 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -20,10 +23,25 @@ public class Team {
     private Long id;
     private String name;
 
+//    mappedBy 쪽 List(bag)는 초기화 전에 add 하면 로딩 없이 operation queue 에 쌓였다가, 나중에 초기화될 때 반영된다.
+//    EXTRA 는 size(), contains() 도 전체 로딩 대신 count/exists 쿼리로 처리한다. Set 으로 바꾸면 add 할 때 중복 확인 쿼리가 나가므로 List 유지.
     @OneToMany(mappedBy = "team")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     List<Member> members = new ArrayList<>();
 
     public Team(String name){
         this.name = name;
     }
+
+//    연관관계 편의 메서드. 주인은 Member.team 이므로 여기서는 메모리 상태만 맞춘다.
+    public void addMember(Member member) {
+        members.add(member);
+    }
+
+//    bag 의 remove 는 컬렉션 전체를 로딩하므로 이미 로딩된 경우에만 지운다.
+    public void removeMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+    }
 }
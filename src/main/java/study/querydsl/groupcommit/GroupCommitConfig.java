@@ -0,0 +1,25 @@
+package study.querydsl.groupcommit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+//member-group-commit.enabled=true 일 때만 등록.
+@Configuration
+@EnableConfigurationProperties(GroupCommitProperties.class)
+@ConditionalOnProperty(prefix = "member-group-commit", name = "enabled", havingValue = "true")
+public class GroupCommitConfig {
+
+    @Bean(destroyMethod = "close")
+    public GroupCommitMemberWriter groupCommitMemberWriter(GroupCommitProperties properties, EntityManager em,
+                                                           PlatformTransactionManager transactionManager,
+                                                           MeterRegistry meterRegistry) {
+        return new GroupCommitMemberWriter(properties, em, new TransactionTemplate(transactionManager), meterRegistry);
+    }
+}
@@ -0,0 +1,199 @@
+package study.querydsl.groupcommit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 회원 저장 group commit
+ *
+ * save() 는 bounded queue 에 넣고 바로 future 를 돌려준다. writer 스레드 하나가 queue 에서 최대 maxBatchSize 건을
+ * (첫 건 이후 최대 maxWait 동안) 꺼내서 트랜잭션 하나로 persist 하고, commit 이 끝나면 각 future 를 완료한다.
+ * commit(log sync) 횟수가 요청 수가 아니라 batch 수만큼만 생긴다.
+ * insert 는 hibernate.jdbc.batch_size 로 JDBC batch 가 된다. (시퀀스 id 이므로 batch 가능)
+ *
+ * - batch 가 실패하면 각 건을 개별 트랜잭션으로 다시 저장해서, 문제 있는 건만 실패시킨다.
+ * - 호출하는 쪽 트랜잭션과는 별개로 commit 된다. 호출 쪽이 롤백해도 저장은 취소되지 않는다.
+ * - queue 가 가득 차면 기다리지 않고 RejectedExecutionException 으로 실패한다.
+ * - MemberJpaRepository.save 를 트랜잭션 밖에서 호출하면 이 writer 로 저장하고 saveTimeout 까지만 기다린다. 트랜잭션 안의 save 는 그대로 persist 한다.
+ *   spring data 의 MemberRepository.save 는 스스로 트랜잭션을 열고 merge 결과(managed entity)를 돌려주므로 이 writer 로 보내지 않는다.
+ * - close() 와 save() 는 lock 으로 순서를 맞춘다. close() 가 running 을 내린 뒤에는 queue 에 들어갈 수 없으므로 close() 의 drain 이 마지막이다.
+ * - writer 스레드가 Error 로 죽으면 모아둔 건과 queue 에 남은 건을 모두 실패시키고, 이후 save() 는 거절한다.
+ */
+@Slf4j
+public class GroupCommitMemberWriter {
+
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final Thread writer;
+    private final Duration saveTimeout;
+//    save() 끼리는 같이 들어가고(read), running 을 바꿀 때만 단독으로(write) 잡는다
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+
+    private final DistributionSummary batchSize;
+    private final Timer queueWait;
+
+    private volatile boolean running = true;
+
+    public GroupCommitMemberWriter(GroupCommitProperties properties, EntityManager em,
+                                   TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.maxBatchSize = properties.getMaxBatchSize();
+        this.maxWaitNanos = properties.getMaxWait().toNanos();
+        this.em = em;
+        this.transactionTemplate = transactionTemplate;
+        this.saveTimeout = properties.getSaveTimeout();
+        this.batchSize = DistributionSummary.builder("member.group_commit.batch_size")
+                .description("members committed per transaction")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("member.group_commit.queue_wait")
+                .description("time from save() to the start of its batch")
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::run, "member-group-commit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public CompletableFuture<Member> save(Member member) {
+        Pending pending = new Pending(member);
+        lifecycle.readLock().lock();
+        try {
+            if (!running) {
+                pending.future.completeExceptionally(new RejectedExecutionException("member group commit writer is stopped"));
+            } else if (!queue.offer(pending)) {
+                pending.future.completeExceptionally(new RejectedExecutionException("member group commit queue is full"));
+            }
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+        return pending.future;
+    }
+
+//    save() 의 future 를 기다리는 쪽이 쓰는 최대 대기 시간. 시간이 지나도 이미 queue 에 들어간 건은 저장될 수 있다.
+    public Duration getSaveTimeout() {
+        return saveTimeout;
+    }
+
+//    종료 시 queue 에 남은 건까지 저장한다.
+    public void close() {
+        stop();
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            commit(rest);
+        }
+    }
+
+    private void stop() {
+        lifecycle.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                    long deadline = System.nanoTime() + maxWaitNanos;
+                    while (batch.size() < maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+//                    close() 로 깨어난 경우. 모아둔 건은 아래에서 저장하고, queue 에 남은 건은 close() 가 처리한다.
+                    log.debug("member group commit writer interrupted");
+                }
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                    batch = new ArrayList<>(maxBatchSize);
+                }
+            }
+        } catch (Throwable e) {
+//            commit 은 RuntimeException 을 건별로 처리하므로 여기로 오는 것은 Error. 기다리는 호출이 영원히 남지 않게 모두 실패시킨다.
+            log.error("member group commit writer died", e);
+            stop();
+            List<Pending> rest = new ArrayList<>(batch);
+            queue.drainTo(rest);
+            for (Pending pending : rest) {
+                pending.future.completeExceptionally(e);
+            }
+            throw e;
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        long now = System.nanoTime();
+        for (Pending pending : batch) {
+            queueWait.record(now - pending.enqueuedNanos, TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(batch.size());
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Pending pending : batch) {
+                    em.persist(pending.member);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("member group commit of {} failed, retrying one by one", batch.size(), e);
+            for (Pending pending : batch) {
+//                롤백된 batch 에서 persist 시점에 받은 id 가 남아 있으면 detached 로 취급되므로 지운다.
+                pending.member.setId(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> em.persist(pending.member));
+                    pending.future.complete(pending.member);
+                } catch (RuntimeException single) {
+                    pending.future.completeExceptionally(single);
+                }
+            }
+            return;
+        }
+        for (Pending pending : batch) {
+            pending.future.complete(pending.member);
+        }
+    }
+
+    private static final class Pending {
+        private final Member member;
+        private final long enqueuedNanos = System.nanoTime();
+        private final CompletableFuture<Member> future = new CompletableFuture<>();
+
+        private Pending(Member member) {
+            this.member = member;
+        }
+    }
+}
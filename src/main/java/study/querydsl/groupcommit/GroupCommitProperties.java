@@ -0,0 +1,19 @@
+package study.querydsl.groupcommit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//동시에 들어온 회원 저장을 한 트랜잭션으로 묶는다. 첫 요청 이후 max-wait 동안, 최대 max-batch-size 건까지 모은다.
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member-group-commit")
+public class GroupCommitProperties {
+    private boolean enabled = false;
+    private int queueCapacity = 10_000;
+    private int maxBatchSize = 100;
+    private Duration maxWait = Duration.ofMillis(5);
+    private Duration saveTimeout = Duration.ofSeconds(5); // MemberJpaRepository.save 가 commit 을 기다리는 최대 시간
+}
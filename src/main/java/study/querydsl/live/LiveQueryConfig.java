@@ -0,0 +1,19 @@
+package study.querydsl.live;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+//member-live-query.enabled=true 일 때만 등록. 변경 이벤트는 MemberChangeConfig 가 연결한다.
+@Configuration
+@EnableConfigurationProperties(LiveQueryProperties.class)
+@ConditionalOnProperty(prefix = "member-live-query", name = "enabled", havingValue = "true")
+public class LiveQueryConfig {
+
+    @Bean(destroyMethod = "close")
+    public MemberSubscriptionHub memberSubscriptionHub(LiveQueryProperties properties, JdbcTemplate jdbcTemplate) {
+        return new MemberSubscriptionHub(properties, jdbcTemplate);
+    }
+}
@@ -0,0 +1,22 @@
+package study.querydsl.live;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//검색 조건 구독(SSE). timeout 이 지나면 연결을 닫고 클라이언트가 다시 구독한다.
+//구독자별로 subscriber-buffer 건까지 쌓아두고, 넘치거나 send 하나가 send-timeout 을 넘기면 그 구독을 끊는다.
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member-live-query")
+public class LiveQueryProperties {
+    private boolean enabled = false;
+    private Duration timeout = Duration.ofMinutes(30);
+    private int maxSubscribers = 10_000;
+    private int subscriberBuffer = 256;
+    private Duration sendTimeout = Duration.ofSeconds(5);
+    private int senderThreads = 4;
+    private int dispatchQueueCapacity = 10_000;
+}
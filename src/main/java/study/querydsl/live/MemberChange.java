@@ -0,0 +1,23 @@
+package study.querydsl.live;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+//구독자에게 보내는 변경 한 건. DELETE 는 조건에서 빠지기 직전 값이다.
+@Getter
+@ToString
+@AllArgsConstructor
+public class MemberChange {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    private Type type;
+    private Long memberId;
+    private String username;
+    private int age;
+    private Long teamId;
+    private String teamName;
+}
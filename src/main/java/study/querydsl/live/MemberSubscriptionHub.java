@@ -0,0 +1,406 @@
+package study.querydsl.live;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import study.querydsl.change.MemberChangeHandler;
+import study.querydsl.change.MemberSnapshot;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberConditions;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 검색 조건 구독
+ *
+ * 구독자는 조건을 등록하고, commit 된 Member/Team 변경 중 조건에 맞는 것만 SSE 로 받는다.
+ * 변경은 MemberChangeListener 가 commit 후에 넘겨주고, 조건 비교는 DB 조회 없이 메모리에서 한다.
+ * (MemberConditions.matches - usernameEq/teamNameEq/ageGoe/ageLoe 와 같은 규칙)
+ *
+ * - 조건에 username 이 있으면 username 으로, 없고 teamName 이 있으면 teamName 으로 구독자를 색인해서
+ *   변경 한 건마다 관련 있는 구독자만 비교한다. 나이 조건만 있는 구독자는 모든 변경과 비교한다.
+ * - 변경 전/후가 조건에 맞는지로 INSERT(들어옴) / UPDATE / DELETE(빠짐) 를 정한다.
+ * - 조건 비교와 팀 이름 조회는 dispatcher 스레드 하나가 commit 순서대로 하고, commit 하는 스레드는 기다리지 않는다.
+ *   dispatcher 큐(dispatch-queue-capacity)가 가득 차면 변경을 버리는 대신 모든 구독을 끊는다. 클라이언트는 다시 구독하고 조회해서 맞춘다.
+ * - 전송은 sender 스레드(sender-threads)가 구독자별 버퍼(subscriber-buffer)에서 꺼내서 한다. 구독자 하나가 느려도 다른 구독자는 밀리지 않는다.
+ *   버퍼가 가득 차거나 send 하나가 send-timeout 을 넘기면 그 구독만 끊는다. (변경을 빠뜨린 채 이어가지 않는다)
+ *   이미 막힌 write 는 서블릿 컨테이너의 write timeout 까지 sender 스레드를 잡고 있을 수 있다.
+ * - JDBC/벌크 update 처럼 영속성 컨텍스트를 거치지 않는 변경(write-behind 포함)은 전달되지 않는다.
+ */
+@Slf4j
+public class MemberSubscriptionHub implements MemberChangeHandler, AutoCloseable {
+
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final int subscriberBuffer;
+    private final long sendTimeoutNanos;
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService dispatcher;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService watchdog;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<Subscription>> byUsername = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscription>> byTeamName = new ConcurrentHashMap<>();
+    private final Set<Subscription> unindexed = ConcurrentHashMap.newKeySet();
+
+//    dispatcher 스레드에서만 사용
+    private final Map<Long, String> teamNames = new HashMap<>();
+//    dispatcher 큐가 넘쳐서 팀 변경을 놓쳤을 수 있으면 다음 작업에서 팀 이름 캐시를 비운다
+    private volatile boolean staleTeamNames;
+
+    public MemberSubscriptionHub(LiveQueryProperties properties, JdbcTemplate jdbcTemplate) {
+        this.timeoutMillis = properties.getTimeout().toMillis();
+        this.maxSubscribers = properties.getMaxSubscribers();
+        this.subscriberBuffer = properties.getSubscriberBuffer();
+        this.sendTimeoutNanos = properties.getSendTimeout().toNanos();
+        this.jdbcTemplate = jdbcTemplate;
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getDispatchQueueCapacity()), daemon("member-live-query"));
+//        구독자마다 대기 중인 전송 작업은 최대 하나이므로 큐는 구독자 수(max-subscribers)를 넘지 않는다.
+        this.senders = Executors.newFixedThreadPool(properties.getSenderThreads(), daemon("member-live-query-send"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemon("member-live-query-watchdog"));
+        long checkMillis = Math.max(10, properties.getSendTimeout().toMillis() / 2);
+        watchdog.scheduleWithFixedDelay(this::disconnectStalled, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public SseEmitter subscribe(MemberSearchCondition condition) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription subscription = subscribe(condition, new Sink() {
+            @Override
+            public void send(MemberChange change) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .name(change.getType().name().toLowerCase(Locale.ROOT))
+                        .data(change, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> {
+            unsubscribe(subscription);
+            emitter.complete();
+        });
+        emitter.onError(e -> unsubscribe(subscription));
+        return emitter;
+    }
+
+    Subscription subscribe(MemberSearchCondition condition, Sink sink) {
+        if (subscriptions.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "too many subscribers");
+        }
+        Subscription subscription = new Subscription(condition, sink, subscriberBuffer);
+        subscriptions.add(subscription);
+        if (hasText(condition.getUsername())) {
+            putIndexed(byUsername, condition.getUsername(), subscription);
+        } else if (hasText(condition.getTeamName())) {
+            putIndexed(byTeamName, condition.getTeamName(), subscription);
+        } else {
+            unindexed.add(subscription);
+        }
+        return subscription;
+    }
+
+    void unsubscribe(Subscription subscription) {
+        subscription.closed = true;
+        subscription.buffer.clear();
+        if (!subscriptions.remove(subscription)) {
+            return;
+        }
+        MemberSearchCondition condition = subscription.condition;
+        if (hasText(condition.getUsername())) {
+            removeIndexed(byUsername, condition.getUsername(), subscription);
+        } else if (hasText(condition.getTeamName())) {
+            removeIndexed(byTeamName, condition.getTeamName(), subscription);
+        } else {
+            unindexed.remove(subscription);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+//    아래 메서드는 commit 한 스레드에서 호출된다. 구독자가 없으면 회원 변경은 큐에 넣지도 않는다.
+    @Override
+    public void memberInserted(MemberSnapshot after) {
+        if (!subscriptions.isEmpty()) {
+            dispatch(() -> publish(null, resolve(after)));
+        }
+    }
+
+    @Override
+    public void memberUpdated(MemberSnapshot before, MemberSnapshot after) {
+        if (!subscriptions.isEmpty()) {
+            dispatch(() -> publish(resolve(before), resolve(after)));
+        }
+    }
+
+    @Override
+    public void memberDeleted(MemberSnapshot before) {
+        if (!subscriptions.isEmpty()) {
+            dispatch(() -> publish(resolve(before), null));
+        }
+    }
+
+//    팀 이름 캐시가 맞아야 하므로 팀 변경은 구독자가 없어도 반영한다.
+    @Override
+    public void teamSaved(Long teamId, String previous, String name) {
+        dispatch(() -> {
+            teamNames.put(teamId, name);
+            if (previous != null && !previous.equals(name) && !subscriptions.isEmpty()) {
+                republishTeamMembers(teamId, previous, name);
+            }
+        });
+    }
+
+    @Override
+    public void teamDeleted(Long teamId) {
+        dispatch(() -> teamNames.remove(teamId));
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(() -> {
+                if (staleTeamNames) {
+                    staleTeamNames = false;
+                    teamNames.clear();
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.warn("live query dispatch failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (dispatcher.isShutdown()) {
+                log.debug("live query dispatcher is closed", e);
+                return;
+            }
+//            변경을 버리면 구독자가 모르는 채로 어긋나므로 모두 끊어서 다시 구독하게 한다.
+            log.warn("live query dispatch queue is full, disconnecting {} subscribers", subscriptions.size());
+            staleTeamNames = true;
+            for (Subscription subscription : subscriptions) {
+                disconnect(subscription);
+            }
+        }
+    }
+
+//    팀 이름이 바뀌면 그 팀 회원 모두가 teamName 조건에 들어오거나 빠질 수 있다. 회원 목록은 commit 된 값을 읽는다.
+    private void republishTeamMembers(Long teamId, String previous, String name) {
+        List<MemberSnapshot> members = jdbcTemplate.query(
+                "select member_id, username, age from member where team_id = ?",
+                (rs, rowNum) -> new MemberSnapshot(rs.getLong(1), rs.getString(2), rs.getInt(3), teamId, null),
+                teamId);
+        for (MemberSnapshot member : members) {
+            publish(member.withTeamName(previous), member.withTeamName(name));
+        }
+    }
+
+    private MemberSnapshot resolve(MemberSnapshot snapshot) {
+        if (snapshot == null || snapshot.getTeamId() == null || snapshot.getTeamName() != null) {
+            return snapshot;
+        }
+        String name = teamNames.computeIfAbsent(snapshot.getTeamId(), teamId -> jdbcTemplate.query(
+                "select name from team where id = ?",
+                rs -> rs.next() ? rs.getString(1) : null,
+                teamId));
+        return snapshot.withTeamName(name);
+    }
+
+    private void publish(MemberSnapshot before, MemberSnapshot after) {
+        for (Subscription subscription : candidates(before, after)) {
+            MemberSearchCondition condition = subscription.condition;
+            boolean matchedBefore = before != null && MemberConditions.matches(condition,
+                    before.getUsername(), before.getAge(), before.getTeamName());
+            boolean matchedAfter = after != null && MemberConditions.matches(condition,
+                    after.getUsername(), after.getAge(), after.getTeamName());
+
+            MemberChange change;
+            if (matchedAfter) {
+                change = toChange(after, matchedBefore ? MemberChange.Type.UPDATE : MemberChange.Type.INSERT);
+            } else if (matchedBefore) {
+                change = toChange(before, MemberChange.Type.DELETE);
+            } else {
+                continue;
+            }
+            enqueue(subscription, change);
+        }
+    }
+
+//    구독자 버퍼에 넣고, 보내고 있는 sender 가 없으면 하나 맡긴다. 구독자별로 sender 는 하나씩만 돌아서 순서가 유지된다.
+    private void enqueue(Subscription subscription, MemberChange change) {
+        if (!subscription.buffer.offer(change)) {
+            log.debug("live query subscriber is too slow, disconnecting");
+            disconnect(subscription);
+            return;
+        }
+        scheduleDrain(subscription);
+    }
+
+    private void scheduleDrain(Subscription subscription) {
+        if (subscription.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscription));
+            } catch (RejectedExecutionException e) {
+                subscription.draining.set(false);
+                log.debug("live query sender is closed", e);
+            }
+        }
+    }
+
+    private void drain(Subscription subscription) {
+        try {
+            MemberChange change;
+            while (!subscription.closed && (change = subscription.buffer.poll()) != null) {
+                subscription.sendStartedNanos = System.nanoTime();
+                try {
+                    subscription.sink.send(change);
+                } catch (IOException | RuntimeException e) {
+                    log.debug("live query subscriber disconnected", e);
+                    disconnect(subscription);
+                    return;
+                } finally {
+                    subscription.sendStartedNanos = 0;
+                }
+            }
+        } finally {
+            subscription.draining.set(false);
+        }
+//        버퍼를 다 비운 뒤 draining 을 내리기 전에 들어온 변경
+        if (!subscription.closed && !subscription.buffer.isEmpty()) {
+            scheduleDrain(subscription);
+        }
+    }
+
+    private void disconnectStalled() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            long started = subscription.sendStartedNanos;
+            if (started != 0 && now - started > sendTimeoutNanos) {
+                log.debug("live query send timed out, disconnecting");
+                disconnect(subscription);
+            }
+        }
+    }
+
+    private void disconnect(Subscription subscription) {
+        unsubscribe(subscription);
+        try {
+            subscription.sink.close();
+        } catch (RuntimeException e) {
+            log.debug("live query subscriber close failed", e);
+        }
+    }
+
+    private Set<Subscription> candidates(MemberSnapshot before, MemberSnapshot after) {
+        Set<Subscription> candidates = new LinkedHashSet<>(unindexed);
+        for (MemberSnapshot snapshot : new MemberSnapshot[]{before, after}) {
+            if (snapshot != null) {
+                addIndexed(candidates, byUsername, snapshot.getUsername());
+                addIndexed(candidates, byTeamName, snapshot.getTeamName());
+            }
+        }
+        return candidates;
+    }
+
+    private static void addIndexed(Set<Subscription> candidates, Map<String, Set<Subscription>> index, String key) {
+        if (key != null) {
+            Set<Subscription> indexed = index.get(key);
+            if (indexed != null) {
+                candidates.addAll(indexed);
+            }
+        }
+    }
+
+    private static void putIndexed(Map<String, Set<Subscription>> index, String key, Subscription subscription) {
+        index.compute(key, (k, indexed) -> {
+            Set<Subscription> subscribers = indexed != null ? indexed : ConcurrentHashMap.newKeySet();
+            subscribers.add(subscription);
+            return subscribers;
+        });
+    }
+
+//    같은 키의 구독자가 모두 빠지면 키도 지운다.
+    private static void removeIndexed(Map<String, Set<Subscription>> index, String key, Subscription subscription) {
+        index.computeIfPresent(key, (k, indexed) -> {
+            indexed.remove(subscription);
+            return indexed.isEmpty() ? null : indexed;
+        });
+    }
+
+    private static MemberChange toChange(MemberSnapshot snapshot, MemberChange.Type type) {
+        return new MemberChange(type, snapshot.getMemberId(), snapshot.getUsername(), snapshot.getAge(),
+                snapshot.getTeamId(), snapshot.getTeamName());
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        senders.shutdown();
+        senders.awaitTermination(5, TimeUnit.SECONDS);
+        watchdog.shutdownNow();
+        for (Subscription subscription : subscriptions) {
+            unsubscribe(subscription);
+        }
+    }
+
+    interface Sink {
+        void send(MemberChange change) throws IOException;
+
+//        느리거나 막힌 구독을 끊을 때 호출된다
+        default void close() {
+        }
+    }
+
+    static final class Subscription {
+        private final MemberSearchCondition condition;
+        private final Sink sink;
+        private final BlockingQueue<MemberChange> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile long sendStartedNanos;
+        private volatile boolean closed;
+
+        private Subscription(MemberSearchCondition condition, Sink sink, int bufferSize) {
+            this.condition = condition;
+            this.sink = sink;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package study.querydsl.readmodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 회원 컬럼 저장소 (동기화는 MemberReadModel 이 한다)
+ *
+ * row 마다 primitive 배열 한 칸씩 쓴다. username 은 사전 인코딩해서 int 코드로 저장한다.
+ * - 팀별 bitmap : 팀 id -> 그 팀 회원 row
+ * - 나이 인덱스 : 나이 오름차순 TreeMap, 나이 -> row bitmap. 범위 조건은 구간의 bitmap 을 OR 한다.
+ * 삭제는 live bitmap 에서만 빼고, 빈 row 가 절반을 넘으면 다시 채운다(compact).
+ */
+class MemberColumns {
+
+    static final long NO_TEAM = 0L;
+    static final int NO_CODE = -1;
+
+    private int size;
+    private long[] ids;
+    private int[] ages;
+    private long[] teamIds;
+    private int[] usernameCodes;
+    private int[] normalizedCodes;
+
+    private final BitSet live = new BitSet();
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    private final Map<Long, BitSet> byTeam = new HashMap<>();
+    private final TreeMap<Integer, BitSet> byAge = new TreeMap<>();
+
+    private final Dictionary usernames = new Dictionary();
+    private final Dictionary normalizedUsernames = new Dictionary();
+
+    MemberColumns(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        ids = new long[capacity];
+        ages = new int[capacity];
+        teamIds = new long[capacity];
+        usernameCodes = new int[capacity];
+        normalizedCodes = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int liveCount() {
+        return rowById.size();
+    }
+
+    void upsert(long id, String username, String normalized, int age, Long teamId) {
+        Integer existing = rowById.get(id);
+        int row;
+        if (existing != null) {
+            row = existing;
+            unindex(row);
+        } else {
+            ensureCapacity(size + 1);
+            row = size++;
+            rowById.put(id, row);
+            live.set(row);
+        }
+        ids[row] = id;
+        ages[row] = age;
+        teamIds[row] = teamId == null ? NO_TEAM : teamId;
+        usernameCodes[row] = usernames.encode(username);
+        normalizedCodes[row] = normalizedUsernames.encode(normalized);
+        index(row);
+    }
+
+    void delete(long id) {
+        Integer row = rowById.remove(id);
+        if (row == null) {
+            return;
+        }
+        unindex(row);
+        live.clear(row);
+        if (size > 1024 && rowById.size() < size / 2) {
+            compact();
+        }
+    }
+
+    long id(int row) {
+        return ids[row];
+    }
+
+    int age(int row) {
+        return ages[row];
+    }
+
+    long teamId(int row) {
+        return teamIds[row];
+    }
+
+    int usernameCode(int row) {
+        return usernameCodes[row];
+    }
+
+    int normalizedCode(int row) {
+        return normalizedCodes[row];
+    }
+
+    String username(int row) {
+        return usernames.decode(usernameCodes[row]);
+    }
+
+    int usernameCodeOf(String username) {
+        return usernames.codeOf(username);
+    }
+
+    int normalizedCodeOf(String normalized) {
+        return normalizedUsernames.codeOf(normalized);
+    }
+
+    BitSet live() {
+        return live;
+    }
+
+    BitSet team(long teamId) {
+        return byTeam.get(teamId);
+    }
+
+//    loe/goe 가 null 이면 열린 구간
+    List<BitSet> ageRange(Integer goe, Integer loe) {
+        NavigableMap<Integer, BitSet> range = byAge;
+        if (goe != null && loe != null) {
+            if (goe > loe) {
+                return List.of();
+            }
+            range = byAge.subMap(goe, true, loe, true);
+        } else if (goe != null) {
+            range = byAge.tailMap(goe, true);
+        } else if (loe != null) {
+            range = byAge.headMap(loe, true);
+        }
+        return new ArrayList<>(range.values());
+    }
+
+    private void index(int row) {
+        if (teamIds[row] != NO_TEAM) {
+            byTeam.computeIfAbsent(teamIds[row], key -> new BitSet()).set(row);
+        }
+        byAge.computeIfAbsent(ages[row], key -> new BitSet()).set(row);
+    }
+
+    private void unindex(int row) {
+        clearIndexed(byTeam, teamIds[row], row);
+        clearIndexed(byAge, ages[row], row);
+    }
+
+    private static <K> void clearIndexed(Map<K, BitSet> index, K key, int row) {
+        BitSet rows = index.get(key);
+        if (rows != null) {
+            rows.clear(row);
+            if (rows.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int grown = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, grown);
+            ages = Arrays.copyOf(ages, grown);
+            teamIds = Arrays.copyOf(teamIds, grown);
+            usernameCodes = Arrays.copyOf(usernameCodes, grown);
+            normalizedCodes = Arrays.copyOf(normalizedCodes, grown);
+        }
+    }
+
+//    살아있는 row 를 앞으로 모으고 인덱스를 다시 만든다. 사전은 그대로 둔다.
+    private void compact() {
+        int target = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            ids[target] = ids[row];
+            ages[target] = ages[row];
+            teamIds[target] = teamIds[row];
+            usernameCodes[target] = usernameCodes[row];
+            normalizedCodes[target] = normalizedCodes[row];
+            target++;
+        }
+        size = target;
+        live.clear();
+        live.set(0, size);
+        rowById.clear();
+        byTeam.clear();
+        byAge.clear();
+        for (int row = 0; row < size; row++) {
+            rowById.put(ids[row], row);
+            index(row);
+        }
+    }
+
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NO_CODE;
+            }
+            return codes.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        int codeOf(String value) {
+            Integer code = value == null ? null : codes.get(value);
+            return code == null ? NO_CODE : code;
+        }
+
+        String decode(int code) {
+            return code == NO_CODE ? null : values.get(code);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package study.querydsl.readmodel;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.change.MemberChangeHandler;
+import study.querydsl.change.MemberSnapshot;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 검색용 메모리 read model
+ *
+ * 시작할 때 member/team 테이블을 한번 읽고(load), 이후에는 commit 된 변경(MemberChangeHandler)으로 갱신한다.
+ * 검색은 팀 bitmap AND 나이 구간 bitmap 으로 후보를 만들고 username 코드로 거른다. SQL 은 나가지 않는다.
+ * row 가 많으면 segmentSize 단위로 나눠 segment 마다 같은 bitmap 연산을 병렬로 한다.
+ *
+ * - 조건 규칙은 MemberRepositoryImpl 의 usernameEq/teamNameEq/ageGoe/ageLoe 와 같다. 결과는 row(대략 저장) 순서.
+ * - load 중에는 write lock 을 잡고 있으므로 그 사이 commit 된 변경은 load 가 끝난 뒤 반영된다.
+ * - JDBC/벌크 update(write-behind 포함)는 반영되지 않는다. 그런 작업 뒤에는 load() 로 다시 읽는다.
+ */
+@Slf4j
+public class MemberReadModel implements MemberChangeHandler {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int initialCapacity;
+    private final int segmentSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MemberColumns columns;
+    private final Map<Long, String> teamNames = new HashMap<>();
+    private volatile boolean ready;
+
+    public MemberReadModel(ReadModelProperties properties, JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.initialCapacity = properties.getInitialCapacity();
+//        segment 경계가 bitmap word(64bit) 경계에 오도록 맞춘다
+        this.segmentSize = Math.max(64, properties.getSegmentSize() / 64 * 64);
+        this.columns = new MemberColumns(initialCapacity);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            long start = System.nanoTime();
+            MemberColumns loaded = new MemberColumns(initialCapacity);
+            teamNames.clear();
+            jdbcTemplate.query("select id, name from team",
+                    rs -> {
+                        teamNames.put(rs.getLong(1), rs.getString(2));
+                    });
+            jdbcTemplate.query("select member_id, username, username_normalized, age, team_id from member",
+                    rs -> {
+                        long teamId = rs.getLong(5);
+                        loaded.upsert(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4),
+                                rs.wasNull() ? null : teamId);
+                    });
+            columns = loaded;
+            ready = true;
+            log.info("member read model loaded {} members in {}ms", loaded.liveCount(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return page(condition, 0, Integer.MAX_VALUE).getContent();
+    }
+
+    public List<MemberTeamDto> searchByUsernameIgnoreCase(String username) {
+        lock.readLock().lock();
+        try {
+            Filter filter = new Filter();
+            filter.normalizedCode = columns.normalizedCodeOf(Member.normalizeUsername(username));
+            if (filter.normalizedCode == MemberColumns.NO_CODE) {
+                return List.of();
+            }
+            return materialize(evaluate(filter), 0, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long count(MemberSearchCondition condition) {
+        lock.readLock().lock();
+        try {
+            Filter filter = filterOf(condition);
+            return filter == null ? 0 : cardinality(evaluate(filter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public PageResult page(MemberSearchCondition condition, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Filter filter = filterOf(condition);
+            if (filter == null) {
+                return new PageResult(List.of(), 0);
+            }
+            BitSet[] segments = evaluate(filter);
+            return new PageResult(materialize(segments, offset, limit), cardinality(segments));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+//    조건에 맞는 row 가 하나도 있을 수 없으면 null
+    private Filter filterOf(MemberSearchCondition condition) {
+        Filter filter = new Filter();
+        if (hasText(condition.getUsername())) {
+            filter.usernameCode = columns.usernameCodeOf(condition.getUsername());
+            if (filter.usernameCode == MemberColumns.NO_CODE) {
+                return null;
+            }
+        }
+        if (hasText(condition.getTeamName())) {
+            filter.teamIds = new ArrayList<>();
+            for (Map.Entry<Long, String> team : teamNames.entrySet()) {
+                if (condition.getTeamName().equals(team.getValue())) {
+                    filter.teamIds.add(team.getKey());
+                }
+            }
+            if (filter.teamIds.isEmpty()) {
+                return null;
+            }
+        }
+        if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+            filter.ages = columns.ageRange(condition.getAgeGoe(), condition.getAgeLoe());
+        }
+        return filter;
+    }
+
+    private BitSet[] evaluate(Filter filter) {
+        int segmentCount = Math.max(1, (columns.size() + segmentSize - 1) / segmentSize);
+        IntStream segments = IntStream.range(0, segmentCount);
+        if (segmentCount > 1) {
+            segments = segments.parallel();
+        }
+        return segments.mapToObj(segment -> evaluate(filter, segment * segmentSize,
+                Math.min(columns.size(), (segment + 1) * segmentSize))).toArray(BitSet[]::new);
+    }
+
+//    [from, to) 구간만 계산한다. 결과 bit i 는 row (from + i)
+    private BitSet evaluate(Filter filter, int from, int to) {
+        BitSet result;
+        if (filter.teamIds != null) {
+            result = new BitSet(to - from);
+            for (Long teamId : filter.teamIds) {
+                BitSet team = columns.team(teamId);
+                if (team != null) {
+                    result.or(team.get(from, to));
+                }
+            }
+        } else {
+            result = columns.live().get(from, to);
+        }
+        if (filter.ages != null && !result.isEmpty()) {
+            BitSet ages = new BitSet(to - from);
+            for (BitSet age : filter.ages) {
+                ages.or(age.get(from, to));
+            }
+            result.and(ages);
+        }
+        if (filter.usernameCode != MemberColumns.NO_CODE || filter.normalizedCode != MemberColumns.NO_CODE) {
+            for (int bit = result.nextSetBit(0); bit >= 0; bit = result.nextSetBit(bit + 1)) {
+                int row = from + bit;
+                if ((filter.usernameCode != MemberColumns.NO_CODE && columns.usernameCode(row) != filter.usernameCode)
+                        || (filter.normalizedCode != MemberColumns.NO_CODE && columns.normalizedCode(row) != filter.normalizedCode)) {
+                    result.clear(bit);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long cardinality(BitSet[] segments) {
+        long count = 0;
+        for (BitSet segment : segments) {
+            count += segment.cardinality();
+        }
+        return count;
+    }
+
+    private List<MemberTeamDto> materialize(BitSet[] segments, long offset, int limit) {
+        List<MemberTeamDto> content = new ArrayList<>((int) Math.min(limit, 1024));
+        long skip = offset;
+        for (int segment = 0; segment < segments.length && content.size() < limit; segment++) {
+            BitSet bits = segments[segment];
+            int cardinality = bits.cardinality();
+            if (skip >= cardinality) {
+                skip -= cardinality;
+                continue;
+            }
+            int base = segment * segmentSize;
+            for (int bit = bits.nextSetBit(0); bit >= 0 && content.size() < limit; bit = bits.nextSetBit(bit + 1)) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                int row = base + bit;
+                long teamId = columns.teamId(row);
+                content.add(new MemberTeamDto(columns.id(row), columns.username(row), columns.age(row),
+                        teamId == MemberColumns.NO_TEAM ? null : teamId,
+                        teamId == MemberColumns.NO_TEAM ? null : teamNames.get(teamId)));
+            }
+        }
+        return content;
+    }
+
+    @Override
+    public void memberInserted(MemberSnapshot after) {
+        upsert(after);
+    }
+
+    @Override
+    public void memberUpdated(MemberSnapshot before, MemberSnapshot after) {
+        upsert(after);
+    }
+
+    @Override
+    public void memberDeleted(MemberSnapshot before) {
+        lock.writeLock().lock();
+        try {
+            columns.delete(before.getMemberId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void teamSaved(Long teamId, String previousName, String name) {
+        lock.writeLock().lock();
+        try {
+            teamNames.put(teamId, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void teamDeleted(Long teamId) {
+        lock.writeLock().lock();
+        try {
+            teamNames.remove(teamId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void upsert(MemberSnapshot member) {
+        lock.writeLock().lock();
+        try {
+            columns.upsert(member.getMemberId(), member.getUsername(), Member.normalizeUsername(member.getUsername()),
+                    member.getAge(), member.getTeamId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Filter {
+        private List<Long> teamIds;
+        private List<BitSet> ages;
+        private int usernameCode = MemberColumns.NO_CODE;
+        private int normalizedCode = MemberColumns.NO_CODE;
+    }
+
+//    페이지 내용과 전체 건수
+    public static final class PageResult {
+        private final List<MemberTeamDto> content;
+        private final long total;
+
+        PageResult(List<MemberTeamDto> content, long total) {
+            this.content = content;
+            this.total = total;
+        }
+
+        public List<MemberTeamDto> getContent() {
+            return content;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+}
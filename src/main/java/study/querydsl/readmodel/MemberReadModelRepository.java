@@ -0,0 +1,66 @@
+package study.querydsl.readmodel;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepositoryCustom;
+
+import java.util.List;
+
+/**
+ * MemberRepositoryCustom 의 read model 구현
+ *
+ * 검색과 count 를 MemberReadModel 에서 처리한다. 아직 load 되지 않았거나 정렬이 있는 페이지 요청은
+ * fallback(querydsl-sql 또는 JPA 구현)으로 넘긴다.
+ */
+public class MemberReadModelRepository implements MemberRepositoryCustom {
+
+    private final MemberReadModel readModel;
+    private final MemberRepositoryCustom fallback;
+
+    public MemberReadModelRepository(MemberReadModel readModel, MemberRepositoryCustom fallback) {
+        this.readModel = readModel;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public List<MemberTeamDto> searchByWhereParam(MemberSearchCondition condition) {
+        return readModel.isReady() ? readModel.search(condition) : fallback.searchByWhereParam(condition);
+    }
+
+    @Override
+    public List<MemberTeamDto> searchByUsernameIgnoreCase(String username) {
+        return readModel.isReady() ? readModel.searchByUsernameIgnoreCase(username) : fallback.searchByUsernameIgnoreCase(username);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return supports(pageable) ? page(condition, pageable) : fallback.searchPageSimple(condition, pageable);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return supports(pageable) ? page(condition, pageable) : fallback.searchPageComplex(condition, pageable);
+    }
+
+//    count 도 bitmap cardinality 라서 따로 최적화할 것이 없다
+    @Override
+    public Page<MemberTeamDto> searchPageCountOptimization(MemberSearchCondition condition, Pageable pageable) {
+        return supports(pageable) ? page(condition, pageable) : fallback.searchPageCountOptimization(condition, pageable);
+    }
+
+    public long count(MemberSearchCondition condition) {
+        return readModel.count(condition);
+    }
+
+    private boolean supports(Pageable pageable) {
+        return readModel.isReady() && pageable.getSort().isUnsorted();
+    }
+
+    private Page<MemberTeamDto> page(MemberSearchCondition condition, Pageable pageable) {
+        MemberReadModel.PageResult result = readModel.page(condition, pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(result.getContent(), pageable, result.getTotal());
+    }
+}
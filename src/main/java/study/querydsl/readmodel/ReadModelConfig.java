@@ -0,0 +1,37 @@
+package study.querydsl.readmodel;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.sql.MemberSqlRepository;
+
+//member-read-model.enabled=true 일 때만 등록. 시작할 때 한번 load 하고, 이후 변경은 MemberChangeConfig 가 넘겨준다.
+@Configuration
+@EnableConfigurationProperties(ReadModelProperties.class)
+@ConditionalOnProperty(prefix = "member-read-model", name = "enabled", havingValue = "true")
+public class ReadModelConfig {
+
+    @Bean
+    public MemberReadModel memberReadModel(ReadModelProperties properties, JdbcTemplate jdbcTemplate) {
+        return new MemberReadModel(properties, jdbcTemplate);
+    }
+
+    @Bean
+    public MemberReadModelRepository memberReadModelRepository(MemberReadModel memberReadModel,
+                                                               ObjectProvider<MemberSqlRepository> memberSqlRepository,
+                                                               MemberRepository memberRepository) {
+        MemberRepositoryCustom fallback = memberSqlRepository.getIfAvailable();
+        return new MemberReadModelRepository(memberReadModel, fallback != null ? fallback : memberRepository);
+    }
+
+    @Bean
+    public ApplicationRunner memberReadModelLoader(MemberReadModel memberReadModel) {
+        return args -> memberReadModel.load();
+    }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.readmodel;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+//회원 검색을 메모리 컬럼 저장소에서 처리한다. row 가 segment-size 보다 많으면 segment 별로 나눠 병렬로 계산한다.
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member-read-model")
+public class ReadModelProperties {
+    private boolean enabled = false;
+    private int initialCapacity = 1024;
+    private int segmentSize = 1 << 16;
+}
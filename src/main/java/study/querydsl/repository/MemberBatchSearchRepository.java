@@ -0,0 +1,105 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.FastProjections.fast;
+
+/**
+ * 여러 검색 조건을 쿼리 하나로 처리한다. (대시보드 위젯 여러 개를 한번에 조회)
+ *
+ * where = (모든 조건에 공통인 조건) and ((조건1의 나머지) or (조건2의 나머지) or ...)
+ * 공통 조건은 한번만 들어가고, 가져온 row 를 MemberConditions.matches 로 각 요청에 나눠 담는다.
+ * 요청 수가 늘어도 쿼리/커넥션은 하나이고, 겹치는 row 는 한번만 읽는다.
+ * 조건이 하나도 없는 요청이 섞여 있으면 전체를 읽게 되므로 /v1/members 와 같은 비용이 든다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberBatchSearchRepository {
+
+    private final JPAQueryFactory queryFactory;
+
+    public MemberBatchSearchRepository(JPAQueryFactory queryFactory) {
+        this.queryFactory = queryFactory;
+    }
+
+    public Map<String, List<MemberTeamDto>> searchBatch(Map<String, MemberSearchCondition> conditions) {
+        Map<String, List<MemberTeamDto>> results = new LinkedHashMap<>();
+        if (conditions.isEmpty()) {
+            return results;
+        }
+
+        List<List<BooleanExpression>> predicates = new ArrayList<>();
+        for (MemberSearchCondition condition : conditions.values()) {
+            predicates.add(MemberConditions.predicates(condition));
+        }
+        Set<BooleanExpression> common = new LinkedHashSet<>(predicates.get(0));
+        for (List<BooleanExpression> each : predicates) {
+            common.retainAll(each);
+        }
+
+        BooleanBuilder anyOf = new BooleanBuilder();
+        boolean unrestricted = false;
+        Set<Predicate> distinctRests = new LinkedHashSet<>();
+        for (List<BooleanExpression> each : predicates) {
+            BooleanBuilder rest = new BooleanBuilder();
+            for (BooleanExpression predicate : each) {
+                if (!common.contains(predicate)) {
+                    rest.and(predicate);
+                }
+            }
+            if (!rest.hasValue()) {
+                unrestricted = true;
+            } else if (distinctRests.add(rest.getValue())) {
+                anyOf.or(rest);
+            }
+        }
+
+        BooleanBuilder where = new BooleanBuilder();
+        common.forEach(where::and);
+        if (!unrestricted) {
+            where.and(anyOf);
+        }
+
+        List<MemberTeamDto> rows = queryFactory
+                .select(fast(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                )))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(where)
+                .orderBy(member.id.asc())
+                .fetch();
+
+        for (Map.Entry<String, MemberSearchCondition> entry : conditions.entrySet()) {
+            List<MemberTeamDto> matched = new ArrayList<>();
+            for (MemberTeamDto row : rows) {
+                if (MemberConditions.matches(entry.getValue(), row.getUsername(), row.getAge(), row.getTeamName())) {
+                    matched.add(row);
+                }
+            }
+            results.put(entry.getKey(), matched);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,55 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition 의 조건 해석
+ *
+ * MemberRepositoryImpl 의 usernameEq/teamNameEq/ageGoe/ageLoe 와 같은 규칙으로
+ * Querydsl 조건을 만들거나, 이미 조회한 값이 조건에 맞는지 메모리에서 확인한다.
+ * 빈 문자열/ null 조건은 무시한다.
+ */
+public final class MemberConditions {
+
+    private MemberConditions() {
+    }
+
+//    null 이 아닌 조건만 담는다. 조건이 없으면 빈 목록.
+    public static List<BooleanExpression> predicates(MemberSearchCondition condition) {
+        List<BooleanExpression> predicates = new ArrayList<>(4);
+        if (hasText(condition.getUsername())) {
+            predicates.add(member.username.eq(condition.getUsername()));
+        }
+        if (hasText(condition.getTeamName())) {
+            predicates.add(team.name.eq(condition.getTeamName()));
+        }
+        if (condition.getAgeGoe() != null) {
+            predicates.add(member.age.goe(condition.getAgeGoe()));
+        }
+        if (condition.getAgeLoe() != null) {
+            predicates.add(member.age.loe(condition.getAgeLoe()));
+        }
+        return predicates;
+    }
+
+    public static boolean matches(MemberSearchCondition condition, String username, int age, String teamName) {
+        if (hasText(condition.getUsername()) && !condition.getUsername().equals(username)) {
+            return false;
+        }
+        if (hasText(condition.getTeamName()) && !condition.getTeamName().equals(teamName)) {
+            return false;
+        }
+        if (condition.getAgeGoe() != null && age < condition.getAgeGoe()) {
+            return false;
+        }
+        return condition.getAgeLoe() == null || age <= condition.getAgeLoe();
+    }
+}
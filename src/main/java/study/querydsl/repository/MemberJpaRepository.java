@@ -5,7 +5,10 @@ import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
@@ -13,30 +16,65 @@ import study.querydsl.dto.QMemberDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
+import study.querydsl.groupcommit.GroupCommitMemberWriter;
 
 import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import static org.springframework.util.ObjectUtils.isEmpty;
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.InClauseSupport.paddedChunks;
+import static study.querydsl.repository.support.FastProjections.fast;
 
 @Repository
 //@RequiredArgsConstructor
 public class MemberJpaRepository {
 
-    @PersistenceContext
-    private EntityManager em;
-    private final JPAQueryFactory queryFactory;
+//    in 절 하나에 넣는 최대 id 개수. 2의 거듭제곱이어야 한다.
+    private static final int MAX_IN_SIZE = 512;
 
-    public MemberJpaRepository() {
-        this.queryFactory = new JPAQueryFactory(em);
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+//    member-group-commit.enabled=true 일 때만 있다.
+    private final ObjectProvider<GroupCommitMemberWriter> groupCommitMemberWriter;
+
+//    기본 생성자에서 new JPAQueryFactory(em) 을 하면 em 이 주입되기 전이라 null 이 들어간다. 생성자로 같이 주입받는다.
+    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory,
+                               ObjectProvider<GroupCommitMemberWriter> groupCommitMemberWriter) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.groupCommitMemberWriter = groupCommitMemberWriter;
     }
 
+//    트랜잭션 밖에서 호출하고 group commit 이 켜져 있으면 다른 저장과 묶어서 commit 하고, commit 될 때까지(최대 saveTimeout) 기다린다.
+//    시간이 지나면 QueryTimeoutException. 이미 queue 에 들어간 건은 그 뒤에 저장될 수 있다.
+//    트랜잭션 안에서는 호출한 쪽과 같이 commit/rollback 되어야 하므로 바로 persist 한다.
     public void save(Member member){
+        GroupCommitMemberWriter writer = groupCommitMemberWriter.getIfAvailable();
+        if (writer != null && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            Duration timeout = writer.getSaveTimeout();
+            try {
+                writer.save(member).orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    throw new QueryTimeoutException("member group commit did not finish within " + timeout.toMillis() + "ms", e.getCause());
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            return;
+        }
         em.persist(member);
     }
 
@@ -45,6 +83,21 @@ public class MemberJpaRepository {
         return Optional.ofNullable(findMember);
     }
 
+//    id 목록을 in 절로 한번에 조회. 없는 id 는 빠지고, 결과는 입력한 id 순서를 따른다.
+    public List<Member> findAllById(Collection<Long> ids){
+        Map<Long, Member> found = new HashMap<>();
+        for (List<Long> chunk : paddedChunks(ids, MAX_IN_SIZE)) {
+            for (Member findMember : queryFactory.selectFrom(member).where(member.id.in(chunk)).fetch()) {
+                found.put(findMember.getId(), findMember);
+            }
+        }
+        return ids.stream()
+                .distinct()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     public List<Member> findAll(){
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
@@ -84,13 +137,13 @@ public class MemberJpaRepository {
         }
 
         return queryFactory
-                .select(new QMemberTeamDto(
+                .select(fast(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        member.id.as("teamId"),
+                        team.id.as("teamId"),
                         team.name.as("teamName")
-                ))
+                )))
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(builder)
@@ -99,13 +152,13 @@ public class MemberJpaRepository {
 
     public List<MemberTeamDto> searchByWhereParam(MemberSearchCondition condition) {
         return queryFactory
-                .select(new QMemberTeamDto(
+                .select(fast(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        member.id.as("teamId"),
+                        team.id.as("teamId"),
                         team.name.as("teamName")
-                ))
+                )))
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
@@ -0,0 +1,71 @@
+package study.querydsl.repository;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+import study.querydsl.entity.Member;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 요청 단위 DataLoader
+ *
+ * load(id) 는 id 만 모아두고, 처음으로 값이 필요해질 때(get) 또는 dispatch() 를 부를 때
+ * 모아둔 id 를 findAllById 한번으로 조회한다. 같은 요청 안에서 조회한 id 는 다시 조회하지 않는다.
+ *
+ * for (Long id : ids) { refs.add(memberLoader.load(id)); }  // 쿼리 없음
+ * refs.get(0).get();                                      // 모아둔 id 전부를 쿼리 한번으로 조회
+ *
+ * 요청 스레드 하나에서만 쓰는 것을 전제로 하므로 동기화하지 않는다.
+ */
+@Component
+@RequestScope
+public class MemberLoader {
+
+    private final MemberJpaRepository memberJpaRepository;
+
+    private final Set<Long> pending = new LinkedHashSet<>();
+    private final Map<Long, Optional<Member>> loaded = new HashMap<>();
+
+    public MemberLoader(MemberJpaRepository memberJpaRepository) {
+        this.memberJpaRepository = memberJpaRepository;
+    }
+
+    public Supplier<Optional<Member>> load(Long id) {
+        if (!loaded.containsKey(id)) {
+            pending.add(id);
+        }
+        return () -> {
+            if (!loaded.containsKey(id)) {
+                pending.add(id);
+                dispatch();
+            }
+            return loaded.get(id);
+        };
+    }
+
+    public Optional<Member> find(Long id) {
+        return load(id).get();
+    }
+
+    public void dispatch() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(pending);
+        pending.clear();
+
+        for (Long id : ids) {
+            loaded.put(id, Optional.empty());
+        }
+        for (Member member : memberJpaRepository.findAllById(ids)) {
+            loaded.put(member.getId(), Optional.of(member));
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+//MemberRepositoryCustom 의 페이징 방식 외에 추가 페이징 방식. AdaptiveMemberPaging 이 상황에 따라 골라 쓴다.
+public interface MemberPagingRepository {
+    Page<MemberTeamDto> searchPageCappedCount(MemberSearchCondition condition, Pageable pageable, int countCap);
+    Page<MemberTeamDto> searchPageIdsFirst(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDto> searchPageWindowCount(MemberSearchCondition condition, Pageable pageable);
+}
@@ -0,0 +1,111 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.support.WindowCountPaging;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.CountQuerySupport.countQueryOf;
+import static study.querydsl.repository.support.FastProjections.fast;
+
+//MemberPagingRepository 구현. MemberRepositoryImpl 과 마찬가지로 이름이 인터페이스명 + Impl 이어야 한다.
+//어떤 방식이든 같은 페이지가 나오도록 pageable 의 sort 에 id 를 tiebreaker 로 붙여 정렬한다. (MEMBER_SORT_POLICY)
+public class MemberPagingRepositoryImpl implements MemberPagingRepository {
+
+    private final JPAQueryFactory queryFactory;
+
+    public MemberPagingRepositoryImpl(JPAQueryFactory jpaQueryFactory) {
+        this.queryFactory = jpaQueryFactory;
+    }
+
+//    count 를 countCap 건까지만 센다. 결과가 아주 많을 때 정확한 count 대신 "countCap 건 이상" 만 알려준다.
+    @Override
+    public Page<MemberTeamDto> searchPageCappedCount(MemberSearchCondition condition, Pageable pageable, int countCap) {
+        JPAQuery<MemberTeamDto> query = contentQuery(condition);
+        JPAQuery<?> countQuery = countQueryOf(queryFactory, query);
+
+        List<MemberTeamDto> content = query
+                .orderBy(orderOf(pageable))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> Math.max(
+                pageable.getOffset() + content.size(),
+                countQuery.select(member.id).limit(countCap).fetch().size()));
+    }
+
+//    페이지의 id 만 먼저 찾고(join 없이 인덱스만으로 가능한 경우가 많다), 그 id 로 DTO 를 조회한다. 깊은 페이지에서 유리하다.
+    @Override
+    public Page<MemberTeamDto> searchPageIdsFirst(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<MemberTeamDto> query = contentQuery(condition);
+        JPAQuery<?> countQuery = countQueryOf(queryFactory, query);
+
+        List<Long> ids = countQueryOf(queryFactory, query)
+                .select(member.id)
+                .orderBy(orderOf(pageable))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+        if (ids.isEmpty()) {
+            return PageableExecutionUtils.getPage(List.of(), pageable, countQuery::fetchCount);
+        }
+
+        Map<Long, Integer> position = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            position.put(ids.get(i), i);
+        }
+        List<MemberTeamDto> content = contentQuery(new MemberSearchCondition())
+                .where(member.id.in(ids))
+                .fetch()
+                .stream()
+                .sorted(Comparator.comparing(dto -> position.get(dto.getMemberId())))
+                .collect(Collectors.toList());
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+    }
+
+//    content 와 전체 건수를 count(*) over() 로 쿼리 하나에 가져온다.
+    @Override
+    public Page<MemberTeamDto> searchPageWindowCount(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<MemberTeamDto> query = contentQuery(condition);
+        JPAQuery<?> countQuery = countQueryOf(queryFactory, query);
+        return WindowCountPaging.fetchPage(query
+                        .orderBy(orderOf(pageable))
+                        .offset(pageable.getOffset())
+                        .limit(pageable.getPageSize()),
+                pageable, countQuery::fetchCount);
+    }
+
+    private JPAQuery<MemberTeamDto> contentQuery(MemberSearchCondition condition) {
+        return queryFactory
+                .select(fast(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                )))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberConditions.predicates(condition).toArray(new BooleanExpression[0]));
+    }
+
+    private static OrderSpecifier<?>[] orderOf(Pageable pageable) {
+        return MemberTestRepository.MEMBER_SORT_POLICY.toOrderSpecifiers(pageable.getSort());
+    }
+}
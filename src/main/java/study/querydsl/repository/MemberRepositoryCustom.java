@@ -9,6 +9,7 @@ import java.util.List;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> searchByWhereParam(MemberSearchCondition condition);
+    List<MemberTeamDto> searchByUsernameIgnoreCase(String username);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageCountOptimization(MemberSearchCondition condition, Pageable pageable);
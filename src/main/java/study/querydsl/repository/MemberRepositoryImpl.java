@@ -5,6 +5,7 @@ import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -14,24 +15,32 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.support.ExactCountProvider;
 
 import java.util.List;
+import java.util.OptionalLong;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.CountQuerySupport.countQueryOf;
+import static study.querydsl.repository.support.FastProjections.fast;
 
 //MemberRepository에 적용할 것이기 떄문에 이름을 꼭 MemberRepositoryImpl로 지어야한다. MemberRepositoryCustom은 아무거나 상관없음.
 //Querydsl 기능의 손쉬운 사용을 위해 QuerydslRepositorySupport 를 extends 함.
 //public class MemberRepositoryImpl extends QuerydslRepositorySupport implements MemberRepositoryCustom{
+//페이징 검색은 pageable 의 sort 에 id 를 tiebreaker 로 붙여 정렬한다. (MEMBER_SORT_POLICY)
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
 //    QuerydslRepositorySupport 상속으로 주석처리.
     private final JPAQueryFactory queryFactory;
+//    회원 수 counter(member-counter.enabled) 가 있으면 count 쿼리 대신 쓴다
+    private final ObjectProvider<ExactCountProvider> exactCountProvider;
 
 //    todo. 오류 발생할 경우 EntityManger em 으로 주입.
-    public MemberRepositoryImpl(JPAQueryFactory jpaQueryFactory) {
+    public MemberRepositoryImpl(JPAQueryFactory jpaQueryFactory, ObjectProvider<ExactCountProvider> exactCountProvider) {
         this.queryFactory = jpaQueryFactory;
+        this.exactCountProvider = exactCountProvider;
     }
 
 //    QuerydslRepositorySupport 상속. QuerydslRepositorySupport 는 추상클래스이므로 init.
@@ -54,7 +63,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 //                        member.id.as("memberId"),
 //                        member.username,
 //                        member.age,
-//                        member.id.as("teamId"),
+//                        team.id.as("teamId"),
 //                        team.name.as("teamName")
 //                ))
 //                .fetch();
@@ -62,13 +71,13 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
 //        QuerydslRepositorySupport 상속으로 인해 queryFactory 주석처리.
         return queryFactory
-                .select(new QMemberTeamDto(
+                .select(fast(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        member.id.as("teamId"),
+                        team.id.as("teamId"),
                         team.name.as("teamName")
-                ))
+                )))
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
@@ -80,16 +89,33 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                 .fetch();
     }
 
+//    대소문자 무시 검색. lower(username) 대신 인덱스가 있는 정규화 컬럼으로 비교한다.
+    @Override
+    public List<MemberTeamDto> searchByUsernameIgnoreCase(String username) {
+        return queryFactory
+                .select(fast(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                )))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(usernameEqIgnoreCase(username))
+                .fetch();
+    }
+
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
         QueryResults<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
+                .select(fast(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        member.id.as("teamId"),
+                        team.id.as("teamId"),
                         team.name.as("teamName")
-                ))
+                )))
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
@@ -98,6 +124,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
+                .orderBy(MemberTestRepository.MEMBER_SORT_POLICY.toOrderSpecifiers(pageable.getSort()))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetchResults();
@@ -123,7 +150,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 //                        member.id.as("memberId"),
 //                        member.username,
 //                        member.age,
-//                        member.id.as("teamId"),
+//                        team.id.as("teamId"),
 //                        team.name.as("teamName")
 //                ));
 //
@@ -139,15 +166,14 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-//        content용 쿼리
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(fast(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        member.id.as("teamId"),
+                        team.id.as("teamId"),
                         team.name.as("teamName")
-                ))
+                )))
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
@@ -155,22 +181,22 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
-                )
+                );
+
+//        count 용 쿼리
+//        content 쿼리에서 파생. teamName 조건이 없으면 team left join 은 count 에 영향이 없으므로 제거된다.
+//        조건이 없거나 teamName 만 있으면 count 쿼리 대신 회원 수 counter 를 쓴다.
+        JPAQuery<?> countQuery = countQueryOf(queryFactory, query);
+        ExactCountProvider counter = exactCountProvider.getIfAvailable();
+        OptionalLong exactCount = counter != null ? counter.countOf(countQuery.getMetadata()) : OptionalLong.empty();
+        long total = exactCount.isPresent() ? exactCount.getAsLong() : countQuery.fetchCount();
+
+//        content용 쿼리
+        List<MemberTeamDto> content = query
+                .orderBy(MemberTestRepository.MEMBER_SORT_POLICY.toOrderSpecifiers(pageable.getSort()))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
-
-//        count 용 쿼리
-        long total = queryFactory.select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetchCount();
 //        count 쿼리를 분리하는 이유
 //        content 쿼리는 복잡한데 count query는 join이 필요없다거나 하는 이유로 단순해질 수 있음.
 //        count 쿼리는 이런 경우 분리하여 성능 개선이 가능.
@@ -185,15 +211,14 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 //    2, 페이지 마지막일때. (offset + 컨텐츠 사이즈를 더해서 전체 사이즈를 구함)
     @Override
     public Page<MemberTeamDto> searchPageCountOptimization(MemberSearchCondition condition, Pageable pageable) {
-    //        content용 쿼리
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(fast(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        member.id.as("teamId"),
+                        team.id.as("teamId"),
                         team.name.as("teamName")
-                ))
+                )))
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(
@@ -201,22 +226,18 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
-                )
+                );
+
+    //        count 용 쿼리. content 쿼리에서 파생시켜 불필요한 join 제거
+        JPAQuery<?> countQuery = countQueryOf(queryFactory, query);
+
+    //        content용 쿼리
+        List<MemberTeamDto> content = query
+                .orderBy(MemberTestRepository.MEMBER_SORT_POLICY.toOrderSpecifiers(pageable.getSort()))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
 
-    //        count 용 쿼리
-        JPAQuery<Member> countQuery = queryFactory.select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
-
 //        countQuery는 아직 쿼리 실행 전. countQuery.fetchCount() 해야 쿼리가 날아간다.
 //        PageableExecutionUtils.getPage 는 content 사이즈와 page사이즈를 비교하고, 이때 첫 페이지거나 마지막 페이지면
 //        countQuery.fetchCount() 를 호출하지 않아 count 쿼리 발행하지 않음으로써 쿼리 최적화가 가능하다.
@@ -229,6 +250,10 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
         return hasText(username) ? member.username.eq(username) : null;
     }
 
+    private BooleanExpression usernameEqIgnoreCase(String username) {
+        return hasText(username) ? member.usernameNormalized.eq(Member.normalizeUsername(username)) : null;
+    }
+
     private BooleanExpression teamNameEq(String teamName) {
         return hasText(teamName) ? team.name.eq(teamName) : null;
     }
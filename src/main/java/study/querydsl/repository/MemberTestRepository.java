@@ -11,8 +11,10 @@ import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
+import study.querydsl.repository.support.SortPolicy;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
@@ -21,8 +23,15 @@ import static study.querydsl.entity.QTeam.team;
 @Repository
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
+//    인덱스가 있는 컬럼만 정렬 허용. name 은 username 으로 바꿔서 정렬하고, 항상 member.id 를 tiebreaker 로 붙인다.
+    static final SortPolicy MEMBER_SORT_POLICY = SortPolicy.builder("id", member.id)
+            .indexed("username", member.username)
+            .indexed("age", member.age)
+            .rewrite("name", "username")
+            .build();
+
     public MemberTestRepository() {
-        super(Member.class);
+        super(Member.class, MEMBER_SORT_POLICY);
     }
 
     public List<Member> basicSelect(){
@@ -36,6 +45,36 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                 .fetch();
     }
 
+//    조회 전용. 반환된 Member 를 수정해도 update 되지 않는다.
+    public List<Member> basicSelectReadOnly(){
+        return selectFromReadOnly(member)
+                .fetch();
+    }
+
+    public Page<Member> applyPaginationReadOnly(MemberSearchCondition condition, Pageable pageable){
+        return applyPagination(pageable, query -> readOnly(query
+                        .selectFrom(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe())
+                        ))
+        );
+    }
+
+//    대량 조회. 영속성 컨텍스트 없이 한 건씩 처리한다.
+    public long scanByCondition(MemberSearchCondition condition, Consumer<Member> consumer){
+        JPAQuery<Member> query = selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                );
+        return scanStateless(query, consumer);
+    }
+
     //         기존의 방법(QuerydslSupport 3버전)
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable){
         JPAQuery<Member> query = selectFrom(member)
@@ -66,6 +105,8 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
 
 //    직접 구현한 Querydsl4RepositorySupprt 버전 사용
 //    Complex와 마찬가지로 content, count query 분리
+//    applyPagination(pageable, contentQuery) 도 content 쿼리에서 불필요한 join을 뺀 count 쿼리를 자동으로 만들기 때문에
+//    count 쿼리가 content 쿼리에서 파생될 수 없는 경우에만 직접 작성하면 된다.
     public Page<Member> applyPagination2(MemberSearchCondition condition, Pageable pageable){
         return applyPagination(
                 pageable,
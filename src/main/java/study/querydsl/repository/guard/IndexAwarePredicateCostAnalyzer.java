@@ -0,0 +1,206 @@
+package study.querydsl.repository.guard;
+
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.Predicate;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 인덱스와 테이블 크기로 Predicate 비용을 추정하는 기본 analyzer
+ *
+ * 인덱스는 entity 의 @Id, @ManyToOne(FK), @Table(indexes) 의 선두 컬럼에서 읽는다.
+ * AND 는 가장 싼 인덱스 하나를 타고 나머지는 필터로, OR 는 양쪽 비용의 합으로 본다.
+ * like '%x%', contains, lower(column) 처럼 인덱스를 못 쓰는 조건은 전체 스캔으로 본다.
+ */
+public class IndexAwarePredicateCostAnalyzer implements PredicateCostAnalyzer {
+
+    private static final double EQ_SELECTIVITY = 0.01;
+    private static final double PREFIX_SELECTIVITY = 0.05;
+    private static final double RANGE_SELECTIVITY = 0.25;
+    private static final double UNKNOWN_SELECTIVITY = 0.5;
+
+    private final TableStatistics tableStatistics;
+    private final long rejectScanRows;
+    private final int defaultLimit;
+    private final Map<Class<?>, Set<String>> indexedProperties = new ConcurrentHashMap<>();
+
+    public IndexAwarePredicateCostAnalyzer(TableStatistics tableStatistics, long rejectScanRows, int defaultLimit) {
+        this.tableStatistics = tableStatistics;
+        this.rejectScanRows = rejectScanRows;
+        this.defaultLimit = defaultLimit;
+    }
+
+    @Override
+    public PredicateVerdict analyze(Class<?> domainType, Predicate predicate, boolean bounded) {
+        long rows = tableStatistics.estimatedRows(domainType);
+//        조건이 없으면(빈 BooleanBuilder 포함) 필터 비용은 없고 결과 건수만 문제가 된다
+        Estimate estimate = predicate == null || ExpressionUtils.extract(predicate) == null
+                ? new Estimate(0, 1.0, "no predicate")
+                : estimate(predicate, indexedProperties(domainType), rows);
+
+        if (estimate.scannedRows > rejectScanRows) {
+            return PredicateVerdict.reject(String.format("scans ~%d of %d %s rows: %s",
+                    estimate.scannedRows, rows, domainType.getSimpleName(), estimate.reason));
+        }
+        long matchedRows = (long) Math.ceil(rows * estimate.selectivity);
+//        defaultLimit 이 0 이하이면 결과를 자르지 않는다 (결과가 달라지므로 켜는 쪽에서 선택)
+        if (!bounded && defaultLimit > 0 && matchedRows > defaultLimit) {
+            return PredicateVerdict.limit(defaultLimit, String.format("~%d rows without paging", matchedRows));
+        }
+        return PredicateVerdict.allow();
+    }
+
+    private Estimate estimate(Expression<?> expression, Set<String> indexed, long rows) {
+        Expression<?> expr = ExpressionUtils.extract(expression);
+        if (!(expr instanceof Operation)) {
+            return new Estimate(rows, UNKNOWN_SELECTIVITY, "unsupported expression " + expr);
+        }
+        Operation<?> operation = (Operation<?>) expr;
+        Operator operator = operation.getOperator();
+
+        if (operator == Ops.AND) {
+            Estimate left = estimate(operation.getArg(0), indexed, rows);
+            Estimate right = estimate(operation.getArg(1), indexed, rows);
+            Estimate access = left.scannedRows <= right.scannedRows ? left : right;
+            return new Estimate(access.scannedRows, left.selectivity * right.selectivity, access.reason);
+        }
+        if (operator == Ops.OR) {
+            Estimate left = estimate(operation.getArg(0), indexed, rows);
+            Estimate right = estimate(operation.getArg(1), indexed, rows);
+            Estimate worst = left.scannedRows >= right.scannedRows ? left : right;
+            return new Estimate(Math.min(rows, left.scannedRows + right.scannedRows),
+                    Math.min(1.0, left.selectivity + right.selectivity), worst.reason);
+        }
+
+        Double selectivity = selectivityOf(operation);
+        if (selectivity == null) {
+            return new Estimate(rows, UNKNOWN_SELECTIVITY, operator + " cannot use an index: " + expr);
+        }
+        Expression<?> target = operation.getArg(0);
+        if (!(target instanceof Path)) {
+            return new Estimate(rows, selectivity, "function on column: " + expr);
+        }
+        if (!isIndexed((Path<?>) target, indexed)) {
+            return new Estimate(rows, selectivity, target + " is not indexed");
+        }
+        return new Estimate(Math.max(1, (long) (rows * selectivity)), selectivity, "index on " + target);
+    }
+
+//    null 이면 인덱스를 탈 수 없는 연산
+    private Double selectivityOf(Operation<?> operation) {
+        Operator operator = operation.getOperator();
+        if (operator == Ops.IS_NULL) {
+            return EQ_SELECTIVITY;
+        }
+        if (operation.getArgs().size() < 2 || !isValue(operation.getArg(1))) {
+            return null;
+        }
+        if (operator == Ops.EQ) {
+            return EQ_SELECTIVITY;
+        }
+        if (operator == Ops.IN) {
+            Object values = operation.getArg(1) instanceof Constant ? ((Constant<?>) operation.getArg(1)).getConstant() : null;
+            int size = values instanceof Collection ? ((Collection<?>) values).size() : 1;
+            return Math.min(1.0, size * EQ_SELECTIVITY);
+        }
+        if (operator == Ops.BETWEEN || operator == Ops.GOE || operator == Ops.GT
+                || operator == Ops.LOE || operator == Ops.LT) {
+            return RANGE_SELECTIVITY;
+        }
+        if (operator == Ops.STARTS_WITH) {
+            return PREFIX_SELECTIVITY;
+        }
+        if (operator == Ops.LIKE || operator == Ops.LIKE_ESCAPE) {
+            Object pattern = operation.getArg(1) instanceof Constant ? ((Constant<?>) operation.getArg(1)).getConstant() : null;
+            if (pattern instanceof String && !((String) pattern).isEmpty()
+                    && ((String) pattern).charAt(0) != '%' && ((String) pattern).charAt(0) != '_') {
+                return PREFIX_SELECTIVITY;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isValue(Expression<?> expr) {
+        return expr instanceof Constant || expr instanceof ParamExpression;
+    }
+
+//    member.username 처럼 root 바로 아래 속성이거나, member.team.id 처럼 FK 를 통한 id 비교만 인덱스로 본다
+    private static boolean isIndexed(Path<?> path, Set<String> indexed) {
+        PathMetadata metadata = path.getMetadata();
+        Path<?> parent = metadata.getParent();
+        if (parent == null) {
+            return false;
+        }
+        if (parent.getMetadata().isRoot()) {
+            return indexed.contains(metadata.getName());
+        }
+        Path<?> grandParent = parent.getMetadata().getParent();
+        return grandParent != null && grandParent.getMetadata().isRoot()
+                && "id".equals(metadata.getName())
+                && indexed.contains(parent.getMetadata().getName());
+    }
+
+    private Set<String> indexedProperties(Class<?> domainType) {
+        return indexedProperties.computeIfAbsent(domainType, IndexAwarePredicateCostAnalyzer::readIndexedProperties);
+    }
+
+    private static Set<String> readIndexedProperties(Class<?> domainType) {
+        Set<String> result = new HashSet<>();
+        Map<String, String> columnToProperty = new HashMap<>();
+        for (Field field : domainType.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Id.class) || field.isAnnotationPresent(ManyToOne.class)) {
+                result.add(field.getName());
+            }
+            Column column = field.getAnnotation(Column.class);
+            String columnName = column != null && !column.name().isEmpty() ? column.name() : field.getName();
+            columnToProperty.put(normalize(columnName), field.getName());
+        }
+        Table table = domainType.getAnnotation(Table.class);
+        if (table != null) {
+            for (Index index : table.indexes()) {
+                String leading = index.columnList().split(",")[0].trim().split("\\s+")[0];
+                String property = columnToProperty.get(normalize(leading));
+                if (property != null) {
+                    result.add(property);
+                }
+            }
+        }
+        return Set.copyOf(result);
+    }
+
+//    SpringPhysicalNamingStrategy 가 camelCase 를 snake_case 로 바꾸므로 '_' 와 대소문자를 무시하고 비교
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase();
+    }
+
+    private static final class Estimate {
+        private final long scannedRows;
+        private final double selectivity;
+        private final String reason;
+
+        private Estimate(long scannedRows, double selectivity, String reason) {
+            this.scannedRows = scannedRows;
+            this.selectivity = selectivity;
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package study.querydsl.repository.guard;
+
+import com.querydsl.core.types.Predicate;
+
+/**
+ * QuerydslPredicateExecutor 로 들어온 Predicate 를 실행 전에 판정한다.
+ * 빈으로 등록하면 기본 구현(IndexAwarePredicateCostAnalyzer) 대신 사용된다.
+ *
+ * predicate 가 null 이면 조건 없는 전체 조회, bounded 는 페이징 등으로 결과 건수가 이미 제한된 호출인지 여부
+ */
+public interface PredicateCostAnalyzer {
+    PredicateVerdict analyze(Class<?> domainType, Predicate predicate, boolean bounded);
+}
@@ -0,0 +1,55 @@
+package study.querydsl.repository.guard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import study.querydsl.repository.support.CaseInsensitivePredicates;
+
+import javax.persistence.EntityManagerFactory;
+
+@Configuration
+@EnableConfigurationProperties(PredicateGuardProperties.class)
+//거부(reject-scan-rows)와 대소문자 조건 rewrite 는 켜면 바로 동작하고, findAll() 결과를 자르는 default-limit 만 따로 켠다
+@ConditionalOnProperty(prefix = "predicate-guard", name = "enabled", havingValue = "true")
+public class PredicateGuardConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(PredicateCostAnalyzer.class)
+    public PredicateCostAnalyzer predicateCostAnalyzer(EntityManagerFactory emf, PredicateGuardProperties properties) {
+        TableStatistics tableStatistics = new TableStatistics(emf, properties.getTableRows(), properties.getTableStatisticsTtl());
+//        lower(username) = x 같은 조건은 먼저 정규화 컬럼 비교로 바꾼 뒤 비용을 판정한다
+        return new RewritingPredicateCostAnalyzer(
+                new IndexAwarePredicateCostAnalyzer(tableStatistics, properties.getRejectScanRows(), properties.getDefaultLimit()),
+                CaseInsensitivePredicates::rewrite);
+    }
+
+//    repository 프록시가 만들어지기 전에 QuerydslPredicateExecutor 를 구현한 repository 에만 interceptor 를 붙인다
+    @Bean
+    public static BeanPostProcessor predicateGuardPostProcessor(ObjectProvider<PredicateCostAnalyzer> analyzer,
+                                                                ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> {
+                                if (QuerydslPredicateExecutor.class.isAssignableFrom(repositoryInformation.getRepositoryInterface())) {
+                                    proxyFactory.addAdvice(new PredicateGuardInterceptor(
+                                            repositoryInformation.getDomainType(),
+                                            analyzer.getObject(),
+                                            meterRegistry.getIfAvailable()));
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+}
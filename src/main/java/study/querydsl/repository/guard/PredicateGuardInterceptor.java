@@ -0,0 +1,129 @@
+package study.querydsl.repository.guard;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.querydsl.QPageRequest;
+import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+import java.lang.reflect.Method;
+
+/**
+ * repository 프록시에 붙어서 QuerydslPredicateExecutor 메서드와 조건 없는 findAll() 을 실행 전에 검사한다.
+ *
+ * REJECT : PredicateRejectedException
+ * LIMIT  : 같은 조건으로 findAll(predicate, pageable) 의 첫 페이지만 조회. 결과가 잘리므로 warn 로그와 metric(action=limit)을 남긴다.
+ * REWRITE : predicate 를 바꿔서 다시 검사 후 실행
+ */
+@Slf4j
+public class PredicateGuardInterceptor implements MethodInterceptor {
+
+    private final Class<?> domainType;
+    private final PredicateCostAnalyzer analyzer;
+    private final MeterRegistry meterRegistry;
+
+    public PredicateGuardInterceptor(Class<?> domainType, PredicateCostAnalyzer analyzer, MeterRegistry meterRegistry) {
+        this.domainType = domainType;
+        this.analyzer = analyzer;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        boolean predicateExecutor = QuerydslPredicateExecutor.class.equals(method.getDeclaringClass());
+        if (!predicateExecutor && !isFindAllWithoutPredicate(method)) {
+            return invocation.proceed();
+        }
+
+        Object[] args = invocation.getArguments();
+        int predicateIndex = indexOf(method.getParameterTypes(), Predicate.class);
+        Predicate predicate = predicateIndex < 0 ? null : (Predicate) args[predicateIndex];
+        boolean bounded = isBounded(method, args);
+
+        PredicateVerdict verdict = analyzer.analyze(domainType, predicate, bounded);
+        if (verdict.getAction() == PredicateVerdict.Action.REWRITE && predicateIndex >= 0) {
+            record(verdict);
+            predicate = verdict.getPredicate();
+            args[predicateIndex] = predicate;
+            verdict = analyzer.analyze(domainType, predicate, bounded);
+        }
+
+        switch (verdict.getAction()) {
+            case REJECT:
+                record(verdict);
+                throw new PredicateRejectedException(verdict.getReason());
+            case LIMIT:
+                record(verdict);
+                log.warn("{}.{} truncated to {} rows: {}", domainType.getSimpleName(), method.getName(),
+                        verdict.getLimit(), verdict.getReason());
+                return findLimited(invocation, args, predicate, verdict.getLimit());
+            default:
+                return invocation.proceed();
+        }
+    }
+
+//    CrudRepository.findAll(), PagingAndSortingRepository.findAll(Sort)
+    private static boolean isFindAllWithoutPredicate(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        return "findAll".equals(method.getName())
+                && (types.length == 0 || (types.length == 1 && types[0] == Sort.class));
+    }
+
+//    count, exists, findOne, findBy 와 페이징된 findAll 은 결과 건수가 제한되어 있다
+    private static boolean isBounded(Method method, Object[] args) {
+        if (!"findAll".equals(method.getName())) {
+            return true;
+        }
+        for (Object arg : args) {
+            if (arg instanceof Pageable) {
+                return ((Pageable) arg).isPaged();
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object findLimited(MethodInvocation invocation, Object[] args, Predicate predicate, int limit) {
+        Object proxy = ((ProxyMethodInvocation) invocation).getProxy();
+        Pageable pageable = PageRequest.of(0, limit);
+        for (Object arg : args) {
+            if (arg instanceof Sort) {
+                pageable = PageRequest.of(0, limit, (Sort) arg);
+            } else if (arg instanceof OrderSpecifier[]) {
+                pageable = QPageRequest.of(0, limit, (OrderSpecifier<?>[]) arg);
+            }
+        }
+//        조건이 없으면 findAll(pageable) 로 조회한다. 빈 predicate 로 다시 이 interceptor 를 거치면 비용 판정이 달라진다.
+        if (predicate != null && ExpressionUtils.extract(predicate) != null && proxy instanceof QuerydslPredicateExecutor) {
+            return ((QuerydslPredicateExecutor<Object>) proxy).findAll(predicate, pageable).getContent();
+        }
+        return ((PagingAndSortingRepository<Object, ?>) proxy).findAll(pageable).getContent();
+    }
+
+    private void record(PredicateVerdict verdict) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("querydsl.predicate.guard",
+                    "entity", domainType.getSimpleName(),
+                    "action", verdict.getAction().name().toLowerCase()).increment();
+        }
+    }
+
+    private static int indexOf(Class<?>[] types, Class<?> type) {
+        for (int i = 0; i < types.length; i++) {
+            if (type.isAssignableFrom(types[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
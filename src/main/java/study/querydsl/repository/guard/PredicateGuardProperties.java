@@ -0,0 +1,20 @@
+package study.querydsl.repository.guard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "predicate-guard")
+public class PredicateGuardProperties {
+    private boolean enabled = false;
+    private long rejectScanRows = 100_000; // 이보다 많이 스캔할 것으로 추정되면 거부
+    private int defaultLimit = 0; // 페이징 없는 조회의 최대 건수. 0 이면 자르지 않음
+    private Duration tableStatisticsTtl = Duration.ofMinutes(5);
+    private Map<String, Long> tableRows = new HashMap<>(); // entity 이름 -> 고정 row 수 (없으면 count 로 추정)
+}
@@ -0,0 +1,13 @@
+package study.querydsl.repository.guard;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//비용이 너무 큰 Predicate. 웹에서 바인딩된 조건일 수 있으므로 400으로 응답한다.
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class PredicateRejectedException extends IllegalArgumentException {
+
+    public PredicateRejectedException(String reason) {
+        super("Predicate rejected: " + reason);
+    }
+}
@@ -0,0 +1,41 @@
+package study.querydsl.repository.guard;
+
+import com.querydsl.core.types.Predicate;
+import lombok.Getter;
+
+//PredicateCostAnalyzer 의 판정 결과
+@Getter
+public final class PredicateVerdict {
+
+    public enum Action { ALLOW, LIMIT, REWRITE, REJECT }
+
+    private static final PredicateVerdict ALLOW = new PredicateVerdict(Action.ALLOW, null, 0, null);
+
+    private final Action action;
+    private final Predicate predicate;
+    private final int limit;
+    private final String reason;
+
+    private PredicateVerdict(Action action, Predicate predicate, int limit, String reason) {
+        this.action = action;
+        this.predicate = predicate;
+        this.limit = limit;
+        this.reason = reason;
+    }
+
+    public static PredicateVerdict allow() {
+        return ALLOW;
+    }
+
+    public static PredicateVerdict limit(int limit, String reason) {
+        return new PredicateVerdict(Action.LIMIT, null, limit, reason);
+    }
+
+    public static PredicateVerdict rewrite(Predicate predicate, String reason) {
+        return new PredicateVerdict(Action.REWRITE, predicate, 0, reason);
+    }
+
+    public static PredicateVerdict reject(String reason) {
+        return new PredicateVerdict(Action.REJECT, null, 0, reason);
+    }
+}
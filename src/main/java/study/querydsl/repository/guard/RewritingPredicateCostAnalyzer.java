@@ -0,0 +1,28 @@
+package study.querydsl.repository.guard;
+
+import com.querydsl.core.types.Predicate;
+
+import java.util.function.UnaryOperator;
+
+//rewriter 가 predicate 를 바꾸면 REWRITE 로 판정하고, 바뀐 predicate 는 다시 delegate 가 판정한다.
+public class RewritingPredicateCostAnalyzer implements PredicateCostAnalyzer {
+
+    private final PredicateCostAnalyzer delegate;
+    private final UnaryOperator<Predicate> rewriter;
+
+    public RewritingPredicateCostAnalyzer(PredicateCostAnalyzer delegate, UnaryOperator<Predicate> rewriter) {
+        this.delegate = delegate;
+        this.rewriter = rewriter;
+    }
+
+    @Override
+    public PredicateVerdict analyze(Class<?> domainType, Predicate predicate, boolean bounded) {
+        if (predicate != null) {
+            Predicate rewritten = rewriter.apply(predicate);
+            if (rewritten != predicate) {
+                return PredicateVerdict.rewrite(rewritten, "rewritten to " + rewritten);
+            }
+        }
+        return delegate.analyze(domainType, predicate, bounded);
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.repository.guard;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//entity 별 row 수 추정치. 설정값이 있으면 그대로 쓰고, 없으면 count 쿼리 결과를 ttl 동안 캐시한다.
+public class TableStatistics {
+
+    private final EntityManagerFactory emf;
+    private final Map<String, Long> fixedRows;
+    private final long ttlNanos;
+    private final Map<Class<?>, Entry> cache = new ConcurrentHashMap<>();
+
+    public TableStatistics(EntityManagerFactory emf, Map<String, Long> fixedRows, Duration ttl) {
+        this.emf = emf;
+        this.fixedRows = Map.copyOf(fixedRows);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public long estimatedRows(Class<?> domainType) {
+        Long fixed = fixedRows.get(domainType.getSimpleName());
+        if (fixed != null) {
+            return fixed;
+        }
+        Entry entry = cache.get(domainType);
+        if (entry == null || System.nanoTime() - entry.fetchedAt > ttlNanos) {
+            entry = new Entry(count(domainType), System.nanoTime());
+            cache.put(domainType, entry);
+        }
+        return entry.rows;
+    }
+
+//    현재 트랜잭션과 별도의 EntityManager 로 조회한다
+    private long count(Class<?> domainType) {
+        String entityName = emf.getMetamodel().entity(domainType).getName();
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select count(e) from " + entityName + " e", Long.class)
+                    .getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static final class Entry {
+        private final long rows;
+        private final long fetchedAt;
+
+        private Entry(long rows, long fetchedAt) {
+            this.rows = rows;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
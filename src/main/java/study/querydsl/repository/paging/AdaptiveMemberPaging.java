@@ -0,0 +1,81 @@
+package study.querydsl.repository.paging;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 쿼리 모양별로 가장 빠른 페이징 방식을 골라 실행한다.
+ *
+ * 어떤 방식이 싼지는 조건의 선택도(결과 건수)와 페이지 깊이에 따라 달라지므로,
+ * 조건 유무 조합 + 페이지 깊이(2의 거듭제곱 단위)를 쿼리 모양으로 보고 모양마다 따로 지연시간을 기록한다.
+ *
+ * CAPPED_COUNT 는 total 이 COUNT_CAP 에서 잘리므로, 결과 건수가 COUNT_CAP 이상으로 관측된 모양에서만 후보가 된다.
+ * pinned 로 방식을 지정하면 선택 없이 그 방식을 쓴다. (지연시간은 기록된다)
+ */
+@Component
+public class AdaptiveMemberPaging {
+
+    public static final int COUNT_CAP = 10_000;
+    private static final int MIN_SAMPLES = 3;
+    private static final int EXPLORE_EVERY = 100;
+    private static final double HYSTERESIS = 0.2;
+
+    private final MemberRepository memberRepository;
+    private final Map<String, StrategyChooser> choosers = new ConcurrentHashMap<>();
+
+    public AdaptiveMemberPaging(MemberRepository memberRepository) {
+        this.memberRepository = memberRepository;
+    }
+
+    public Page<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable) {
+        return search(condition, pageable, null);
+    }
+
+    public Page<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable, PagingStrategy pinned) {
+        StrategyChooser chooser = chooserOf(condition, pageable);
+        PagingStrategy strategy = pinned != null ? pinned : chooser.choose(candidates(chooser));
+
+        long start = System.nanoTime();
+        Page<MemberTeamDto> page = strategy.execute(memberRepository, condition, pageable, COUNT_CAP);
+        chooser.record(strategy, System.nanoTime() - start, page.getTotalElements());
+        return page;
+    }
+
+    PagingStrategy currentStrategy(MemberSearchCondition condition, Pageable pageable) {
+        return chooserOf(condition, pageable).current();
+    }
+
+    private StrategyChooser chooserOf(MemberSearchCondition condition, Pageable pageable) {
+        return choosers.computeIfAbsent(shape(condition, pageable),
+                key -> new StrategyChooser(MIN_SAMPLES, EXPLORE_EVERY, HYSTERESIS));
+    }
+
+    private static Set<PagingStrategy> candidates(StrategyChooser chooser) {
+        Set<PagingStrategy> candidates = StrategyChooser.exactStrategies();
+        if (chooser.rows() >= COUNT_CAP) {
+            candidates = EnumSet.allOf(PagingStrategy.class);
+        }
+        return candidates;
+    }
+
+//    예: u0t1g1l0:p3 (teamName, ageGoe 조건이 있고 4~7 페이지)
+    static String shape(MemberSearchCondition condition, Pageable pageable) {
+        int depth = 32 - Integer.numberOfLeadingZeros(pageable.getPageNumber());
+        return "u" + (hasText(condition.getUsername()) ? 1 : 0)
+                + "t" + (hasText(condition.getTeamName()) ? 1 : 0)
+                + "g" + (condition.getAgeGoe() != null ? 1 : 0)
+                + "l" + (condition.getAgeLoe() != null ? 1 : 0)
+                + ":p" + depth;
+    }
+}
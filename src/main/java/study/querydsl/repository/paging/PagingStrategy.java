@@ -0,0 +1,49 @@
+package study.querydsl.repository.paging;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+//회원 검색 페이징 방식. CAPPED_COUNT 만 total 이 정확하지 않다(countCap 에서 멈춤).
+public enum PagingStrategy {
+    FETCH_RESULTS {
+        @Override
+        Page<MemberTeamDto> execute(MemberRepository repository, MemberSearchCondition condition, Pageable pageable, int countCap) {
+            return repository.searchPageSimple(condition, pageable);
+        }
+    },
+    SPLIT_COUNT {
+        @Override
+        Page<MemberTeamDto> execute(MemberRepository repository, MemberSearchCondition condition, Pageable pageable, int countCap) {
+            return repository.searchPageComplex(condition, pageable);
+        }
+    },
+    SKIP_COUNT {
+        @Override
+        Page<MemberTeamDto> execute(MemberRepository repository, MemberSearchCondition condition, Pageable pageable, int countCap) {
+            return repository.searchPageCountOptimization(condition, pageable);
+        }
+    },
+    CAPPED_COUNT {
+        @Override
+        Page<MemberTeamDto> execute(MemberRepository repository, MemberSearchCondition condition, Pageable pageable, int countCap) {
+            return repository.searchPageCappedCount(condition, pageable, countCap);
+        }
+    },
+    IDS_FIRST {
+        @Override
+        Page<MemberTeamDto> execute(MemberRepository repository, MemberSearchCondition condition, Pageable pageable, int countCap) {
+            return repository.searchPageIdsFirst(condition, pageable);
+        }
+    },
+    WINDOW_COUNT {
+        @Override
+        Page<MemberTeamDto> execute(MemberRepository repository, MemberSearchCondition condition, Pageable pageable, int countCap) {
+            return repository.searchPageWindowCount(condition, pageable);
+        }
+    };
+
+    abstract Page<MemberTeamDto> execute(MemberRepository repository, MemberSearchCondition condition, Pageable pageable, int countCap);
+}
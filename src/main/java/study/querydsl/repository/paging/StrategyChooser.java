@@ -0,0 +1,100 @@
+package study.querydsl.repository.paging;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 쿼리 모양 하나에 대한 페이징 방식 선택
+ *
+ * 방식별 지연시간을 지수 이동 평균(EWMA)으로 기록한다.
+ * - 샘플이 minSamples 보다 적은 방식이 있으면 먼저 그 방식을 써본다.
+ * - exploreEvery 번마다 가장 오래 안 쓴 방식을 한번 써서 통계를 갱신한다.
+ * - 그 외에는 현재 방식을 유지하고, 다른 방식이 hysteresis 비율 이상 빠를 때만 바꾼다. (비슷한 방식 사이를 오가지 않도록)
+ */
+class StrategyChooser {
+
+    private static final double ALPHA = 0.2;
+
+    private final int minSamples;
+    private final int exploreEvery;
+    private final double hysteresis;
+
+    private final Map<PagingStrategy, Stats> stats = new EnumMap<>(PagingStrategy.class);
+    private PagingStrategy current;
+    private long requests;
+    private double rowsEwma = -1;
+
+    StrategyChooser(int minSamples, int exploreEvery, double hysteresis) {
+        this.minSamples = minSamples;
+        this.exploreEvery = exploreEvery;
+        this.hysteresis = hysteresis;
+        for (PagingStrategy strategy : PagingStrategy.values()) {
+            stats.put(strategy, new Stats());
+        }
+    }
+
+    synchronized PagingStrategy choose(Set<PagingStrategy> candidates) {
+        requests++;
+        for (PagingStrategy strategy : candidates) {
+            if (stats.get(strategy).samples < minSamples) {
+                return strategy;
+            }
+        }
+        if (requests % exploreEvery == 0) {
+            PagingStrategy stalest = null;
+            for (PagingStrategy strategy : candidates) {
+                if (stalest == null || stats.get(strategy).lastUsed < stats.get(stalest).lastUsed) {
+                    stalest = strategy;
+                }
+            }
+            return stalest;
+        }
+
+        PagingStrategy best = null;
+        for (PagingStrategy strategy : candidates) {
+            if (best == null || stats.get(strategy).latencyEwma < stats.get(best).latencyEwma) {
+                best = strategy;
+            }
+        }
+        if (current == null || !candidates.contains(current)
+                || stats.get(best).latencyEwma < stats.get(current).latencyEwma * (1 - hysteresis)) {
+            current = best;
+        }
+        return current;
+    }
+
+    synchronized void record(PagingStrategy strategy, long latencyNanos, long totalRows) {
+        Stats stat = stats.get(strategy);
+        stat.latencyEwma = stat.samples == 0 ? latencyNanos : stat.latencyEwma + ALPHA * (latencyNanos - stat.latencyEwma);
+        stat.samples++;
+        stat.lastUsed = requests;
+//        CAPPED_COUNT 의 total 은 잘린 값이므로 결과 건수 추정에 쓰지 않는다.
+        if (strategy != PagingStrategy.CAPPED_COUNT) {
+            rowsEwma = rowsEwma < 0 ? totalRows : rowsEwma + ALPHA * (totalRows - rowsEwma);
+        }
+    }
+
+    synchronized PagingStrategy current() {
+        return current;
+    }
+
+    synchronized double latencyMillis(PagingStrategy strategy) {
+        return stats.get(strategy).latencyEwma / 1_000_000.0;
+    }
+
+    synchronized double rows() {
+        return rowsEwma;
+    }
+
+    static Set<PagingStrategy> exactStrategies() {
+        return EnumSet.complementOf(EnumSet.of(PagingStrategy.CAPPED_COUNT));
+    }
+
+    private static final class Stats {
+        private double latencyEwma;
+        private long samples;
+        private long lastUsed;
+    }
+}
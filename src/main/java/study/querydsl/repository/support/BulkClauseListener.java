@@ -0,0 +1,20 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Path;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Set;
+
+//DeadlineJPAQueryFactory 로 만든 벌크 update/delete 가 실행된 뒤 호출된다. (영속성 컨텍스트 이벤트가 없는 변경)
+public interface BulkClauseListener {
+
+//    delete 면 updatedPaths 는 비어 있다
+    void bulkExecuted(EntityPath<?> entity, Set<Path<?>> updatedPaths, boolean delete);
+
+//    등록된 listener(회원 수 counter, 팀 사전 등) 모두에게 순서대로 알린다
+    static BulkClauseListener allOf(ObjectProvider<BulkClauseListener> listeners) {
+        return (entity, updatedPaths, delete) -> listeners.orderedStream()
+                .forEach(listener -> listener.bulkExecuted(entity, updatedPaths, delete));
+    }
+}
@@ -0,0 +1,102 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.ConstantImpl;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.StringPath;
+import study.querydsl.entity.Member;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 대소문자 무시 비교를 정규화(소문자) 컬럼 비교로 바꿔준다.
+ *
+ * member.username.lower().eq(x)        -> member.usernameNormalized.eq(x)
+ * member.username.equalsIgnoreCase(x)  -> member.usernameNormalized.eq(lower(x))
+ *
+ * lower(username) 은 인덱스를 못 타지만 usernameNormalized 는 인덱스가 있다.
+ */
+public final class CaseInsensitivePredicates {
+
+//    entity 별 원본 속성 -> 정규화 속성
+    private static final Map<Class<?>, Map<String, String>> NORMALIZED_PROPERTIES = Map.of(
+            Member.class, Map.of("username", "usernameNormalized")
+    );
+
+    private CaseInsensitivePredicates() {
+    }
+
+    public static Predicate rewrite(Predicate predicate) {
+        if (predicate == null) {
+            return null;
+        }
+        Expression<?> rewritten = rewriteExpression(predicate);
+        return rewritten == ExpressionUtils.extract(predicate) ? predicate : (Predicate) rewritten;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<?> rewriteExpression(Expression<?> expression) {
+        Expression<?> expr = ExpressionUtils.extract(expression);
+        if (!(expr instanceof Operation)) {
+            return expr;
+        }
+        Operation<?> operation = (Operation<?>) expr;
+        Operator operator = operation.getOperator();
+
+        if (operator == Ops.AND || operator == Ops.OR || operator == Ops.NOT) {
+            List<Expression<?>> args = operation.getArgs();
+            Expression<?>[] rewrittenArgs = new Expression<?>[args.size()];
+            boolean changed = false;
+            for (int i = 0; i < args.size(); i++) {
+                rewrittenArgs[i] = rewriteExpression(args.get(i));
+                changed |= rewrittenArgs[i] != ExpressionUtils.extract(args.get(i));
+            }
+            return changed ? ExpressionUtils.predicate(operator, rewrittenArgs) : expr;
+        }
+
+//        lower(path) = x. x 는 그대로 둔다 (대문자가 섞여 있으면 원래도 매칭되지 않음)
+        if (operator == Ops.EQ && operation.getArg(0) instanceof Operation) {
+            Operation<?> function = (Operation<?>) operation.getArg(0);
+            if (function.getOperator() == Ops.LOWER && function.getArg(0) instanceof Path) {
+                StringPath normalized = normalizedPathOf((Path<?>) function.getArg(0));
+                if (normalized != null) {
+                    return normalized.eq((Expression<String>) operation.getArg(1));
+                }
+            }
+        }
+
+        if (operator == Ops.EQ_IGNORE_CASE && operation.getArg(0) instanceof Path) {
+            StringPath normalized = normalizedPathOf((Path<?>) operation.getArg(0));
+            if (normalized != null) {
+                return normalized.eq(lower((Expression<String>) operation.getArg(1)));
+            }
+        }
+        return expr;
+    }
+
+    private static Expression<String> lower(Expression<String> value) {
+        if (value instanceof Constant && ((Constant<?>) value).getConstant() instanceof String) {
+            return ConstantImpl.create(((String) ((Constant<?>) value).getConstant()).toLowerCase(Locale.ROOT));
+        }
+        return Expressions.stringOperation(Ops.LOWER, value);
+    }
+
+    private static StringPath normalizedPathOf(Path<?> path) {
+        Path<?> parent = path.getMetadata().getParent();
+        if (parent == null) {
+            return null;
+        }
+        Map<String, String> properties = NORMALIZED_PROPERTIES.get(parent.getType());
+        String normalized = properties == null ? null : properties.get(path.getMetadata().getName());
+        return normalized == null ? null : Expressions.stringPath(parent, normalized);
+    }
+}
@@ -0,0 +1,193 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryFlag;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.MapExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * content 쿼리로부터 count 쿼리를 만들어주는 지원 클래스
+ *
+ * projection, orderBy, offset/limit 을 제거하고, 어떤 조건에서도 참조하지 않는
+ * to-one 연관관계의 left join 은 count 결과를 바꿀 수 없으므로 제거한다.
+ */
+public final class CountQuerySupport {
+
+    private CountQuerySupport() {
+    }
+
+    public static JPAQuery<?> countQueryOf(JPAQueryFactory queryFactory, JPAQuery<?> contentQuery) {
+        QueryMetadata content = contentQuery.getMetadata();
+        JPAQuery<?> countQuery = queryFactory.query();
+        QueryMetadata count = countQuery.getMetadata();
+
+//        where, groupBy, having 에서 참조하는 alias 수집. distinct 는 projection 이 결과 건수에 영향을 주므로 유지.
+        Set<Path<?>> referenced = new HashSet<>();
+        collectRoots(content.getWhere(), referenced);
+        collectRoots(content.getHaving(), referenced);
+        for (Expression<?> groupBy : content.getGroupBy()) {
+            collectRoots(groupBy, referenced);
+        }
+        if (content.isDistinct()) {
+            collectRoots(content.getProjection(), referenced);
+        }
+
+//        join 은 앞에서 선언한 alias 만 참조할 수 있으므로 뒤에서부터 보면 한번에 제거 대상을 정할 수 있다.
+        List<JoinExpression> joins = content.getJoins();
+        Deque<JoinExpression> retained = new ArrayDeque<>();
+        for (int i = joins.size() - 1; i >= 0; i--) {
+            JoinExpression join = joins.get(i);
+            if (i > 0 && isPrunable(join, referenced)) {
+                continue;
+            }
+            retained.addFirst(join);
+            collectRoots(join.getTarget(), referenced);
+            collectRoots(join.getCondition(), referenced);
+        }
+
+        for (JoinExpression join : retained) {
+            count.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                count.addJoinCondition(join.getCondition());
+            }
+//            count 쿼리에서 fetch join 은 의미가 없고 오히려 오류가 난다.
+            for (JoinFlag flag : join.getFlags()) {
+                if (!flag.equals(JPAQueryMixin.FETCH) && !flag.equals(JPAQueryMixin.FETCH_ALL_PROPERTIES)) {
+                    count.addJoinFlag(flag);
+                }
+            }
+        }
+
+        if (content.getWhere() != null) {
+            count.addWhere(content.getWhere());
+        }
+        for (Expression<?> groupBy : content.getGroupBy()) {
+            count.addGroupBy(groupBy);
+        }
+        if (content.getHaving() != null) {
+            count.addHaving(content.getHaving());
+        }
+        if (content.isDistinct()) {
+            count.setDistinct(true);
+            count.setProjection(content.getProjection());
+        }
+        for (QueryFlag flag : content.getFlags()) {
+            count.addFlag(flag);
+        }
+        for (Map.Entry<ParamExpression<?>, Object> param : content.getParams().entrySet()) {
+            count.setParam((ParamExpression) param.getKey(), param.getValue());
+        }
+        return countQuery;
+    }
+
+//    left join 이면서 on 조건이 없는 to-one 연관관계이고, alias 를 아무도 참조하지 않으면 제거 가능
+    private static boolean isPrunable(JoinExpression join, Set<Path<?>> referenced) {
+        if (join.getType() != JoinType.LEFTJOIN || join.getCondition() != null) {
+            return false;
+        }
+        if (!(join.getTarget() instanceof Operation)) {
+            return false;
+        }
+        Operation<?> alias = (Operation<?>) join.getTarget();
+        if (alias.getOperator() != Ops.ALIAS || !(alias.getArg(1) instanceof Path)) {
+            return false;
+        }
+        Expression<?> association = alias.getArg(0);
+        if (association instanceof CollectionExpression || association instanceof MapExpression) {
+            return false;
+        }
+        return !referenced.contains(((Path<?>) alias.getArg(1)).getRoot());
+    }
+
+    private static void collectRoots(Expression<?> expr, Set<Path<?>> roots) {
+        if (expr != null) {
+            expr.accept(RootCollector.INSTANCE, roots);
+        }
+    }
+
+    private enum RootCollector implements Visitor<Void, Set<Path<?>>> {
+        INSTANCE;
+
+        @Override
+        public Void visit(Constant<?> expr, Set<Path<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Set<Path<?>> roots) {
+            for (Expression<?> arg : expr.getArgs()) {
+                collectRoots(arg, roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Set<Path<?>> roots) {
+            for (Expression<?> arg : expr.getArgs()) {
+                collectRoots(arg, roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Set<Path<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Set<Path<?>> roots) {
+            roots.add(expr.getRoot());
+            return null;
+        }
+
+//        상관 서브쿼리가 바깥 alias 를 참조할 수 있으므로 서브쿼리 내부도 확인한다.
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Set<Path<?>> roots) {
+            QueryMetadata metadata = expr.getMetadata();
+            collectRoots(metadata.getProjection(), roots);
+            collectRoots(metadata.getWhere(), roots);
+            collectRoots(metadata.getHaving(), roots);
+            for (JoinExpression join : metadata.getJoins()) {
+                collectRoots(join.getTarget(), roots);
+                collectRoots(join.getCondition(), roots);
+            }
+            for (Expression<?> groupBy : metadata.getGroupBy()) {
+                collectRoots(groupBy, roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Set<Path<?>> roots) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression) {
+                    collectRoots((Expression<?>) arg, roots);
+                }
+            }
+            return null;
+        }
+    }
+}
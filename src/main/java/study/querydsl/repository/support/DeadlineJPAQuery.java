@@ -0,0 +1,64 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+import study.querydsl.deadline.QueryDeadline;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.QueryTimeoutException;
+
+//실행 시점에 남은 요청 deadline 을 query timeout 힌트(초)로 넣는 JPAQuery
+//where 조건의 lower(username) = x 같은 대소문자 무시 비교는 인덱스가 있는 정규화 컬럼 비교로 바꿔서 넣는다 (predicate-guard 와 무관)
+public class DeadlineJPAQuery<T> extends JPAQuery<T> {
+
+    static final String TIMEOUT_HINT = "org.hibernate.timeout";
+
+    public DeadlineJPAQuery(EntityManager em) {
+        super(em);
+    }
+
+    public DeadlineJPAQuery(EntityManager em, JPQLTemplates templates, QueryMetadata metadata) {
+        super(em, templates, metadata);
+    }
+
+    @Override
+    public JPAQuery<T> where(Predicate o) {
+        return super.where(CaseInsensitivePredicates.rewrite(o));
+    }
+
+    @Override
+    public JPAQuery<T> where(Predicate... o) {
+        Predicate[] rewritten = new Predicate[o.length];
+        for (int i = 0; i < o.length; i++) {
+            rewritten[i] = CaseInsensitivePredicates.rewrite(o[i]);
+        }
+        return super.where(rewritten);
+    }
+
+    @Override
+    protected Query createQuery(QueryModifiers modifiers, boolean forCount) {
+        QueryDeadline deadline = QueryDeadline.current();
+//        이미 시간이 지났으면 DB 까지 가지 않는다
+        if (deadline != null && deadline.isExpired()) {
+            throw new QueryTimeoutException("Query deadline exceeded");
+        }
+        Query query = super.createQuery(modifiers, forCount);
+        if (deadline != null) {
+//            javax.persistence.query.timeout(ms) 는 hibernate 가 초로 반올림해서 500ms 미만이 0(timeout 없음)이 된다.
+//            DeadlineSQLListener 와 같이 초 단위로 올림하고 최소 1초를 넣는다.
+            query.setHint(TIMEOUT_HINT, (int) Math.max(1, (deadline.remainingMillis() + 999) / 1000));
+        }
+        return query;
+    }
+
+    @Override
+    public DeadlineJPAQuery<T> clone(EntityManager entityManager, JPQLTemplates templates) {
+        DeadlineJPAQuery<T> query = new DeadlineJPAQuery<>(entityManager, templates, getMetadata().clone());
+        query.clone(this);
+        return query;
+    }
+}
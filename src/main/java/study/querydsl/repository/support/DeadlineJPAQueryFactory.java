@@ -0,0 +1,103 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+
+import javax.persistence.EntityManager;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+//select, selectFrom, from 모두 query() 를 거치므로 여기서 만든 쿼리는 전부 요청 deadline 을 따른다.
+//update, delete 는 실행 후 BulkClauseListener 에 알린다. (실행 건수가 0 이면 알리지 않는다)
+public class DeadlineJPAQueryFactory extends JPAQueryFactory {
+
+    private final EntityManager entityManager;
+    private final Supplier<BulkClauseListener> bulkClauseListener;
+
+    public DeadlineJPAQueryFactory(EntityManager entityManager) {
+        this(entityManager, () -> null);
+    }
+
+    public DeadlineJPAQueryFactory(EntityManager entityManager, Supplier<BulkClauseListener> bulkClauseListener) {
+        super(entityManager);
+        this.entityManager = entityManager;
+        this.bulkClauseListener = bulkClauseListener;
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        return new DeadlineJPAQuery<Void>(entityManager);
+    }
+
+    @Override
+    public JPAUpdateClause update(EntityPath<?> path) {
+        return new ListeningUpdateClause(entityManager, path);
+    }
+
+    @Override
+    public JPADeleteClause delete(EntityPath<?> path) {
+        return new JPADeleteClause(entityManager, path) {
+            @Override
+            public long execute() {
+                long affected = super.execute();
+                notifyListener(path, Set.of(), true, affected);
+                return affected;
+            }
+        };
+    }
+
+    private void notifyListener(EntityPath<?> path, Set<Path<?>> updatedPaths, boolean delete, long affected) {
+        BulkClauseListener listener = bulkClauseListener.get();
+        if (listener != null && affected > 0) {
+            listener.bulkExecuted(path, updatedPaths, delete);
+        }
+    }
+
+    private class ListeningUpdateClause extends JPAUpdateClause {
+        private final EntityPath<?> entity;
+        private final Set<Path<?>> updatedPaths = new HashSet<>();
+
+        ListeningUpdateClause(EntityManager entityManager, EntityPath<?> entity) {
+            super(entityManager, entity);
+            this.entity = entity;
+        }
+
+        @Override
+        public <T> JPAUpdateClause set(Path<T> path, T value) {
+            updatedPaths.add(path);
+            return super.set(path, value);
+        }
+
+        @Override
+        public <T> JPAUpdateClause set(Path<T> path, Expression<? extends T> expression) {
+            updatedPaths.add(path);
+            return super.set(path, expression);
+        }
+
+        @Override
+        public <T> JPAUpdateClause setNull(Path<T> path) {
+            updatedPaths.add(path);
+            return super.setNull(path);
+        }
+
+        @Override
+        public JPAUpdateClause set(List<? extends Path<?>> paths, List<?> values) {
+            updatedPaths.addAll(paths);
+            return super.set(paths, values);
+        }
+
+        @Override
+        public long execute() {
+            long affected = super.execute();
+            notifyListener(entity, updatedPaths, false, affected);
+            return affected;
+        }
+    }
+}
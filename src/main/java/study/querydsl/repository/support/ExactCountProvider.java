@@ -0,0 +1,11 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+
+import java.util.OptionalLong;
+
+//count 쿼리 대신 미리 관리하는 정확한 건수를 줄 수 있으면 돌려준다. 모르는 모양이면 empty.
+public interface ExactCountProvider {
+
+    OptionalLong countOf(QueryMetadata countQuery);
+}
@@ -0,0 +1,294 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.ConstructorExpression;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Visitor;
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 리플렉션 없이 DTO 를 만드는 projection
+ *
+ * Projections.constructor/bean/fields 와 @QueryProjection(ConstructorExpression) 은 row 마다
+ * Constructor.newInstance, Method.invoke, Field.set 을 호출한다. 여기서는 LambdaMetafactory 로
+ * 생성자/setter 를 직접 호출하는 람다를 한번만 만들어 캐시해두고, row 마다 그 람다를 호출한다.
+ *
+ * .select(fast(new QMemberTeamDto(...)))           // @QueryProjection 타입 체크는 그대로
+ * .select(FastProjections.bean(MemberDto.class, member.username, member.age))
+ *
+ * 기존 projection 과 마찬가지로 null 은 setter 를 호출하지 않고, primitive 생성자 파라미터에 null 이 오면 예외가 난다.
+ */
+public final class FastProjections {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final Map<Constructor<?>, Instantiator<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Supplier<?>> NO_ARG_CONSTRUCTORS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Map<String, BiConsumer<Object, Object>>> PROPERTY_SETTERS = new ConcurrentHashMap<>();
+
+    private FastProjections() {
+    }
+
+//    @QueryProjection 으로 생성된 Q 타입(ConstructorExpression) 을 같은 생성자를 쓰는 빠른 projection 으로 바꾼다.
+    public static <T> FactoryExpression<T> fast(ConstructorExpression<T> expression) {
+        return constructor(expression.getType(), expression.getArgs().toArray(new Expression<?>[0]));
+    }
+
+    public static <T> FactoryExpression<T> constructor(Class<? extends T> type, Expression<?>... args) {
+        Constructor<?> constructor = findConstructor(type, args);
+        @SuppressWarnings("unchecked")
+        Instantiator<T> instantiator = (Instantiator<T>) CONSTRUCTORS.computeIfAbsent(constructor, FastProjections::createInstantiator);
+        return new FastFactoryExpression<>(type, Arrays.asList(args), instantiator);
+    }
+
+//    setter 로 값을 넣는다. 이름은 path 이름 또는 as(...) 별칭.
+    public static <T> FactoryExpression<T> bean(Class<? extends T> type, Expression<?>... args) {
+        return properties(type, false, args);
+    }
+
+//    setter 가 있으면 setter, 없으면 필드에 바로 넣는다.
+    public static <T> FactoryExpression<T> fields(Class<? extends T> type, Expression<?>... args) {
+        return properties(type, true, args);
+    }
+
+    private static <T> FactoryExpression<T> properties(Class<? extends T> type, boolean fieldAccess, Expression<?>... args) {
+        @SuppressWarnings("unchecked")
+        Supplier<T> creator = (Supplier<T>) NO_ARG_CONSTRUCTORS.computeIfAbsent(type, FastProjections::createSupplier);
+        Map<String, BiConsumer<Object, Object>> setters = PROPERTY_SETTERS.computeIfAbsent(type, key -> new ConcurrentHashMap<>());
+
+        List<BiConsumer<Object, Object>> bound = new ArrayList<>(args.length);
+        for (Expression<?> arg : args) {
+            String name = propertyName(arg);
+            String key = (fieldAccess ? "field:" : "setter:") + name;
+            bound.add(setters.computeIfAbsent(key, k -> createSetter(type, name, fieldAccess)));
+        }
+        BiConsumer<Object, Object>[] setterArray = bound.toArray(new BiConsumer[0]);
+
+        Instantiator<T> instantiator = values -> {
+            T instance = creator.get();
+            for (int i = 0; i < setterArray.length; i++) {
+                if (values[i] != null) {
+                    setterArray[i].accept(instance, values[i]);
+                }
+            }
+            return instance;
+        };
+        return new FastFactoryExpression<>(type, Arrays.asList(args), instantiator);
+    }
+
+    private static String propertyName(Expression<?> arg) {
+        if (arg instanceof Path) {
+            return ((Path<?>) arg).getMetadata().getName();
+        }
+        if (arg instanceof Operation && ((Operation<?>) arg).getOperator() == Ops.ALIAS) {
+            return propertyName(((Operation<?>) arg).getArg(1));
+        }
+        throw new IllegalArgumentException("Projection argument needs a path or an alias: " + arg);
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type, Expression<?>[] args) {
+        for (Constructor<?> constructor : type.getConstructors()) {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            if (parameterTypes.length != args.length) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < args.length && matches; i++) {
+                matches = ClassUtils.isAssignable(parameterTypes[i], args[i].getType());
+            }
+            if (matches) {
+                return constructor;
+            }
+        }
+        throw new IllegalArgumentException("No public constructor of " + type.getName() + " matches " + Arrays.toString(args));
+    }
+
+    private static Instantiator<?> createInstantiator(Constructor<?> constructor) {
+        try {
+            MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+            int arity = constructor.getParameterCount();
+            switch (arity) {
+                case 0: {
+                    Supplier<?> f = metafactory(Supplier.class, "get", handle);
+                    return values -> f.get();
+                }
+                case 1: {
+                    A1 f = metafactory(A1.class, "create", handle);
+                    return values -> f.create(values[0]);
+                }
+                case 2: {
+                    A2 f = metafactory(A2.class, "create", handle);
+                    return values -> f.create(values[0], values[1]);
+                }
+                case 3: {
+                    A3 f = metafactory(A3.class, "create", handle);
+                    return values -> f.create(values[0], values[1], values[2]);
+                }
+                case 4: {
+                    A4 f = metafactory(A4.class, "create", handle);
+                    return values -> f.create(values[0], values[1], values[2], values[3]);
+                }
+                case 5: {
+                    A5 f = metafactory(A5.class, "create", handle);
+                    return values -> f.create(values[0], values[1], values[2], values[3], values[4]);
+                }
+                case 6: {
+                    A6 f = metafactory(A6.class, "create", handle);
+                    return values -> f.create(values[0], values[1], values[2], values[3], values[4], values[5]);
+                }
+                default: {
+//                    인자가 많은 생성자는 드물어서 MethodHandle 로 처리
+                    return values -> invoke(handle, values);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access constructor " + constructor, e);
+        }
+    }
+
+    private static Supplier<?> createSupplier(Class<?> type) {
+        try {
+            return metafactory(Supplier.class, "get", LOOKUP.findConstructor(type, MethodType.methodType(void.class)));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(type.getName() + " needs a public no-arg constructor", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> createSetter(Class<?> type, String name, boolean fieldAccess) {
+        String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(setterName) && method.getParameterCount() == 1
+                    && method.getReturnType() == void.class && !Modifier.isStatic(method.getModifiers())) {
+                try {
+                    return metafactory(BiConsumer.class, "accept", LOOKUP.unreflect(method));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("Cannot access " + method, e);
+                }
+            }
+        }
+        if (!fieldAccess) {
+            throw new IllegalArgumentException("No setter for '" + name + "' in " + type.getName());
+        }
+//        private 필드는 람다로 만들 수 없으므로 MethodHandle 로 넣는다.
+        try {
+            Field field = findField(type, name);
+            MethodHandle handle = MethodHandles.privateLookupIn(field.getDeclaringClass(), LOOKUP).unreflectSetter(field);
+            return (target, value) -> invoke(handle, target, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access field '" + name + "' in " + type.getName(), e);
+        }
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getName().equals(name) && !Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No field '" + name + "' in " + type.getName());
+    }
+
+//    handle 을 functionalInterface 의 (Object...) 메서드로 감싼다. primitive 는 wrapper 로 받아서 unboxing 된다.
+    @SuppressWarnings("unchecked")
+    private static <F> F metafactory(Class<?> functionalInterface, String methodName, MethodHandle handle) {
+        MethodType implType = handle.type();
+        MethodType samType = implType.generic().changeReturnType(implType.returnType() == void.class ? void.class : Object.class);
+        MethodType instantiatedType = implType.wrap().changeReturnType(implType.returnType());
+        try {
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, methodName, MethodType.methodType(functionalInterface),
+                    samType, handle, instantiatedType);
+            return (F) site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create lambda for " + handle, e);
+        }
+    }
+
+    private static <T> T invoke(MethodHandle handle, Object... args) {
+        try {
+            @SuppressWarnings("unchecked")
+            T result = (T) handle.invokeWithArguments(args);
+            return result;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    interface Instantiator<T> {
+        T newInstance(Object[] values);
+    }
+
+    interface A1 { Object create(Object a); }
+    interface A2 { Object create(Object a, Object b); }
+    interface A3 { Object create(Object a, Object b, Object c); }
+    interface A4 { Object create(Object a, Object b, Object c, Object d); }
+    interface A5 { Object create(Object a, Object b, Object c, Object d, Object e); }
+    interface A6 { Object create(Object a, Object b, Object c, Object d, Object e, Object f); }
+
+    static final class FastFactoryExpression<T> extends FactoryExpressionBase<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Expression<?>> args;
+        private final transient Instantiator<T> instantiator;
+
+        FastFactoryExpression(Class<? extends T> type, List<Expression<?>> args, Instantiator<T> instantiator) {
+            super(type);
+            this.args = args;
+            this.instantiator = instantiator;
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        public T newInstance(Object... values) {
+            return instantiator.newInstance(values);
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof FastFactoryExpression)) {
+                return false;
+            }
+            FastFactoryExpression<?> other = (FastFactoryExpression<?>) obj;
+            return getType().equals(other.getType()) && args.equals(other.args);
+        }
+    }
+}
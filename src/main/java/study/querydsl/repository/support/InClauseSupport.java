@@ -0,0 +1,37 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * in (...) 조건용 값 목록을 나누고 크기를 맞춰준다.
+ *
+ * Hibernate 는 in 절 파라미터 개수마다 다른 쿼리 plan 을 캐시한다. 1~1000 개를 그대로 넘기면 plan 이 1000 개 생기므로
+ * 마지막 값을 반복해서 2의 거듭제곱 크기로 채운다. (결과는 같고 plan 은 log2(maxSize) 개만 생긴다)
+ * DB 마다 in 절 파라미터 개수 제한이 있으므로 maxSize 를 넘으면 여러 묶음으로 나눈다.
+ */
+public final class InClauseSupport {
+
+    private InClauseSupport() {
+    }
+
+    public static <T> List<List<T>> paddedChunks(Collection<T> values, int maxSize) {
+        if (Integer.bitCount(maxSize) != 1) {
+            throw new IllegalArgumentException("maxSize must be a power of two: " + maxSize);
+        }
+        List<T> distinct = new ArrayList<>(new LinkedHashSet<>(values));
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += maxSize) {
+            List<T> chunk = new ArrayList<>(distinct.subList(from, Math.min(from + maxSize, distinct.size())));
+            int paddedSize = Integer.highestOneBit(chunk.size() - 1) << 1;
+            T last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < paddedSize) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
@@ -3,8 +3,10 @@ package study.querydsl.repository.support;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -19,6 +21,8 @@ import org.springframework.util.Assert;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 import java.util.function.Function;
 /**
  * Querydsl 4.x 버전에 맞춘 Querydsl 지원 라이브러리
@@ -30,15 +34,26 @@ org.springframework.data.jpa.repository.support.QuerydslRepositorySupport
 @Repository
 public abstract class Querydsl4RepositorySupport {
     private final Class domainClass;
+    private final SortPolicy sortPolicy;
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private int readOnlyFetchSize = ReadOnlyQuerySupport.DEFAULT_FETCH_SIZE;
+    private ObjectProvider<BulkClauseListener> bulkClauseListener;
+    private ObjectProvider<ExactCountProvider> exactCountProvider;
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
+        this(domainClass, null);
+    }
+
+//    sortPolicy 를 지정하면 Pageable 의 Sort 를 PathBuilder 대신 허용된 OrderSpecifier 로만 변환한다
+    public Querydsl4RepositorySupport(Class<?> domainClass, SortPolicy sortPolicy) {
         Assert.notNull(domainClass, "Domain class must not be null!");
         this.domainClass = domainClass;
+        this.sortPolicy = sortPolicy;
     }
 
+    @Autowired
     public void setEntityManager(EntityManager entityManager) {
         Assert.notNull(entityManager, "EntityManager must not be null!");
 
@@ -51,7 +66,17 @@ public abstract class Querydsl4RepositorySupport {
         this.entityManager = entityManager;
         this.querydsl = new Querydsl(entityManager, new
                 PathBuilder<>(path.getType(), path.getMetadata()));
-        this.queryFactory = new JPAQueryFactory(entityManager);
+//        요청 deadline 이 있으면 query timeout 힌트를 넣는 쿼리를 만든다
+        this.queryFactory = new DeadlineJPAQueryFactory(entityManager,
+                () -> bulkClauseListener != null ? BulkClauseListener.allOf(bulkClauseListener) : null);
+    }
+
+//    둘 다 선택. 없으면 벌크 clause 를 알리지 않고, count 는 항상 쿼리로 센다.
+    @Autowired
+    public void setCountSupport(ObjectProvider<BulkClauseListener> bulkClauseListener,
+                                ObjectProvider<ExactCountProvider> exactCountProvider) {
+        this.bulkClauseListener = bulkClauseListener;
+        this.exactCountProvider = exactCountProvider;
     }
     @PostConstruct
     public void validate() {
@@ -74,23 +99,68 @@ public abstract class Querydsl4RepositorySupport {
     protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
         return getQueryFactory().selectFrom(from);
     }
+//    조회 전용. readOnly 힌트, FlushMode.COMMIT, fetch size 적용
+    protected <T> JPAQuery<T> selectReadOnly(Expression<T> expr) {
+        return readOnly(select(expr));
+    }
+    protected <T> JPAQuery<T> selectFromReadOnly(EntityPath<T> from) {
+        return readOnly(selectFrom(from));
+    }
+    protected <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        return ReadOnlyQuerySupport.readOnly(query, readOnlyFetchSize);
+    }
+//    대량 조회용. 영속성 컨텍스트에 올리지 않고 한 건씩 consumer 로 넘긴다.
+    protected <T> long scanStateless(JPAQuery<T> query, Consumer<? super T> consumer) {
+        return ReadOnlyQuerySupport.scanStateless(getEntityManager(), query, readOnlyFetchSize, consumer);
+    }
+    protected void setReadOnlyFetchSize(int readOnlyFetchSize) {
+        Assert.isTrue(readOnlyFetchSize > 0, "Fetch size must be positive!");
+        this.readOnlyFetchSize = readOnlyFetchSize;
+    }
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
 //        apply()를 하면 파마리터로 넘어온 함수가 실행됨
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
+//        count 쿼리는 content 쿼리에서 projection, orderBy, 사용하지 않는 to-one left join 을 제거해서 만든다
+        JPAQuery<?> countQuery = CountQuerySupport.countQueryOf(getQueryFactory(), jpaQuery);
+//        count 쿼리 모양이 미리 관리하는 건수(회원 수 counter 등)로 셀 수 있으면 count 없이 content 만 가져온다
+        OptionalLong exactCount = exactCountOf(countQuery);
+        if (exactCount.isPresent()) {
+            List<T> content = applyPagingAndSort(pageable, jpaQuery).fetch();
+            return PageableExecutionUtils.getPage(content, pageable, exactCount::getAsLong);
+        }
+//        컬렉션 fetch join, distinct 가 없으면 count(*) over() 로 content 와 count 를 쿼리 하나로 가져온다
+        if (pageable.isPaged() && WindowCountPaging.supports(jpaQuery)) {
+            return WindowCountPaging.fetchPage((JPAQuery<T>) applyPagingAndSort(pageable, jpaQuery),
+                    pageable, countQuery::fetchCount);
+        }
+        List<T> content = applyPagingAndSort(pageable,
                 jpaQuery).fetch();
         return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+                countQuery::fetchCount);
     }
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
             JPAQuery> countQuery) {
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
+        List<T> content = applyPagingAndSort(pageable,
                 jpaContentQuery).fetch();
         JPAQuery countResult = countQuery.apply(getQueryFactory());
         return PageableExecutionUtils.getPage(content, pageable,
                 countResult::fetchCount);
     }
+    protected OptionalLong exactCountOf(JPAQuery<?> countQuery) {
+        ExactCountProvider provider = exactCountProvider != null ? exactCountProvider.getIfAvailable() : null;
+        return provider != null ? provider.countOf(countQuery.getMetadata()) : OptionalLong.empty();
+    }
+    protected <T> JPQLQuery<T> applyPagingAndSort(Pageable pageable, JPQLQuery<T> query) {
+        if (sortPolicy == null) {
+            return getQuerydsl().applyPagination(pageable, query);
+        }
+        if (pageable.isPaged()) {
+            query.offset(pageable.getOffset());
+            query.limit(pageable.getPageSize());
+        }
+        return query.orderBy(sortPolicy.toOrderSpecifiers(pageable.getSort()));
+    }
 }
@@ -0,0 +1,67 @@
+package study.querydsl.repository.support;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.jpa.HibernateTemplates;
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import com.querydsl.jpa.hibernate.StatelessSessionHolder;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.annotations.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import java.util.function.Consumer;
+
+/**
+ * 조회 전용 쿼리 지원
+ *
+ * readOnly : 조회한 entity 의 스냅샷을 만들지 않아 dirty checking 대상이 되지 않고, 쿼리 전 auto flush 도 하지 않는다.
+ * scanStateless : 영속성 컨텍스트 없이(StatelessSession) 한 건씩 읽어서 넘겨준다. 대량 조회용.
+ */
+public final class ReadOnlyQuerySupport {
+
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    private ReadOnlyQuerySupport() {
+    }
+
+    public static <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        return readOnly(query, DEFAULT_FETCH_SIZE);
+    }
+
+    public static <T> JPAQuery<T> readOnly(JPAQuery<T> query, int fetchSize) {
+        return query
+                .setHint(QueryHints.READ_ONLY, true)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setFlushMode(FlushModeType.COMMIT);
+    }
+
+//    현재 트랜잭션의 커넥션을 그대로 사용하므로 아직 flush 되지 않은 변경은 보이지 않는다.
+    public static <T> long scanStateless(EntityManager entityManager, JPAQuery<T> query, int fetchSize,
+                                         Consumer<? super T> consumer) {
+        Session session = entityManager.unwrap(Session.class);
+        return session.doReturningWork(connection -> {
+            StatelessSession statelessSession = session.getSessionFactory().openStatelessSession(connection);
+            try {
+                CloseableIterator<T> rows = new HibernateQuery<T>(new StatelessSessionHolder(statelessSession),
+                        HibernateTemplates.DEFAULT, query.getMetadata())
+                        .setFetchSize(fetchSize)
+                        .setReadOnly(true)
+                        .iterate();
+                try {
+                    long count = 0;
+                    while (rows.hasNext()) {
+                        consumer.accept(rows.next());
+                        count++;
+                    }
+                    return count;
+                } finally {
+                    rows.close();
+                }
+            } finally {
+                statelessSession.close();
+            }
+        });
+    }
+}
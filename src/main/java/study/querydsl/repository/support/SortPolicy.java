@@ -0,0 +1,110 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * API 정렬 키를 미리 만들어둔 OrderSpecifier 로 바꿔주는 정렬 정책
+ *
+ * 허용(인덱스가 있는) 키만 정렬할 수 있고, 별칭 키는 허용된 키로 바꾸며, 그 외는 거부한다.
+ * 정렬 결과가 항상 같도록 마지막에 id 를 tiebreaker 로 붙인다. (keyset 페이징에도 사용 가능)
+ * entity 별로 한번 만들어서 재사용한다.
+ */
+public final class SortPolicy {
+
+    private final Map<String, OrderSpecifier<?>> ascending;
+    private final Map<String, OrderSpecifier<?>> descending;
+    private final Map<String, String> rewrites;
+    private final String tiebreakerKey;
+
+    private SortPolicy(Builder builder) {
+        this.ascending = Map.copyOf(builder.ascending);
+        this.descending = Map.copyOf(builder.descending);
+        this.rewrites = Map.copyOf(builder.rewrites);
+        this.tiebreakerKey = builder.tiebreakerKey;
+    }
+
+    public static Builder builder(String idKey, ComparableExpressionBase<?> id) {
+        return new Builder(idKey, id);
+    }
+
+    public OrderSpecifier<?>[] toOrderSpecifiers(Sort sort) {
+        Set<String> keys = new LinkedHashSet<>();
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        Sort.Direction lastDirection = Sort.Direction.ASC;
+        for (Sort.Order order : sort) {
+            String key = resolve(order.getProperty());
+            if (keys.add(key)) {
+                orders.add(withNullHandling(order.isAscending() ? ascending.get(key) : descending.get(key),
+                        order.getNullHandling()));
+            }
+            lastDirection = order.getDirection();
+        }
+//        tiebreaker 는 마지막 정렬 방향을 따른다. 방향이 같아야 keyset 페이징에서 (a, id) > (?, ?) 한 조건으로 다음 페이지를 찾을 수 있다
+        if (!keys.contains(tiebreakerKey)) {
+            orders.add(lastDirection.isAscending() ? ascending.get(tiebreakerKey) : descending.get(tiebreakerKey));
+        }
+        return orders.toArray(new OrderSpecifier<?>[0]);
+    }
+
+//    nulls first/last 를 지정하면 그대로 붙인다. 지정하지 않으면 DB 기본 순서.
+    private static OrderSpecifier<?> withNullHandling(OrderSpecifier<?> order, Sort.NullHandling nullHandling) {
+        switch (nullHandling) {
+            case NULLS_FIRST:
+                return order.nullsFirst();
+            case NULLS_LAST:
+                return order.nullsLast();
+            default:
+                return order;
+        }
+    }
+
+    private String resolve(String property) {
+        String key = rewrites.getOrDefault(property, property);
+        if (!ascending.containsKey(key)) {
+            throw new UnsupportedSortException(property, ascending.keySet());
+        }
+        return key;
+    }
+
+    public static final class Builder {
+        private final Map<String, OrderSpecifier<?>> ascending = new HashMap<>();
+        private final Map<String, OrderSpecifier<?>> descending = new HashMap<>();
+        private final Map<String, String> rewrites = new HashMap<>();
+        private final String tiebreakerKey;
+
+        private Builder(String idKey, ComparableExpressionBase<?> id) {
+            this.tiebreakerKey = idKey;
+            indexed(idKey, id);
+        }
+
+//        인덱스로 정렬할 수 있는 키만 등록한다
+        public Builder indexed(String key, ComparableExpressionBase<?> path) {
+            Assert.hasText(key, "Sort key must not be empty!");
+            Assert.notNull(path, "Sort path must not be null!");
+            ascending.put(key, path.asc());
+            descending.put(key, path.desc());
+            return this;
+        }
+
+//        인덱스가 없는 키나 API 별칭을 인덱스가 있는 키로 바꿔서 정렬한다
+        public Builder rewrite(String key, String indexedKey) {
+            Assert.isTrue(ascending.containsKey(indexedKey), "Rewrite target must be an indexed sort key: " + indexedKey);
+            rewrites.put(key, indexedKey);
+            return this;
+        }
+
+        public SortPolicy build() {
+            return new SortPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package study.querydsl.repository.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+//허용되지 않은 정렬 키. 클라이언트 요청 오류이므로 400으로 응답한다.
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnsupportedSortException extends IllegalArgumentException {
+
+    public UnsupportedSortException(String property, Set<String> allowed) {
+        super("Sorting by '" + property + "' is not allowed. Allowed sort keys: " + new TreeSet<>(allowed));
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.function.StandardSQLFunction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.Type;
+
+import java.util.List;
+
+//HQL 에서 count_over() 를 쓰면 SQL 의 count(*) over() 로 바꿔준다. (WindowCountPaging 참고)
+public class WindowFunctionContributor implements MetadataBuilderContributor {
+
+    @Override
+    public void contribute(MetadataBuilder metadataBuilder) {
+        metadataBuilder.applySqlFunction(WindowCountPaging.FUNCTION,
+                new StandardSQLFunction(WindowCountPaging.FUNCTION, StandardBasicTypes.LONG) {
+                    @Override
+                    public String render(Type firstArgumentType, List arguments, SessionFactoryImplementor factory) {
+                        return "count(*) over()";
+                    }
+                });
+    }
+}
@@ -0,0 +1,58 @@
+package study.querydsl.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//각각 정렬된 shard 결과를 합쳐서 offset 부터 limit 개만 꺼낸다. 같은 값이면 앞 shard 가 먼저 나온다.
+final class KWayMerge {
+
+    private KWayMerge() {
+    }
+
+    static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> comparator, long offset, int limit) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()), (a, b) -> {
+            int result = comparator.compare(a.value, b.value);
+            return result != 0 ? result : Integer.compare(a.source, b.source);
+        });
+        for (int i = 0; i < sortedLists.size(); i++) {
+            Iterator<T> iterator = sortedLists.get(i).iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), i, iterator));
+            }
+        }
+
+        long available = 0;
+        for (List<T> sortedList : sortedLists) {
+            available += sortedList.size();
+        }
+        List<T> result = new ArrayList<>((int) Math.max(0, Math.min(limit, available - offset)));
+        long skipped = 0;
+        while (!heads.isEmpty() && result.size() < limit) {
+            Head<T> head = heads.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(head.value);
+            }
+            if (head.rest.hasNext()) {
+                heads.add(new Head<>(head.rest.next(), head.source, head.rest));
+            }
+        }
+        return result;
+    }
+
+    private static final class Head<T> {
+        private final T value;
+        private final int source;
+        private final Iterator<T> rest;
+
+        private Head(T value, int source, Iterator<T> rest) {
+            this.value = value;
+            this.source = source;
+            this.rest = rest;
+        }
+    }
+}
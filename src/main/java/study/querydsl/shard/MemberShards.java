@@ -0,0 +1,103 @@
+package study.querydsl.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * shard 별 EntityManagerFactory 묶음
+ *
+ * 팀 단위로 나눈다. 같은 팀의 회원과 팀은 항상 같은 shard 에 있으므로 팀 조인은 shard 안에서 끝난다.
+ * team_id 는 shard 마다 따로 발급되어 저장 전에는 알 수 없으므로, 라우팅 키는 팀 이름의 hash 를 쓴다.
+ * 팀이 없는 회원은 username 의 hash 로 나눈다.
+ *
+ * id 는 모든 shard 에서 유일하다. shard 마다 schema 를 따로 만들면 hibernate_sequence 가 전부 1 부터 시작하므로
+ * shard i 의 sequence 를 i + 1 부터 shard 수만큼 건너뛰게 바꾼다. (shard 3개면 1, 4, 7 / 2, 5, 8 / 3, 6, 9)
+ * 그래서 id 만 보고도 shard 를 알 수 있고(shardOfId), merge 의 id tiebreaker 가 전체 순서가 된다.
+ *
+ * EntityManagerFactory 를 빈으로 등록하면 기본 JPA 자동 설정이 빠지므로 빈으로 노출하지 않는다.
+ * shard 마다 Hikari 커넥션 풀을 따로 두고(pool-size), close() 에서 EntityManagerFactory 와 함께 닫는다.
+ */
+public class MemberShards {
+
+    private final List<EntityManagerFactory> factories;
+    private final List<HikariDataSource> dataSources;
+
+    public MemberShards(ShardProperties properties) {
+        List<EntityManagerFactory> factories = new ArrayList<>();
+        List<HikariDataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < properties.getCount(); i++) {
+            HikariDataSource dataSource = createDataSource(properties, i);
+            dataSources.add(dataSource);
+            factories.add(createEntityManagerFactory(dataSource, i));
+            stripeIdSequence(dataSource, i, properties.getCount());
+        }
+        this.factories = Collections.unmodifiableList(factories);
+        this.dataSources = Collections.unmodifiableList(dataSources);
+    }
+
+    public int size() {
+        return factories.size();
+    }
+
+    public EntityManagerFactory get(int shard) {
+        return factories.get(shard);
+    }
+
+    public int shardOf(String teamName, String username) {
+        String key = teamName != null ? teamName : username;
+        return key == null ? 0 : Math.floorMod(key.hashCode(), factories.size());
+    }
+
+    public int shardOfId(long id) {
+        return (int) Math.floorMod(id - 1, (long) factories.size());
+    }
+
+    public void close() {
+        for (EntityManagerFactory factory : factories) {
+            factory.close();
+        }
+        for (HikariDataSource dataSource : dataSources) {
+            dataSource.close();
+        }
+    }
+
+    private static HikariDataSource createDataSource(ShardProperties properties, int shard) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("member-shard-" + shard);
+        dataSource.setJdbcUrl(String.format(properties.getUrlTemplate(), shard));
+        dataSource.setUsername(properties.getUsername());
+        dataSource.setPassword(properties.getPassword());
+        dataSource.setMaximumPoolSize(properties.getPoolSize());
+        return dataSource;
+    }
+
+//    Member, Team 은 기본 @GeneratedValue 라 hibernate_sequence 하나를 같이 쓰고, increment 1 이라 optimizer 없이 nextval 값을 그대로 id 로 쓴다.
+    private static void stripeIdSequence(HikariDataSource dataSource, int shard, int count) {
+        new JdbcTemplate(dataSource).execute(String.format(
+                "alter sequence hibernate_sequence restart with %d increment by %d", shard + 1, count));
+    }
+
+    private static EntityManagerFactory createEntityManagerFactory(HikariDataSource dataSource, int shard) {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setPersistenceUnitName("member-shard-" + shard);
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("study.querydsl.entity");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+//        기본 EntityManagerFactory 와 같은 컬럼명이 나오도록 스프링 부트의 naming 전략을 그대로 쓴다.
+        factory.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "create-drop",
+                "hibernate.physical_naming_strategy", "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy",
+                "hibernate.implicit_naming_strategy", "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy"
+        ));
+        factory.afterPropertiesSet();
+        return factory.getObject();
+    }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.shard;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//member-shard.enabled=true 일 때만 등록. 기본 DataSource/EntityManager 와는 별개로 동작한다.
+@Configuration
+@EnableConfigurationProperties(ShardProperties.class)
+@ConditionalOnProperty(prefix = "member-shard", name = "enabled", havingValue = "true")
+public class ShardConfig {
+
+    @Bean(destroyMethod = "close")
+    public MemberShards memberShards(ShardProperties properties) {
+        return new MemberShards(properties);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ShardedMemberRepository shardedMemberRepository(MemberShards memberShards, ShardProperties properties) {
+        return new ShardedMemberRepository(memberShards, properties.getScatterThreads());
+    }
+}
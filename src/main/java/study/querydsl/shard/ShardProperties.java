@@ -0,0 +1,20 @@
+package study.querydsl.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+//회원 데이터를 여러 DB 에 나눠 저장한다. url 의 %d 자리에 shard 번호가 들어간다.
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member-shard")
+public class ShardProperties {
+    private boolean enabled = false;
+    private int count = 2;
+    private String urlTemplate = "jdbc:h2:mem:member-shard-%d;DB_CLOSE_DELAY=-1";
+    private String username = "sa";
+    private String password = "";
+//    shard 하나의 최대 커넥션 수. scatter 스레드가 모두 같은 shard 를 읽을 수도 있으므로 scatter-threads 보다 작지 않게 둔다.
+    private int poolSize = 4;
+    private int scatterThreads = 4;
+}
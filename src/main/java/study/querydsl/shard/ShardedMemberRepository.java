@@ -0,0 +1,323 @@
+package study.querydsl.shard;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberConditions;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.support.UnsupportedSortException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.CountQuerySupport.countQueryOf;
+
+/**
+ * 팀 단위로 나뉜 shard 에 대한 회원 검색. MemberRepositoryCustom 의 shard 구현
+ *
+ * teamName 조건이 있으면 그 팀이 있는 shard 하나만 조회하고,
+ * 없으면 모든 shard 를 병렬로 조회(scatter)한 뒤 정렬 순서대로 합친다(gather).
+ * 각 shard 는 offset + pageSize 개를 가져오고 k-way merge 로 전체 페이지를 만든다. count 는 shard 별 count 의 합.
+ * username 대소문자 무시 검색은 라우팅 키(팀 이름)를 모르므로 항상 모든 shard 를 읽는다.
+ *
+ * 페이징은 pageable 의 sort 를 따른다(id, username, age). searchPageSimple 과 searchPageComplex 는
+ * shard 안에서 count 를 먼저 세고 0 이면 content 를 읽지 않는 같은 방식이고,
+ * searchPageCountOptimization 은 content 만 먼저 모아서 첫/마지막 페이지면 count 를 생략한다.
+ *
+ * memberId, teamId 는 모든 shard 에서 유일하므로(MemberShards) 정렬 값이 같으면 id 순으로 나온다.
+ * shard 조회가 실패하면 CompletionException 을 벗겨서 원래 예외를 던진다.
+ * QueryDeadline 은 요청 스레드에 묶여 있으므로 scatter 스레드의 쿼리에는 적용되지 않는다.
+ */
+public class ShardedMemberRepository implements MemberRepositoryCustom {
+
+    private final MemberShards shards;
+//    ExecutorService 를 빈으로 노출하면 스프링 부트의 기본 TaskExecutor 가 빠지므로 여기서 직접 관리한다.
+    private final ExecutorService executor;
+
+    public ShardedMemberRepository(MemberShards shards, int scatterThreads) {
+        this.shards = shards;
+        this.executor = Executors.newFixedThreadPool(scatterThreads, daemon("member-shard-scatter"));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public void close() {
+        executor.shutdown();
+    }
+
+//    팀이 없으면 shard 안에서 새로 만든다. 같은 이름의 팀은 항상 같은 shard 로 간다.
+    public void save(String username, int age, String teamName) {
+        inTransaction(shards.shardOf(teamName, username), em -> {
+            Team memberTeam = null;
+            if (teamName != null) {
+                memberTeam = new JPAQueryFactory(em).selectFrom(team).where(team.name.eq(teamName)).fetchFirst();
+                if (memberTeam == null) {
+                    memberTeam = new Team(teamName);
+                    em.persist(memberTeam);
+                }
+            }
+            em.persist(new Member(username, age, memberTeam));
+            return null;
+        });
+    }
+
+    public void deleteAll() {
+        for (int i = 0; i < shards.size(); i++) {
+            inTransaction(i, em -> {
+                JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+                queryFactory.delete(member).execute();
+                queryFactory.delete(team).execute();
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public List<MemberTeamDto> searchByWhereParam(MemberSearchCondition condition) {
+        List<List<MemberTeamDto>> results = scatter(targetShards(condition), em -> searchQuery(em, condition)
+                .orderBy(member.id.asc())
+                .fetch());
+        return KWayMerge.merge(results, SortKey.ID.comparator, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<MemberTeamDto> searchByUsernameIgnoreCase(String username) {
+        Predicate usernameEqIgnoreCase = hasText(username)
+                ? member.usernameNormalized.eq(Member.normalizeUsername(username)) : null;
+        List<List<MemberTeamDto>> results = scatter(allShards(), em -> searchQuery(em, usernameEqIgnoreCase)
+                .orderBy(member.id.asc())
+                .fetch());
+        return KWayMerge.merge(results, SortKey.ID.comparator, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageComplex(condition, pageable);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        ShardOrder order = ShardOrder.of(pageable.getSort());
+//        각 shard 에서 앞의 offset 개가 전부 이 페이지 앞에 올 수도 있으므로 offset + pageSize 개를 가져와야 한다.
+        long fetchSize = pageable.getOffset() + pageable.getPageSize();
+        List<ShardPage> pages = scatter(targetShards(condition), em -> {
+            JPAQuery<MemberTeamDto> query = searchQuery(em, condition);
+            long total = countQueryOf(new JPAQueryFactory(em), query).fetchCount();
+            List<MemberTeamDto> content = total == 0 ? List.of() : query
+                    .orderBy(order.specifiers)
+                    .limit(fetchSize)
+                    .fetch();
+            return new ShardPage(content, total);
+        });
+
+        List<MemberTeamDto> content = KWayMerge.merge(
+                pages.stream().map(page -> page.content).collect(Collectors.toList()),
+                order.comparator, pageable.getOffset(), pageable.getPageSize());
+        long total = pages.stream().mapToLong(page -> page.total).sum();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+//    첫 페이지가 덜 찼거나 마지막 페이지면 PageableExecutionUtils 가 count 를 부르지 않는다. 필요할 때만 shard 별 count 를 다시 scatter 한다.
+    @Override
+    public Page<MemberTeamDto> searchPageCountOptimization(MemberSearchCondition condition, Pageable pageable) {
+        ShardOrder order = ShardOrder.of(pageable.getSort());
+        long fetchSize = pageable.getOffset() + pageable.getPageSize();
+        List<Integer> targets = targetShards(condition);
+        List<List<MemberTeamDto>> contents = scatter(targets, em -> searchQuery(em, condition)
+                .orderBy(order.specifiers)
+                .limit(fetchSize)
+                .fetch());
+
+        List<MemberTeamDto> content = KWayMerge.merge(contents, order.comparator,
+                pageable.getOffset(), pageable.getPageSize());
+        return PageableExecutionUtils.getPage(content, pageable, () -> scatter(targets, em ->
+                countQueryOf(new JPAQueryFactory(em), searchQuery(em, condition)).fetchCount())
+                .stream().mapToLong(Long::longValue).sum());
+    }
+
+    List<Integer> targetShards(MemberSearchCondition condition) {
+        if (hasText(condition.getTeamName())) {
+            return List.of(shards.shardOf(condition.getTeamName(), null));
+        }
+        return allShards();
+    }
+
+    private List<Integer> allShards() {
+        return IntStream.range(0, shards.size()).boxed().collect(Collectors.toList());
+    }
+
+    private <R> List<R> scatter(List<Integer> targets, Function<EntityManager, R> work) {
+        if (targets.size() == 1) {
+            return List.of(read(targets.get(0), work));
+        }
+        List<CompletableFuture<R>> futures = targets.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> read(shard, work), executor))
+                .collect(Collectors.toList());
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private <R> R read(int shard, Function<EntityManager, R> work) {
+        EntityManager em = shards.get(shard).createEntityManager();
+        try {
+            return work.apply(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    private <R> R inTransaction(int shard, Function<EntityManager, R> work) {
+        EntityManager em = shards.get(shard).createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            R result = work.apply(em);
+            tx.commit();
+            return result;
+        } catch (RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static JPAQuery<MemberTeamDto> searchQuery(EntityManager em, MemberSearchCondition condition) {
+        return searchQuery(em, MemberConditions.predicates(condition).toArray(new Predicate[0]));
+    }
+
+    private static JPAQuery<MemberTeamDto> searchQuery(EntityManager em, Predicate... where) {
+        return new JPAQueryFactory(em)
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(where);
+    }
+
+//    shard 조회 정렬과 merge 정렬. shard 안의 순서와 merge 순서가 같아야 하므로 id 를 마지막 정렬 기준으로 고정한다.
+    private static final class ShardOrder {
+        private final OrderSpecifier<?>[] specifiers;
+        private final Comparator<MemberTeamDto> comparator;
+
+        private ShardOrder(OrderSpecifier<?>[] specifiers, Comparator<MemberTeamDto> comparator) {
+            this.specifiers = specifiers;
+            this.comparator = comparator;
+        }
+
+        private static ShardOrder of(Sort sort) {
+            List<SortKey> sortKeys = new ArrayList<>();
+            List<OrderSpecifier<?>> orders = new ArrayList<>();
+            Comparator<MemberTeamDto> comparator = null;
+            for (Sort.Order order : sort) {
+                SortKey key = SortKey.of(order.getProperty());
+                sortKeys.add(key);
+                orders.add(order.isAscending() ? key.ascending : key.descending);
+                Comparator<MemberTeamDto> next = order.isAscending() ? key.comparator : key.comparator.reversed();
+                comparator = comparator == null ? next : comparator.thenComparing(next);
+            }
+            if (!sortKeys.contains(SortKey.ID)) {
+                orders.add(member.id.asc());
+                comparator = comparator == null ? SortKey.ID.comparator : comparator.thenComparing(SortKey.ID.comparator);
+            }
+            return new ShardOrder(orders.toArray(new OrderSpecifier<?>[0]), comparator);
+        }
+    }
+
+    private static final class ShardPage {
+        private final List<MemberTeamDto> content;
+        private final long total;
+
+        private ShardPage(List<MemberTeamDto> content, long total) {
+            this.content = content;
+            this.total = total;
+        }
+    }
+
+//    shard 조회 정렬(OrderSpecifier)과 merge 정렬(Comparator)은 같은 기준이어야 한다.
+//    H2 는 null 을 asc 에서 먼저 정렬하므로 Comparator 도 nullsFirst.
+    private enum SortKey {
+        ID("id", member.id.asc(), member.id.desc(),
+                Comparator.comparing(MemberTeamDto::getMemberId)),
+        USERNAME("username", member.username.asc(), member.username.desc(),
+                Comparator.comparing(MemberTeamDto::getUsername, Comparator.nullsFirst(Comparator.naturalOrder()))),
+        AGE("age", member.age.asc(), member.age.desc(),
+                Comparator.comparingInt(MemberTeamDto::getAge));
+
+        private static final Map<String, SortKey> BY_PROPERTY = Arrays.stream(values())
+                .collect(Collectors.toMap(key -> key.property, Function.identity()));
+
+        private final String property;
+        private final OrderSpecifier<?> ascending;
+        private final OrderSpecifier<?> descending;
+        private final Comparator<MemberTeamDto> comparator;
+
+        SortKey(String property, OrderSpecifier<?> ascending, OrderSpecifier<?> descending, Comparator<MemberTeamDto> comparator) {
+            this.property = property;
+            this.ascending = ascending;
+            this.descending = descending;
+            this.comparator = comparator;
+        }
+
+        static SortKey of(String property) {
+            SortKey key = BY_PROPERTY.get(property);
+            if (key == null) {
+                throw new UnsupportedSortException(property, BY_PROPERTY.keySet());
+            }
+            return key;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.sql;
+
+import com.querydsl.sql.SQLBaseListener;
+import com.querydsl.sql.SQLListenerContext;
+import org.springframework.dao.QueryTimeoutException;
+import study.querydsl.deadline.QueryDeadline;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+//DeadlineJPAQuery 와 같은 역할. 요청 deadline 의 남은 시간을 JDBC query timeout 으로 넣는다.
+public class DeadlineSQLListener extends SQLBaseListener {
+
+    @Override
+    public void prepared(SQLListenerContext context) {
+        QueryDeadline deadline = QueryDeadline.current();
+        PreparedStatement statement = context.getPreparedStatement();
+        if (deadline == null || statement == null) {
+            return;
+        }
+        if (deadline.isExpired()) {
+            throw new QueryTimeoutException("Query deadline exceeded before execution");
+        }
+        try {
+//            JDBC timeout 은 초 단위이므로 올림
+            statement.setQueryTimeout((int) Math.max(1, (deadline.remainingMillis() + 999) / 1000));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package study.querydsl.sql;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.counter.MemberCounters;
+import study.querydsl.dictionary.TeamDictionary;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.support.SortPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.sql.SMember.member;
+import static study.querydsl.sql.STeam.team;
+import static study.querydsl.repository.support.FastProjections.fast;
+
+/**
+ * MemberRepositoryCustom 의 querydsl-sql 구현
+ *
+ * 결과가 스칼라 컬럼뿐인 DTO 검색은 JPQL 변환, 엔티티 결과 처리, auto flush 확인이 필요 없으므로 JDBC 로 바로 조회한다.
+ * JPA 를 거치지 않으므로 아직 flush 되지 않은 변경은 보이지 않는다. (읽기 전용 요청에서만 사용)
+ * SpringConnectionProvider 는 트랜잭션 안에서만 커넥션을 주므로 readOnly 트랜잭션을 건다.
+ *
+ * 정렬은 JPA 구현과 같은 키(id, username, age, name -> username)만 허용하고 member_id 를 tiebreaker 로 붙인다.
+ * 팀 사전(TeamDictionary)이 있으면 teamName 조건을 team id 조건으로 바꿔 member 만 읽는다.
+ */
+@Transactional(readOnly = true)
+public class MemberSqlRepository implements MemberRepositoryCustom {
+
+//    MemberTestRepository.MEMBER_SORT_POLICY 와 같은 키를 SMember 컬럼으로 만든다.
+    private static final SortPolicy MEMBER_SORT_POLICY = SortPolicy.builder("id", member.memberId)
+            .indexed("username", member.username)
+            .indexed("age", member.age)
+            .rewrite("name", "username")
+            .build();
+
+    private final SQLQueryFactory queryFactory;
+    private final ObjectProvider<MemberCounters> memberCounters;
+    private final ObjectProvider<TeamDictionary> teamDictionary;
+
+    public MemberSqlRepository(SQLQueryFactory queryFactory, ObjectProvider<MemberCounters> memberCounters,
+                               ObjectProvider<TeamDictionary> teamDictionary) {
+        this.queryFactory = queryFactory;
+        this.memberCounters = memberCounters;
+        this.teamDictionary = teamDictionary;
+    }
+
+    @Override
+    public List<MemberTeamDto> searchByWhereParam(MemberSearchCondition condition) {
+        return fetchContent(condition, Pageable.unpaged());
+    }
+
+    @Override
+    public List<MemberTeamDto> searchByUsernameIgnoreCase(String username) {
+        TeamDictionary dictionary = usableDictionary();
+        if (dictionary != null) {
+            return dictionary.fillTeamNames(memberContentQuery(usernameEqIgnoreCase(username)).fetch());
+        }
+        return contentQuery(usernameEqIgnoreCase(username)).fetch();
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageComplex(condition, pageable);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = fetchContent(condition, pageable);
+        return new PageImpl<>(content, pageable, count(condition));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageCountOptimization(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = fetchContent(condition, pageable);
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(condition));
+    }
+
+//    팀 사전(team-dictionary.enabled)을 쓸 수 있으면 team join 없이 member 만 읽고 teamName 은 사전에서 채운다.
+//    없는 팀 이름이면 쿼리 없이 빈 결과.
+    private List<MemberTeamDto> fetchContent(MemberSearchCondition condition, Pageable pageable) {
+        TeamDictionary dictionary = usableDictionary();
+        if (dictionary == null) {
+            return paged(contentQuery(searchCondition(condition)), pageable).fetch();
+        }
+        Predicate[] where = searchCondition(condition, dictionary);
+        if (where == null) {
+            return new ArrayList<>();
+        }
+        return dictionary.fillTeamNames(paged(memberContentQuery(where), pageable).fetch());
+    }
+
+//    정렬이 없어도 member_id 순으로 정렬해서 페이지 경계가 실행마다 달라지지 않게 한다.
+    private static <T> SQLQuery<T> paged(SQLQuery<T> query, Pageable pageable) {
+        query.orderBy(MEMBER_SORT_POLICY.toOrderSpecifiers(pageable.getSort()));
+        if (pageable.isPaged()) {
+            query.offset(pageable.getOffset())
+                    .limit(pageable.getPageSize());
+        }
+        return query;
+    }
+
+    private SQLQuery<MemberTeamDto> contentQuery(Predicate... where) {
+        return queryFactory
+                .select(fast(new QMemberTeamDto(
+                        member.memberId,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name
+                )))
+                .from(member)
+                .leftJoin(member.teamFk, team)
+                .where(where);
+    }
+
+//    team 을 join 하지 않는다. teamId 는 member 의 FK 컬럼, teamName 은 TeamDictionary.fillTeamNames 로 채운다.
+    private SQLQuery<MemberTeamDto> memberContentQuery(Predicate... where) {
+        return queryFactory
+                .select(fast(new QMemberTeamDto(
+                        member.memberId,
+                        member.username,
+                        member.age,
+                        member.teamId,
+                        Expressions.nullExpression(String.class)
+                )))
+                .from(member)
+                .where(where);
+    }
+
+//    조건이 없거나 teamName 만 있으면 count 쿼리 대신 회원 수 counter(member-counter.enabled) 를 쓴다
+    private long count(MemberSearchCondition condition) {
+        MemberCounters counters = memberCounters.getIfAvailable();
+        OptionalLong exactCount = counters != null ? counters.countOf(condition) : OptionalLong.empty();
+        if (exactCount.isPresent()) {
+            return exactCount.getAsLong();
+        }
+        TeamDictionary dictionary = usableDictionary();
+        if (dictionary != null) {
+            Predicate[] where = searchCondition(condition, dictionary);
+            return where == null ? 0 : queryFactory.from(member).where(where).fetchCount();
+        }
+        return countQuery(condition).fetchCount();
+    }
+
+//    teamName 조건이 없으면 team join 은 count 에 영향이 없으므로 member 만 센다.
+    private SQLQuery<?> countQuery(MemberSearchCondition condition) {
+        SQLQuery<?> query = queryFactory.from(member);
+        if (hasText(condition.getTeamName())) {
+            query.leftJoin(member.teamFk, team);
+        }
+        return query.where(searchCondition(condition));
+    }
+
+    private TeamDictionary usableDictionary() {
+        TeamDictionary dictionary = teamDictionary.getIfAvailable();
+        return dictionary != null && dictionary.isUsable() ? dictionary : null;
+    }
+
+    private static Predicate[] searchCondition(MemberSearchCondition condition) {
+        return new Predicate[]{
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+//    teamName 을 사전으로 team id 조건(member.team_id = ? / in (...))으로 바꾼다. 없는 팀 이름이면 null
+    private static Predicate[] searchCondition(MemberSearchCondition condition, TeamDictionary dictionary) {
+        BooleanExpression teamIdIn = null;
+        if (hasText(condition.getTeamName())) {
+            List<Long> teamIds = dictionary.teamIdsOf(condition.getTeamName());
+            if (teamIds.isEmpty()) {
+                return null;
+            }
+            teamIdIn = teamIds.size() == 1 ? member.teamId.eq(teamIds.get(0)) : member.teamId.in(teamIds);
+        }
+        return new Predicate[]{
+                usernameEq(condition.getUsername()),
+                teamIdIn,
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    private static BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private static BooleanExpression usernameEqIgnoreCase(String username) {
+        return hasText(username) ? member.usernameNormalized.eq(Member.normalizeUsername(username)) : null;
+    }
+
+    private static BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private static BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private static BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
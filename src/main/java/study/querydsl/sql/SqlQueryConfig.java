@@ -0,0 +1,35 @@
+package study.querydsl.sql;
+
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.spring.SpringConnectionProvider;
+import com.querydsl.sql.spring.SpringExceptionTranslator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.counter.MemberCounters;
+import study.querydsl.dictionary.TeamDictionary;
+
+import javax.sql.DataSource;
+
+//querydsl-sql.enabled=true 이면 /v1 ~ /v3/members 가 MemberSqlRepository 로 조회한다. 끄면 기존 JPA 구현을 그대로 쓴다.
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl-sql", name = "enabled", havingValue = "true")
+public class SqlQueryConfig {
+
+    @Bean
+    public SQLQueryFactory sqlQueryFactory(DataSource dataSource) {
+        com.querydsl.sql.Configuration configuration = new com.querydsl.sql.Configuration(H2Templates.builder().build());
+        configuration.setExceptionTranslator(new SpringExceptionTranslator());
+        configuration.addListener(new DeadlineSQLListener());
+        return new SQLQueryFactory(configuration, new SpringConnectionProvider(dataSource));
+    }
+
+    @Bean
+    public MemberSqlRepository memberSqlRepository(SQLQueryFactory sqlQueryFactory,
+                                                   ObjectProvider<MemberCounters> memberCounters,
+                                                   ObjectProvider<TeamDictionary> teamDictionary) {
+        return new MemberSqlRepository(sqlQueryFactory, memberCounters, teamDictionary);
+    }
+}
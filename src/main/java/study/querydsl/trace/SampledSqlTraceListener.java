@@ -0,0 +1,92 @@
+package study.querydsl.trace;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+//p6spy-spring-boot-starter 가 JdbcEventListener 빈을 찾아서 등록한다.
+//샘플링에 걸렸거나 느린 SQL 만 ring buffer 에 넣고 바로 리턴한다.
+//getSqlWithValues() 는 바인딩 값을 문자열로 만들어 SQL 에 끼워 넣으므로 요청 스레드에서 부르지 않는다.
+//원본 SQL 과 바인딩 값만 담고, 값을 끼워 넣는 일은 SqlTraceWriter 스레드에서 한다.
+public class SampledSqlTraceListener extends JdbcEventListener {
+
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final SqlTraceRingBuffer buffer;
+    private final ThreadLocal<BindValues> bindValues = ThreadLocal.withInitial(BindValues::new);
+
+    public SampledSqlTraceListener(SqlTraceProperties properties, SqlTraceRingBuffer buffer) {
+        this.sampleRate = properties.getSampleRate();
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void onAfterPreparedStatementSet(PreparedStatementInformation statementInformation, int parameterIndex, Object value, SQLException e) {
+        bindValues.get().set(statementInformation, parameterIndex, value);
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        BindValues binds = bindValues.get();
+        boolean slow = timeElapsedNanos >= slowThresholdNanos;
+        if (!slow && e == null && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            binds.clear();
+            return;
+        }
+        Object[] values = binds.snapshot(statementInformation);
+        binds.clear();
+        buffer.offer(new SqlTrace(
+                statementInformation.getSql(),
+                values,
+                timeElapsedNanos,
+                slow,
+                e != null,
+                Thread.currentThread().getName(),
+                System.currentTimeMillis()
+        ));
+    }
+
+//    스레드 하나가 실행 중인 statement 의 바인딩 값. 다른 statement 의 값이 섞이지 않도록 statement 도 같이 기억한다.
+    private static final class BindValues {
+        private StatementInformation statement;
+        private Object[] values = new Object[16];
+        private int count;
+
+        void set(StatementInformation statementInformation, int parameterIndex, Object value) {
+            if (statement != statementInformation) {
+                clear();
+                statement = statementInformation;
+            }
+            int index = parameterIndex - 1;
+            if (index < 0) {
+                return;
+            }
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, index + 1));
+            }
+            values[index] = value;
+            count = Math.max(count, index + 1);
+        }
+
+        Object[] snapshot(StatementInformation statementInformation) {
+            if (statement != statementInformation || count == 0) {
+                return NO_VALUES;
+            }
+            return Arrays.copyOf(values, count);
+        }
+
+//        statement 와 값을 붙잡고 있지 않도록 실행이 끝나면 비운다
+        void clear() {
+            Arrays.fill(values, 0, count, null);
+            count = 0;
+            statement = null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package study.querydsl.trace;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * SQL fingerprint 별 실행 횟수, 처리 row 수, latency histogram 수집기
+ *
+ * p6spy 의 JdbcEventListener 로 등록되어 모든 statement 실행 후에 호출된다.
+ * prepared SQL 문자열은 종류가 많지 않으므로 fingerprint 계산 결과를 캐시한다.
+ * literal 이 박힌 SQL 이나 모양이 계속 바뀌는 SQL 이 들어와도 메모리가 끝없이 늘지 않도록
+ * 캐시와 통계 모두 상한을 둔다. 통계는 상한에 닿으면 실행 횟수가 가장 적은 fingerprint 를 버린다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "sql-stats", name = "enabled", havingValue = "true")
+public class SqlFingerprintCollector extends JdbcEventListener {
+
+    private static final int MAX_CACHED_SQL = 10_000;
+    private static final int MAX_FINGERPRINTS = 1_000;
+
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final Map<String, SqlFingerprintStats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        statsOf(statementInformation.getSql()).recordExecution(timeElapsedNanos, e != null);
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos, int rowCount, SQLException e) {
+        statsOf(statementInformation.getSql()).recordRows(Math.max(0, rowCount));
+        super.onAfterExecuteUpdate(statementInformation, timeElapsedNanos, rowCount, e);
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(StatementInformation statementInformation, long timeElapsedNanos, String sql, int rowCount, SQLException e) {
+        statsOf(sql).recordRows(Math.max(0, rowCount));
+        super.onAfterExecuteUpdate(statementInformation, timeElapsedNanos, sql, rowCount, e);
+    }
+
+//    currRow 는 -1 부터 시작해서 next() 가 row 를 돌려줄 때마다 증가한다
+    @Override
+    public void onAfterResultSetClose(ResultSetInformation resultSetInformation, SQLException e) {
+        statsOf(resultSetInformation.getStatementInformation().getSql())
+                .recordRows(Math.max(0, resultSetInformation.getCurrRow() + 1));
+    }
+
+    public List<SqlFingerprintStats> top(int limit) {
+        return stats.values().stream()
+                .sorted(Comparator.comparingLong(SqlFingerprintStats::getTotalNanos).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        stats.clear();
+        fingerprints.clear();
+    }
+
+    public int size() {
+        return stats.size();
+    }
+
+    private SqlFingerprintStats statsOf(String sql) {
+        String fingerprint = fingerprintOf(sql == null ? "" : sql);
+        SqlFingerprintStats found = stats.get(fingerprint);
+        if (found != null) {
+            return found;
+        }
+        if (stats.size() >= MAX_FINGERPRINTS) {
+            evictLeastUsed();
+        }
+        return stats.computeIfAbsent(fingerprint, SqlFingerprintStats::new);
+    }
+
+//    새 fingerprint 가 들어올 때만 도는 O(n) 탐색. 같은 모양의 SQL 은 위의 get 에서 끝난다.
+    private void evictLeastUsed() {
+        stats.values().stream()
+                .min(Comparator.comparingLong(SqlFingerprintStats::getCalls))
+                .ifPresent(least -> stats.remove(least.getFingerprint(), least));
+    }
+
+    private String fingerprintOf(String sql) {
+        String fingerprint = fingerprints.get(sql);
+        if (fingerprint != null) {
+            return fingerprint;
+        }
+        fingerprint = SqlFingerprint.of(sql);
+//        literal 이 박힌 SQL 이 계속 들어오면 캐시가 가득 찬다. 비우고 다시 채워서 지금 자주 쓰는 SQL 이 남게 한다.
+        if (fingerprints.size() >= MAX_CACHED_SQL) {
+            fingerprints.clear();
+        }
+        fingerprints.put(sql, fingerprint);
+        return fingerprint;
+    }
+}
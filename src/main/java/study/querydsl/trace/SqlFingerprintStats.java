@@ -0,0 +1,62 @@
+package study.querydsl.trace;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//fingerprint 하나에 대한 누적 통계. 모든 필드가 lock 없이 갱신된다.
+public class SqlFingerprintStats {
+
+    @Getter
+    private final String fingerprint;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    public SqlFingerprintStats(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    void recordExecution(long elapsedNanos, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulate(elapsedNanos);
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+
+    void recordRows(long count) {
+        rows.add(count);
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long percentileMicros(double p) {
+        return histogram.percentile(p);
+    }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.trace;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.SqlStatsDto;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+//총 실행 시간이 큰 순서로 SQL 모양별 통계를 보여준다. 예시 : GET /actuator/sqlstats?limit=10, 초기화는 DELETE /actuator/sqlstats
+//actuator endpoint 라서 management.endpoints.web.exposure.include 에 sqlstats 를 넣어야 열린다.
+@Component
+@Endpoint(id = "sqlstats")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "sql-stats", name = "enabled", havingValue = "true")
+public class SqlStatsEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final SqlFingerprintCollector sqlFingerprintCollector;
+
+    @ReadOperation
+    public List<SqlStatsDto> sqlStats(@Nullable Integer limit) {
+        return sqlFingerprintCollector.top(limit == null ? DEFAULT_LIMIT : limit).stream()
+                .map(SqlStatsDto::new)
+                .collect(Collectors.toList());
+    }
+
+    @DeleteOperation
+    public void resetSqlStats() {
+        sqlFingerprintCollector.reset();
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.trace;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+//요청 스레드에서는 원본 SQL 과 바인딩 값만 담고, 값을 끼워 넣는 일과 포맷팅은 SqlTraceWriter 스레드에서 한다.
+@Getter
+@RequiredArgsConstructor
+public class SqlTrace {
+    private final String sql;
+    private final Object[] bindValues;
+    private final long elapsedNanos;
+    private final boolean slow;
+    private final boolean failed;
+    private final String threadName;
+    private final long timestamp;
+}
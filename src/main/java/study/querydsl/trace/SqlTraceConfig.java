@@ -0,0 +1,28 @@
+package study.querydsl.trace;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//sql-trace.enabled=true 일 때만 등록. p6spy 의 전체 로깅(decorator.datasource.p6spy.enable-logging)은 끄고 사용한다.
+@Configuration
+@EnableConfigurationProperties(SqlTraceProperties.class)
+@ConditionalOnProperty(prefix = "sql-trace", name = "enabled", havingValue = "true")
+public class SqlTraceConfig {
+
+    @Bean
+    public SqlTraceRingBuffer sqlTraceRingBuffer(SqlTraceProperties properties) {
+        return new SqlTraceRingBuffer(properties.getBufferSize());
+    }
+
+    @Bean
+    public SampledSqlTraceListener sampledSqlTraceListener(SqlTraceProperties properties, SqlTraceRingBuffer buffer) {
+        return new SampledSqlTraceListener(properties, buffer);
+    }
+
+    @Bean(destroyMethod = "close")
+    public SqlTraceWriter sqlTraceWriter(SqlTraceProperties properties, SqlTraceRingBuffer buffer) {
+        return new SqlTraceWriter(properties, buffer);
+    }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.trace;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//모든 SQL을 로깅하는 대신 일부만 샘플링하고, 느린 SQL은 항상 남긴다.
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "sql-trace")
+public class SqlTraceProperties {
+    private boolean enabled = false;
+    private double sampleRate = 0.01; // 0.0 ~ 1.0
+    private Duration slowThreshold = Duration.ofMillis(200);
+    private int bufferSize = 1024;
+    private Duration flushInterval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,72 @@
+package study.querydsl.trace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 여러 요청 스레드가 쓰고 하나의 writer 스레드가 읽는 고정 크기 ring buffer
+ *
+ * 쓰기는 lock 없이 순번(sequence)만 증가시키고, 가득 차면 오래된 trace 를 덮어쓴다.
+ * 요청 스레드가 로깅 때문에 기다리는 일은 없고, 대신 유실된 건수를 센다.
+ */
+public class SqlTraceRingBuffer {
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private long cursor; // drain() 에서만 접근
+
+    public SqlTraceRingBuffer(int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public void offer(SqlTrace trace) {
+        long sequence = head.getAndIncrement();
+        slots.lazySet((int) (sequence & mask), new Slot(sequence, trace));
+    }
+
+    public synchronized int drain(Consumer<SqlTrace> consumer) {
+        long end = head.get();
+        if (end - cursor > slots.length()) {
+            lost.addAndGet(end - slots.length() - cursor);
+            cursor = end - slots.length();
+        }
+        int drained = 0;
+        while (cursor < end) {
+            Slot slot = slots.get((int) (cursor & mask));
+//            순번은 받았지만 아직 slot 에 쓰지 않은 경우. 다음 drain 에서 다시 읽는다.
+            if (slot == null || slot.sequence < cursor) {
+                break;
+            }
+            if (slot.sequence == cursor) {
+                consumer.accept(slot.trace);
+                drained++;
+            } else {
+                lost.incrementAndGet(); // 읽기 전에 한 바퀴 돌아서 덮어써짐
+            }
+            cursor++;
+        }
+        return drained;
+    }
+
+    public long getLost() {
+        return lost.get();
+    }
+
+    private static final class Slot {
+        private final long sequence;
+        private final SqlTrace trace;
+
+        private Slot(long sequence, SqlTrace trace) {
+            this.sequence = sequence;
+            this.trace = trace;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.trace;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.jdbc.internal.FormatStyle;
+
+import java.util.HexFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//ring buffer 를 주기적으로 비우면서 SQL 포맷팅과 로깅을 요청 스레드 밖에서 처리한다.
+@Slf4j
+public class SqlTraceWriter implements AutoCloseable {
+
+    private final SqlTraceRingBuffer buffer;
+    private final ScheduledExecutorService executor;
+    private long reportedLost;
+
+    public SqlTraceWriter(SqlTraceProperties properties, SqlTraceRingBuffer buffer) {
+        this.buffer = buffer;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sql-trace-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void flush() {
+        try {
+            buffer.drain(this::write);
+            long lost = buffer.getLost();
+            if (lost > reportedLost) {
+                log.warn("sql-trace buffer overflow. {} traces dropped", lost - reportedLost);
+                reportedLost = lost;
+            }
+        } catch (RuntimeException e) {
+            log.warn("sql-trace flush failed", e);
+        }
+    }
+
+    private void write(SqlTrace trace) {
+        String sql = FormatStyle.BASIC.getFormatter().format(withValues(trace.getSql(), trace.getBindValues()));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(trace.getElapsedNanos());
+        if (trace.isSlow() || trace.isFailed()) {
+            log.warn("[{}] {}ms slow={} failed={}{}", trace.getThreadName(), elapsedMillis, trace.isSlow(), trace.isFailed(), sql);
+        } else {
+            log.info("[{}] {}ms{}", trace.getThreadName(), elapsedMillis, sql);
+        }
+    }
+
+//    ? 자리에 바인딩 값을 순서대로 끼워 넣는다. 값이 모자라면 남은 ? 는 그대로 둔다.
+    static String withValues(String sql, Object[] values) {
+        if (sql == null || values == null || values.length == 0) {
+            return sql;
+        }
+        StringBuilder builder = new StringBuilder(sql.length() + values.length * 8);
+        int index = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?' && index < values.length) {
+                builder.append(literalOf(values[index++]));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String literalOf(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof byte[]) {
+            return "X'" + HexFormat.of().formatHex((byte[]) value) + "'";
+        }
+        return "'" + value.toString().replace("'", "''") + "'";
+    }
+
+//    종료 시 남은 trace 를 마저 기록
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
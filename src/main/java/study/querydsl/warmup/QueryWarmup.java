@@ -0,0 +1,172 @@
+package study.querydsl.warmup;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.paging.AdaptiveMemberPaging;
+import study.querydsl.sql.MemberSqlRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * /v1 ~ /v4/members 가 쓰는 쿼리를 readiness 전에 미리 실행한다.
+ *
+ * 스프링 부트는 ApplicationRunner 가 모두 끝난 뒤에 ReadinessState.ACCEPTING_TRAFFIC 을 발행하므로
+ * 여기서 warm-up 이 끝나기 전에는 /actuator/health/readiness 가 OUT_OF_SERVICE 이다.
+ *
+ * - 커넥션 풀: 최대 개수만큼 커넥션을 동시에 열었다 닫는다.
+ * - 쿼리: MemberSearchCondition 의 조건 유무 조합(16개)마다 v1 쿼리와, 첫 페이지/다음 페이지로
+ *   MemberRepositoryCustom 의 페이징 3가지와 MemberPagingRepository 의 페이징 3가지(/v4 의 모든 PagingStrategy)를 실행해서
+ *   (querydsl-sql 이 켜져 있으면 MemberSqlRepository 의 v1 ~ v3 쿼리도)
+ *   Hibernate HQL plan 캐시와 Querydsl 직렬화 경로를 채운다. 조건 값은 아무 것도 매칭되지 않는 값을 쓰고, 트랜잭션은 롤백한다.
+ * - JIT: 위를 iterations 번 반복한다.
+ */
+@Slf4j
+public class QueryWarmup implements ApplicationRunner, InfoContributor {
+
+    private static final String NO_MATCH = "__warmup__";
+
+    private final WarmupProperties properties;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberRepository memberRepository;
+    private final ObjectProvider<MemberSqlRepository> memberSqlRepository;
+
+    private volatile WarmupReport report;
+
+    public QueryWarmup(WarmupProperties properties, DataSource dataSource, TransactionTemplate transactionTemplate,
+                       MemberJpaRepository memberJpaRepository, MemberRepository memberRepository,
+                       ObjectProvider<MemberSqlRepository> memberSqlRepository) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.transactionTemplate = transactionTemplate;
+        this.memberJpaRepository = memberJpaRepository;
+        this.memberRepository = memberRepository;
+        this.memberSqlRepository = memberSqlRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        long start = System.nanoTime();
+        int connections = fillConnectionPool();
+
+        List<MemberSearchCondition> shapes = conditionShapes();
+        int queries = 0;
+        Duration firstPass = Duration.ZERO;
+        Duration lastPass = Duration.ZERO;
+        for (int i = 0; i < properties.getIterations(); i++) {
+            long passStart = System.nanoTime();
+            queries = runAll(shapes);
+            lastPass = Duration.ofNanos(System.nanoTime() - passStart);
+            if (i == 0) {
+                firstPass = lastPass;
+            }
+        }
+
+        report = new WarmupReport(Duration.ofNanos(System.nanoTime() - start), shapes.size(), queries, connections,
+                properties.getIterations(), firstPass, lastPass);
+        log.info("{}", report);
+    }
+
+    public WarmupReport getReport() {
+        return report;
+    }
+
+//    /actuator/info 에 warm-up 결과를 노출한다.
+    @Override
+    public void contribute(Info.Builder builder) {
+        if (report != null) {
+            builder.withDetail("warmup", report.toString());
+        }
+    }
+
+    private int fillConnectionPool() throws SQLException {
+        int size = properties.getConnections();
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            size = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        }
+//        동시에 잡고 있어야 풀이 새 커넥션을 만든다.
+        List<Connection> opened = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                Connection connection = dataSource.getConnection();
+                opened.add(connection);
+                connection.isValid(1);
+            }
+        } finally {
+            for (Connection connection : opened) {
+                connection.close();
+            }
+        }
+        return opened.size();
+    }
+
+//    실행한 쿼리 메서드 호출 수를 돌려준다.
+    private int runAll(List<MemberSearchCondition> shapes) {
+        List<Pageable> pages = List.of(PageRequest.of(0, 1), PageRequest.of(1, 1));
+        MemberSqlRepository sqlRepository = memberSqlRepository.getIfAvailable();
+        return transactionTemplate.execute(status -> {
+            int queries = 0;
+            for (MemberSearchCondition condition : shapes) {
+                memberJpaRepository.searchByWhereParam(condition);
+                queries++;
+                for (Pageable page : pages) {
+                    queries += runPages(memberRepository, condition, page);
+//                    /v4 의 PagingStrategy 들. AdaptiveMemberPaging 을 거치면 warm-up 지연시간이 방식 선택에 섞이므로 직접 부른다.
+                    memberRepository.searchPageCappedCount(condition, page, AdaptiveMemberPaging.COUNT_CAP);
+                    memberRepository.searchPageIdsFirst(condition, page);
+                    memberRepository.searchPageWindowCount(condition, page);
+                    queries += 3;
+                }
+                if (sqlRepository != null) {
+                    sqlRepository.searchByWhereParam(condition);
+                    queries++;
+                    for (Pageable page : pages) {
+                        queries += runPages(sqlRepository, condition, page);
+                    }
+                }
+            }
+            status.setRollbackOnly();
+            return queries;
+        });
+    }
+
+//    /v2(searchPageSimple), /v3(searchPageComplex), /v4 SKIP_COUNT(searchPageCountOptimization)
+    private static int runPages(MemberRepositoryCustom repository, MemberSearchCondition condition, Pageable page) {
+        repository.searchPageSimple(condition, page);
+        repository.searchPageComplex(condition, page);
+        repository.searchPageCountOptimization(condition, page);
+        return 3;
+    }
+
+//    where 절 모양은 조건 값이 아니라 null 여부로 결정되므로 4개 조건의 유무 조합만 만들면 된다.
+    static List<MemberSearchCondition> conditionShapes() {
+        List<MemberSearchCondition> shapes = new ArrayList<>();
+        for (int mask = 0; mask < 16; mask++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((mask & 1) != 0 ? NO_MATCH : null);
+            condition.setTeamName((mask & 2) != 0 ? NO_MATCH : null);
+            condition.setAgeGoe((mask & 4) != 0 ? Integer.MAX_VALUE : null);
+            condition.setAgeLoe((mask & 8) != 0 ? Integer.MIN_VALUE : null);
+            shapes.add(condition);
+        }
+        return shapes;
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.warmup;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.sql.MemberSqlRepository;
+
+import javax.sql.DataSource;
+
+//warmup.enabled=true 일 때만 등록.
+@Configuration
+@EnableConfigurationProperties(WarmupProperties.class)
+@ConditionalOnProperty(prefix = "warmup", name = "enabled", havingValue = "true")
+public class WarmupConfig {
+
+    @Bean
+    public QueryWarmup queryWarmup(WarmupProperties properties, DataSource dataSource, PlatformTransactionManager transactionManager,
+                                   MemberJpaRepository memberJpaRepository, MemberRepository memberRepository,
+                                   ObjectProvider<MemberSqlRepository> memberSqlRepository) {
+        return new QueryWarmup(properties, dataSource, new TransactionTemplate(transactionManager),
+                memberJpaRepository, memberRepository, memberSqlRepository);
+    }
+}
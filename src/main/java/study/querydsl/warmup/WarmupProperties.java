@@ -0,0 +1,15 @@
+package study.querydsl.warmup;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+//배포 직후 느린 첫 요청들을 줄이기 위해 readiness 전에 쿼리/JIT/커넥션 풀을 미리 데운다.
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "warmup")
+public class WarmupProperties {
+    private boolean enabled = false;
+    private int iterations = 30;
+    private int connections = 10; // HikariDataSource 가 아니면 이 개수만큼 커넥션을 연다
+}
@@ -0,0 +1,37 @@
+package study.querydsl.warmup;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+//warm-up 결과. pass 는 모든 쿼리(queries 개)를 매칭되지 않는 조건 값으로 한번씩 실행하고 롤백하는 한 바퀴.
+//firstPass 는 캐시/JIT 가 빈 상태의 첫 번째 pass, lastPass 는 iterations 번째 pass 의 시간이다. 실제 요청의 지연시간은 아니다.
+@Getter
+public class WarmupReport {
+    private final Duration elapsed;
+    private final int shapes;
+    private final int queries;
+    private final int connections;
+    private final int passes;
+    private final Duration firstPass;
+    private final Duration lastPass;
+
+    public WarmupReport(Duration elapsed, int shapes, int queries, int connections, int passes,
+                        Duration firstPass, Duration lastPass) {
+        this.elapsed = elapsed;
+        this.shapes = shapes;
+        this.queries = queries;
+        this.connections = connections;
+        this.passes = passes;
+        this.firstPass = firstPass;
+        this.lastPass = lastPass;
+    }
+
+    @Override
+    public String toString() {
+        return "warm-up took " + elapsed.toMillis() + "ms (" + shapes + " condition shapes, " + queries
+                + " query calls per pass, " + connections + " connections)"
+                + ", time per pass (no-match values, rolled back): first " + firstPass.toMillis()
+                + "ms, last of " + passes + " passes " + lastPass.toMillis() + "ms";
+    }
+}
@@ -0,0 +1,294 @@
+package study.querydsl.writebehind;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 회원 속성 변경 write-behind 버퍼
+ *
+ * update member set age = age + 1 where member_id = ? 를 건마다 실행하는 대신
+ * 회원별로 변경을 합쳐 두었다가 JDBC batch 한번(트랜잭션 하나)으로 반영한다.
+ * 같은 회원을 여러 번 바꾸면 DB 에는 한 줄만 나가므로, 쓰기 빈도가 높을수록 DB 쓰기가 크게 줄어든다.
+ *
+ * - 회원 id 로 stripe 를 골라 stripe 단위로만 lock 을 잡는다.
+ * - JPA 를 거치지 않으므로 이미 로딩된 엔티티에는 반영되지 않고, 버전 체크나 엔티티 callback 도 없다.
+ * - 아직 flush 되지 않은 변경은 조회 결과에 보이지 않는다.
+ * - flush 는 호출한 쪽 트랜잭션과 별개로 commit 된다. (TransactionTemplate 은 REQUIRES_NEW)
+ * - batch 가 실패하면 회원별로 하나씩 다시 반영해서 문제 있는 회원만 버퍼에 남긴다.
+ *   제약 위반(DataIntegrityViolationException)으로 max-attempts 번 실패한 변경은 버리고 WriteBehindHook.onDeadLetter 로 넘긴다.
+ *   그 외 실패(DB 연결 등)는 횟수를 세지 않고 다음 flush 때 다시 시도한다.
+ * - 대기 중인 회원 수가 max-buffered 에 이르면 새 회원의 변경은 RejectedExecutionException 으로 거절한다.
+ *   이미 버퍼에 있는 회원의 변경은 합쳐지므로 받는다.
+ */
+@Slf4j
+public class MemberWriteBuffer {
+
+//    set 이 없으면 현재 값을 유지한다. username_normalized 도 Member 와 같은 규칙으로 같이 바꾼다.
+    private static final String UPDATE_SQL = "update member set"
+            + " age = coalesce(?, age) + ?,"
+            + " username = coalesce(?, username),"
+            + " username_normalized = coalesce(?, username_normalized)"
+            + " where member_id = ?";
+
+    private final Stripe[] stripes;
+    private final int maxPending;
+    private final int maxBuffered;
+    private final int maxAttempts;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteBehindHook hook;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong bufferedWrites = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    public MemberWriteBuffer(WriteBehindProperties properties, JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate, WriteBehindHook hook) {
+        this.stripes = new Stripe[properties.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.maxPending = properties.getMaxPending();
+        this.maxBuffered = properties.getMaxBuffered();
+        this.maxAttempts = properties.getMaxAttempts();
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.hook = hook;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void addAge(Long memberId, int delta) {
+        apply(memberId, update -> update.addAge(delta));
+    }
+
+    public void setAge(Long memberId, int age) {
+        apply(memberId, update -> update.setAge(age));
+    }
+
+    public void setUsername(Long memberId, String username) {
+        apply(memberId, update -> update.setUsername(username));
+    }
+
+    private void apply(Long memberId, Consumer<PendingMemberUpdate> change) {
+        Stripe stripe = stripeOf(memberId);
+        synchronized (stripe) {
+            PendingMemberUpdate update = stripe.updates.get(memberId);
+            if (update == null) {
+//                stripe 마다 따로 확인하므로 동시에 들어오면 stripe 수만큼 넘칠 수 있다.
+                if (pending.get() >= maxBuffered) {
+                    throw new RejectedExecutionException("member write-behind buffer is full. pending=" + pending.get());
+                }
+                update = new PendingMemberUpdate();
+                stripe.updates.put(memberId, update);
+                pending.incrementAndGet();
+            }
+            change.accept(update);
+        }
+        bufferedWrites.incrementAndGet();
+        hook.onBuffered(memberId);
+
+//        쓰는 쪽 스레드는 막지 않고 flush 스레드에 맡긴다.
+        if (pending.get() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushScheduled.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+//    지금까지 쌓인 변경을 반영한다. 제약 위반이 아닌 이유로 실패한 변경은 버퍼에 되돌리고 예외를 던진다.
+    public synchronized void flush() {
+        Map<Long, PendingMemberUpdate> batch = drain();
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            hook.beforeFlush(batch);
+        } catch (RuntimeException e) {
+            restore(batch);
+            throw e;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, toArgs(batch)));
+        } catch (RuntimeException e) {
+            log.warn("member write-behind batch of {} failed, retrying one by one", batch.size(), e);
+            flushOneByOne(batch);
+            return;
+        }
+        flushed(batch);
+    }
+
+    private void flushOneByOne(Map<Long, PendingMemberUpdate> batch) {
+        Map<Long, PendingMemberUpdate> flushed = new HashMap<>();
+        Map<Long, PendingMemberUpdate> retry = new HashMap<>();
+        RuntimeException lastFailure = null;
+        RuntimeException unexpected = null;
+        for (Map.Entry<Long, PendingMemberUpdate> entry : batch.entrySet()) {
+            Long memberId = entry.getKey();
+            PendingMemberUpdate update = entry.getValue();
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(UPDATE_SQL, toArgs(memberId, update)));
+                flushed.put(memberId, update);
+            } catch (DataIntegrityViolationException e) {
+                lastFailure = e;
+                if (update.recordFailure() >= maxAttempts) {
+                    deadLetter(memberId, update, e);
+                } else {
+                    retry.put(memberId, update);
+                }
+            } catch (RuntimeException e) {
+                lastFailure = e;
+                if (unexpected == null) {
+                    unexpected = e;
+                }
+                retry.put(memberId, update);
+            }
+        }
+        if (!flushed.isEmpty()) {
+            flushed(flushed);
+        }
+        if (!retry.isEmpty()) {
+            restore(retry);
+            hook.onFlushFailure(retry, lastFailure);
+        }
+        if (unexpected != null) {
+            throw unexpected;
+        }
+    }
+
+    private void flushed(Map<Long, PendingMemberUpdate> batch) {
+        flushes.incrementAndGet();
+        flushedRows.addAndGet(batch.size());
+        hook.afterFlush(batch);
+    }
+
+    private void deadLetter(Long memberId, PendingMemberUpdate update, RuntimeException e) {
+        deadLettered.incrementAndGet();
+        log.error("member write-behind dropped update of member {} after {} attempts", memberId, update.getFailures(), e);
+        hook.onDeadLetter(memberId, update, e);
+    }
+
+//    종료 시 남은 변경을 반영한다.
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("member write-behind flush failed, will retry. pending={}", pending.get(), e);
+        }
+    }
+
+    private Map<Long, PendingMemberUpdate> drain() {
+        Map<Long, PendingMemberUpdate> batch = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            Map<Long, PendingMemberUpdate> drained;
+            synchronized (stripe) {
+                if (stripe.updates.isEmpty()) {
+                    continue;
+                }
+                drained = stripe.updates;
+                stripe.updates = new HashMap<>();
+                pending.addAndGet(-drained.size());
+            }
+            batch.putAll(drained);
+        }
+        return batch;
+    }
+
+    private void restore(Map<Long, PendingMemberUpdate> batch) {
+        for (Map.Entry<Long, PendingMemberUpdate> entry : batch.entrySet()) {
+            Stripe stripe = stripeOf(entry.getKey());
+            synchronized (stripe) {
+                PendingMemberUpdate newer = stripe.updates.get(entry.getKey());
+                if (newer == null) {
+                    stripe.updates.put(entry.getKey(), entry.getValue());
+                    pending.incrementAndGet();
+                } else {
+                    newer.mergeOlder(entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static List<Object[]> toArgs(Map<Long, PendingMemberUpdate> batch) {
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (Map.Entry<Long, PendingMemberUpdate> entry : batch.entrySet()) {
+            args.add(toArgs(entry.getKey(), entry.getValue()));
+        }
+        return args;
+    }
+
+    private static Object[] toArgs(Long memberId, PendingMemberUpdate update) {
+        return new Object[]{
+                update.getAgeSet(),
+                update.getAgeDelta(),
+                update.getUsername(),
+                Member.normalizeUsername(update.getUsername()),
+                memberId
+        };
+    }
+
+    private Stripe stripeOf(Long memberId) {
+        return stripes[Math.floorMod(memberId.hashCode(), stripes.length)];
+    }
+
+    private static final class Stripe {
+        private Map<Long, PendingMemberUpdate> updates = new HashMap<>();
+    }
+
+    public long getBufferedWrites() {
+        return bufferedWrites.get();
+    }
+
+    public long getFlushedRows() {
+        return flushedRows.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getDeadLettered() {
+        return deadLettered.get();
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.writebehind;
+
+import lombok.Getter;
+
+/**
+ * 한 회원에 대해 아직 DB 에 반영되지 않은 변경
+ *
+ * age 는 set 과 delta 를 같이 가진다. set 이 있으면 set 값 + delta, 없으면 현재 값 + delta.
+ * username 은 마지막 set 만 남는다. (null 로 바꾸는 것은 지원하지 않는다)
+ */
+@Getter
+public class PendingMemberUpdate {
+    private Integer ageSet;
+    private int ageDelta;
+    private String username;
+//    제약 위반으로 반영에 실패한 횟수
+    private int failures;
+
+    void addAge(int delta) {
+        ageDelta += delta;
+    }
+
+    void setAge(int age) {
+        ageSet = age;
+        ageDelta = 0;
+    }
+
+    void setUsername(String username) {
+        this.username = username;
+    }
+
+    int recordFailure() {
+        return ++failures;
+    }
+
+//    flush 에 실패한 이전 변경(older)을 지금 변경 앞에 끼워 넣는다. 나중 set 이 이기고 delta 는 더해진다.
+    void mergeOlder(PendingMemberUpdate older) {
+        if (ageSet == null) {
+            ageSet = older.ageSet;
+            ageDelta += older.ageDelta;
+        }
+        if (username == null) {
+            username = older.username;
+        }
+        failures = Math.max(failures, older.failures);
+    }
+}
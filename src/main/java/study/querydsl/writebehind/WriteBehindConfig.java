@@ -0,0 +1,30 @@
+package study.querydsl.writebehind;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//member-write-behind.enabled=true 일 때만 등록. WriteBehindHook 빈이 있으면 사용한다.
+@Configuration
+@EnableConfigurationProperties(WriteBehindProperties.class)
+@ConditionalOnProperty(prefix = "member-write-behind", name = "enabled", havingValue = "true")
+public class WriteBehindConfig {
+
+    @Bean(destroyMethod = "close")
+    public MemberWriteBuffer memberWriteBuffer(WriteBehindProperties properties, JdbcTemplate jdbcTemplate,
+                                               PlatformTransactionManager transactionManager,
+                                               ObjectProvider<WriteBehindHook> hook) {
+//        호출한 쪽 트랜잭션에 참여하면 그 트랜잭션이 롤백될 때 버퍼에서 꺼낸 변경이 사라지므로 항상 새 트랜잭션으로 반영한다.
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return new MemberWriteBuffer(properties, jdbcTemplate, transactionTemplate,
+                hook.getIfAvailable(() -> new WriteBehindHook() {
+                }));
+    }
+}
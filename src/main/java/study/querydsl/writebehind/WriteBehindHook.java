@@ -0,0 +1,29 @@
+package study.querydsl.writebehind;
+
+import java.util.Map;
+
+/**
+ * flush 전후 확장 지점
+ *
+ * 메모리에 쌓인 변경은 프로세스가 죽으면 사라진다. 잃으면 안 되는 경우 beforeFlush 대신 버퍼링 시점에
+ * 외부 로그(Kafka offset 커밋 보류 등)로 남기고, afterFlush 에서 확정하는 식으로 사용한다.
+ */
+public interface WriteBehindHook {
+
+    default void onBuffered(Long memberId) {
+    }
+
+    default void beforeFlush(Map<Long, PendingMemberUpdate> batch) {
+    }
+
+    default void afterFlush(Map<Long, PendingMemberUpdate> batch) {
+    }
+
+//    반영하지 못한 변경. 버퍼에 다시 합쳐져서 다음 flush 때 재시도된다.
+    default void onFlushFailure(Map<Long, PendingMemberUpdate> batch, RuntimeException e) {
+    }
+
+//    제약 위반으로 max-attempts 번 실패해서 버린 변경. 잃으면 안 되면 여기서 별도 저장소에 남긴다.
+    default void onDeadLetter(Long memberId, PendingMemberUpdate update, RuntimeException e) {
+    }
+}
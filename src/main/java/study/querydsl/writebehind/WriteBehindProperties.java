@@ -0,0 +1,21 @@
+package study.querydsl.writebehind;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//회원 속성 변경을 모았다가 한번에 반영한다. flush-interval 마다, 또는 대기 중인 회원 수가 max-pending 을 넘으면 flush.
+//대기 중인 회원 수가 max-buffered 에 이르면 새 회원의 변경은 거절한다. 제약 위반으로 max-attempts 번 실패한 변경은 버린다.
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "member-write-behind")
+public class WriteBehindProperties {
+    private boolean enabled = false;
+    private int stripes = 16;
+    private Duration flushInterval = Duration.ofSeconds(1);
+    private int maxPending = 10_000;
+    private int maxBuffered = 50_000;
+    private int maxAttempts = 3;
+}
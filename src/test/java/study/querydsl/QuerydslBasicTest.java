@@ -23,6 +23,7 @@ import study.querydsl.dto.UserDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.support.FastProjections;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -582,6 +583,32 @@ public class QuerydslBasicTest {
     }
 
 
+//    Projections.bean/fields/constructor 와 같은 방식이지만 리플렉션 대신 미리 만든 람다로 DTO 를 만든다.
+    @Test
+    public void findDtoByFastProjections(){
+        List<MemberDto> byConstructor = queryFactory
+                .select(FastProjections.fast(new QMemberDto(member.username, member.age)))
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch();
+        List<MemberDto> bySetter = queryFactory
+                .select(FastProjections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch();
+        List<UserDto> byField = queryFactory
+                .select(FastProjections.fields(UserDto.class, member.username.as("name"), member.age))
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch();
+
+        assertThat(byConstructor).containsExactly(
+                new MemberDto("member1", 10), new MemberDto("member2", 20),
+                new MemberDto("member3", 30), new MemberDto("member4", 40));
+        assertThat(bySetter).isEqualTo(byConstructor);
+        assertThat(byField).extracting("name").containsExactly("member1", "member2", "member3", "member4");
+    }
+
 //    subquery를 가져와서 DTO에 넣을때도 subquery에 별칭을 짓는 과정이 필요하다
     @Test
     public void findSubQueryUserDtoByConstructor(){
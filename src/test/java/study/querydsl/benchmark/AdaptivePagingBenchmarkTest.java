@@ -0,0 +1,91 @@
+package study.querydsl.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.paging.AdaptiveMemberPaging;
+import study.querydsl.repository.paging.PagingStrategy;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+//조건 선택도와 페이지 깊이가 섞인 요청에서 고정 페이징 방식과 adaptive 선택 비교
+//./gradlew benchmark
+@Tag("benchmark")
+@SpringBootTest(properties = "logging.level.org.hibernate.SQL=info")
+@Transactional
+class AdaptivePagingBenchmarkTest {
+
+    private static final int ROWS = 20_000;
+    private static final int REQUESTS = 2_000;
+    private static final int ROUNDS = 3;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    AdaptiveMemberPaging adaptiveMemberPaging;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < ROWS; i++) {
+            em.persist(new Member("member" + i, i % 100, i % 10 == 0 ? teamA : teamB));
+            if (i % 1000 == 0) {
+                em.flush();
+                em.clear();
+                teamA = em.getReference(Team.class, teamA.getId());
+                teamB = em.getReference(Team.class, teamB.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void adaptiveVsFixed(){
+        List<MemberSearchCondition> conditions = List.of(
+                condition(null, null),     // 전체
+                condition("teamA", null),  // 10%
+                condition(null, 99),       // 1%
+                condition("teamA", 90)
+        );
+        List<Pageable> pages = List.of(PageRequest.of(0, 20), PageRequest.of(5, 20), PageRequest.of(200, 20));
+
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("round " + round);
+            for (PagingStrategy strategy : PagingStrategy.values()) {
+                System.out.println(Measurement.measure(strategy.name(), () -> run(conditions, pages, strategy)));
+            }
+            System.out.println(Measurement.measure("ADAPTIVE", () -> run(conditions, pages, null)));
+        }
+    }
+
+    private void run(List<MemberSearchCondition> conditions, List<Pageable> pages, PagingStrategy pinned) {
+        for (int i = 0; i < REQUESTS; i++) {
+            MemberSearchCondition condition = conditions.get(i % conditions.size());
+            Pageable pageable = pages.get((i / conditions.size()) % pages.size());
+            adaptiveMemberPaging.search(condition, pageable, pinned);
+            em.clear();
+        }
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+}
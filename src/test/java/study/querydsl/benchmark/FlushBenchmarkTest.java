@@ -0,0 +1,70 @@
+package study.querydsl.benchmark;
+
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//관리 중인 엔티티가 많은 트랜잭션의 flush 비용. enhancement(dirty tracking) 전후로 실행해서 비교한다.
+//enhancement 가 없으면 flush 마다 모든 엔티티를 스냅샷과 비교하고, 있으면 바뀐 필드가 기록된 엔티티만 본다.
+//./gradlew benchmark
+@Tag("benchmark")
+@SpringBootTest(properties = "logging.level.org.hibernate.SQL=info")
+@Transactional
+class FlushBenchmarkTest {
+
+    private static final int ROWS = 20_000;
+    private static final int DIRTY = 10;
+    private static final int ROUNDS = 5;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @BeforeEach
+    public void before(){
+        Team team = new Team("team");
+        em.persist(team);
+        for (int i = 0; i < ROWS; i++) {
+            em.persist(new Member("member" + i, i % 100, team));
+            if (i % 1000 == 0) {
+                em.flush();
+                em.clear();
+                team = em.getReference(Team.class, team.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void flushManyManagedEntities(){
+        List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+        assertThat(members).hasSizeGreaterThanOrEqualTo(ROWS);
+        System.out.println("managed=" + members.size()
+                + " enhanced=" + (members.get(0) instanceof SelfDirtinessTracker));
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Measurement clean = Measurement.measure("flush (0 dirty)", () -> em.flush());
+
+            for (int i = 0; i < DIRTY; i++) {
+                Member member = members.get(i * (members.size() / DIRTY));
+                member.setAge(member.getAge() + 1);
+            }
+            Measurement dirty = Measurement.measure("flush (" + DIRTY + " dirty)", () -> em.flush());
+
+            System.out.println("round " + round);
+            System.out.println(clean);
+            System.out.println(dirty);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package study.querydsl.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+//benchmark 테스트 공통. 현재 스레드의 CPU 시간과 할당 바이트를 측정한다.
+public final class Measurement {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final String name;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final long wallNanos;
+
+    private Measurement(String name, long cpuNanos, long allocatedBytes, long wallNanos) {
+        this.name = name;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.wallNanos = wallNanos;
+    }
+
+    public static Measurement measure(String name, Runnable task) {
+        return measure(name, () -> {
+            task.run();
+            return null;
+        }).measurement;
+    }
+
+    public static <T> Result<T> measure(String name, Supplier<T> task) {
+        long threadId = Thread.currentThread().getId();
+        long cpuStart = THREADS.getCurrentThreadCpuTime();
+        long allocatedStart = THREADS.getThreadAllocatedBytes(threadId);
+        long wallStart = System.nanoTime();
+        T value = task.get();
+        long wall = System.nanoTime() - wallStart;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedStart;
+        long cpu = THREADS.getCurrentThreadCpuTime() - cpuStart;
+        return new Result<>(value, new Measurement(name, cpu, allocated, wall));
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-30s wall=%8.2fms cpu=%8.2fms alloc=%10.1fKB",
+                name, wallNanos / 1_000_000.0, cpuNanos / 1_000_000.0, allocatedBytes / 1024.0);
+    }
+
+    public static final class Result<T> {
+        private final T value;
+        private final Measurement measurement;
+
+        private Result(T value, Measurement measurement) {
+            this.value = value;
+            this.measurement = measurement;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public Measurement getMeasurement() {
+            return measurement;
+        }
+    }
+}
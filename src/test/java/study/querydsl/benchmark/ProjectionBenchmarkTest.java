@@ -0,0 +1,52 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.repository.support.FastProjections;
+
+import static study.querydsl.entity.QMember.member;
+
+//row 매핑 비용만 비교하기 위해 DB 없이 newInstance 를 직접 호출한다.
+//./gradlew benchmark
+@Tag("benchmark")
+class ProjectionBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int ROUNDS = 5;
+
+//    bean projection 은 기본 생성자가 필요하므로 MemberTeamDto 대신 @NoArgsConstructor 가 있는 MemberDto 로 모든 방식을 같이 비교한다.
+    @Test
+    public void reflectionVsLambda(){
+        FactoryExpression<MemberDto> queryProjection = new QMemberDto(member.username, member.age);
+        FactoryExpression<MemberDto> bean = Projections.bean(MemberDto.class, member.username, member.age);
+        FactoryExpression<MemberDto> fast = FastProjections.fast(new QMemberDto(member.username, member.age));
+        FactoryExpression<MemberDto> fastBean = FastProjections.bean(MemberDto.class, member.username, member.age);
+        FactoryExpression<MemberDto> fields = Projections.fields(MemberDto.class, member.username, member.age);
+        FactoryExpression<MemberDto> fastFields = FastProjections.fields(MemberDto.class, member.username, member.age);
+
+        Object[] row = {"member1", 10};
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("round " + round);
+            System.out.println(Measurement.measure("@QueryProjection", () -> map(queryProjection, row)));
+            System.out.println(Measurement.measure("FastProjections.fast", () -> map(fast, row)));
+            System.out.println(Measurement.measure("Projections.bean", () -> map(bean, row)));
+            System.out.println(Measurement.measure("FastProjections.bean", () -> map(fastBean, row)));
+            System.out.println(Measurement.measure("Projections.fields", () -> map(fields, row)));
+            System.out.println(Measurement.measure("FastProjections.fields", () -> map(fastFields, row)));
+        }
+    }
+
+    private static void map(FactoryExpression<MemberDto> projection, Object[] row) {
+        long sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            sum += projection.newInstance(row).getAge();
+        }
+        if (sum != 10L * ROWS) {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package study.querydsl.benchmark;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//10,000건 조회 시 일반 조회 / readOnly / StatelessSession 의 CPU, 메모리 비교
+//./gradlew benchmark
+@Tag("benchmark")
+@SpringBootTest(properties = "logging.level.org.hibernate.SQL=info")
+@Transactional
+class ReadOnlyQueryBenchmarkTest {
+
+    private static final int ROWS = 10_000;
+    private static final int ROUNDS = 5;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @BeforeEach
+    public void before(){
+        Team team = new Team("team");
+        em.persist(team);
+        for (int i = 0; i < ROWS; i++) {
+            em.persist(new Member("member" + i, i % 100, team));
+            if (i % 1000 == 0) {
+                em.flush();
+                em.clear();
+                team = em.getReference(Team.class, team.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void readOnlyVsManaged(){
+        for (int round = 0; round < ROUNDS; round++) {
+            Measurement managed = Measurement.measure("managed select", () -> {
+                List<Member> result = memberTestRepository.basicSelect();
+                assertThat(result).hasSize(ROWS);
+                em.flush(); // dirty checking 비용 포함
+            });
+            int managedEntities = em.unwrap(Session.class).getStatistics().getEntityCount();
+            em.clear();
+
+            Measurement readOnly = Measurement.measure("readOnly select", () -> {
+                List<Member> result = memberTestRepository.basicSelectReadOnly();
+                assertThat(result).hasSize(ROWS);
+                em.flush();
+            });
+            em.clear();
+
+            LongAdder scanned = new LongAdder();
+            Measurement stateless = Measurement.measure("stateless scan", () -> {
+                memberTestRepository.scanByCondition(new MemberSearchCondition(), m -> scanned.increment());
+                assertThat(scanned.sum()).isEqualTo(ROWS);
+            });
+            int statelessEntities = em.unwrap(Session.class).getStatistics().getEntityCount();
+
+            System.out.println("round " + round + " (managed entities=" + managedEntities + ", after stateless=" + statelessEntities + ")");
+            System.out.println(managed);
+            System.out.println(readOnly);
+            System.out.println(stateless);
+        }
+    }
+}
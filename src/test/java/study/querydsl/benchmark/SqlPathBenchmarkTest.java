@@ -0,0 +1,87 @@
+package study.querydsl.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.sql.MemberSqlRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//searchByWhereParam 의 JPA 경로와 querydsl-sql 경로의 처리량, 할당량 비교
+//./gradlew benchmark
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "querydsl-sql.enabled=true",
+        "logging.level.org.hibernate.SQL=info"
+})
+@Transactional
+class SqlPathBenchmarkTest {
+
+    private static final int MEMBERS = 100;
+    private static final int CALLS = 2_000;
+    private static final int ROUNDS = 5;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < MEMBERS; i++) {
+            em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void jpaVsSql(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(10);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Measurement jpa = Measurement.measure("jpa searchByWhereParam", () -> {
+                for (int i = 0; i < CALLS; i++) {
+                    assertThat(memberRepository.searchByWhereParam(condition)).hasSize(45);
+                }
+            });
+            Measurement sql = Measurement.measure("sql searchByWhereParam", () -> {
+                for (int i = 0; i < CALLS; i++) {
+                    assertThat(memberSqlRepository.searchByWhereParam(condition)).hasSize(45);
+                }
+            });
+
+            System.out.println("round " + round);
+            System.out.println(jpa + String.format(" ops/s=%8.0f alloc/op=%6.1fKB", opsPerSecond(jpa), allocPerOp(jpa)));
+            System.out.println(sql + String.format(" ops/s=%8.0f alloc/op=%6.1fKB", opsPerSecond(sql), allocPerOp(sql)));
+        }
+    }
+
+    private static double opsPerSecond(Measurement measurement) {
+        return CALLS / (measurement.getWallNanos() / 1_000_000_000.0);
+    }
+
+    private static double allocPerOp(Measurement measurement) {
+        return measurement.getAllocatedBytes() / 1024.0 / CALLS;
+    }
+}
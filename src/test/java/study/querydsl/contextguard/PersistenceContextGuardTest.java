@@ -0,0 +1,144 @@
+package study.querydsl.contextguard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "persistence-context-guard.enabled=true",
+        "persistence-context-guard.max-entities=50",
+        "persistence-context-guard.fail-all-transactions=true"
+})
+@Transactional
+class PersistenceContextGuardTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    BulkMemberWriter bulkMemberWriter;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+//    BulkMemberWriter 가 트랜잭션을 시작해야 flush/clear 하므로 테스트 트랜잭션 밖에서 실행하고, 저장한 데이터는 지운다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void limitAnnotationFlushesAndClears(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        double before = meterRegistry.get("persistence_context.guard").tag("action", "flush_clear").counter().count();
+        try {
+//            한도 20 을 넘을 때마다 flush/clear 되어 관리 중인 엔티티 수가 한도 근처에서 유지된다
+            List<Integer> managed = bulkMemberWriter.persist("guard-member", 100);
+
+            assertThat(managed).allSatisfy(count -> assertThat(count).isLessThanOrEqualTo(21));
+            assertThat(meterRegistry.get("persistence_context.guard").tag("action", "flush_clear").counter().count())
+                    .isGreaterThan(before);
+            Long saved = tx.execute(status -> em.createQuery(
+                    "select count(m) from Member m where m.username like 'guard-member%'", Long.class).getSingleResult());
+            assertThat(saved).isEqualTo(100);
+        } finally {
+            tx.executeWithoutResult(status -> {
+                em.createQuery("delete from Member m where m.username like 'guard-member%'").executeUpdate();
+                em.createQuery("delete from Team t where t.name = 'guard-member-team'").executeUpdate();
+            });
+        }
+    }
+
+//    호출한 쪽 트랜잭션에 참여하면 그 영속성 컨텍스트를 비우지 않고 실패한다.
+    @Test
+    public void limitAnnotationInCallerTransactionFailsInsteadOfClearing(){
+        Team callerTeam = new Team("guardCallerTeam");
+        em.persist(callerTeam);
+        double before = meterRegistry.get("persistence_context.guard").tag("action", "flush_clear").counter().count();
+
+        assertThatThrownBy(() -> bulkMemberWriter.persist("guard-joined", 30))
+                .isInstanceOf(PersistenceContextLimitExceededException.class);
+        assertThat(em.contains(callerTeam)).isTrue();
+        assertThat(meterRegistry.get("persistence_context.guard").tag("action", "flush_clear").counter().count())
+                .isEqualTo(before);
+    }
+
+    @Test
+    public void defaultLimitFailsFast(){
+        Team team = new Team("guardTeam");
+        em.persist(team);
+
+        assertThatThrownBy(() -> {
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("guard-fail" + i, i, team));
+            }
+        }).isInstanceOf(PersistenceContextLimitExceededException.class);
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isLessThanOrEqualTo(51);
+    }
+
+    @Test
+    public void failWhileLoadingQueryResult(){
+        Team team = new Team("guard-load-team");
+        em.persist(team);
+        for (int i = 0; i < 40; i++) {
+            em.persist(new Member("guard-load" + i, i, team));
+        }
+        em.flush();
+        em.clear();
+
+        PersistenceContextGuard previous = PersistenceContextGuard.bind(
+                new PersistenceContextGuard(20, Long.MAX_VALUE, PersistenceContextGuard.Action.FAIL));
+        try {
+//            쿼리 하나가 한도보다 많이 가져오면 로딩 도중에 실패한다
+            assertThatThrownBy(() -> em.createQuery("select m from Member m where m.username like 'guard-load%'",
+                    Member.class).getResultList())
+                    .isInstanceOf(PersistenceContextLimitExceededException.class);
+        } finally {
+            PersistenceContextGuard.restore(previous);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        BulkMemberWriter bulkMemberWriter() {
+            return new BulkMemberWriter();
+        }
+    }
+
+    static class BulkMemberWriter {
+        @PersistenceContext
+        EntityManager em;
+
+//        persist 할 때마다 관리 중인 엔티티 수를 기록한다
+        @Transactional
+        @PersistenceContextLimit(maxEntities = 20)
+        public List<Integer> persist(String prefix, int count) {
+            Team team = new Team(prefix + "-team");
+            em.persist(team);
+            List<Integer> managed = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                em.persist(new Member(prefix + i, i, team));
+                managed.add(em.unwrap(Session.class).getStatistics().getEntityCount());
+            }
+            return managed;
+        }
+    }
+}
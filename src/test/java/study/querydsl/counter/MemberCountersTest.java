@@ -0,0 +1,196 @@
+package study.querydsl.counter;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.CountQuerySupport.countQueryOf;
+
+//counter 는 commit 직전에 반영되므로 실제로 commit 해야 한다. @Transactional 을 쓰지 않고, 저장한 데이터는 테스트 후 지운다.
+//지울 때는 주입받은 JPAQueryFactory 를 써야 벌크 delete 가 counter 에 알려진다.
+//querydsl-sql 을 끄고 JPA 구현(MemberRepositoryImpl)의 searchPageComplex 를 확인한다.
+@SpringBootTest(properties = {
+        "member-counter.enabled=true",
+        "member-counter.slots=4",
+        "querydsl-sql.enabled=false"
+})
+class MemberCountersTest {
+
+    @Autowired
+    MemberCounters counters;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("counterTeamA");
+            Team teamB = new Team("counterTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 30; i++) {
+                em.persist(new Member("counter-" + i, i, i % 3 == 0 ? teamB : teamA));
+            }
+            em.persist(new Member("counter-noteam", 30));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("counter-")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("counterTeam")).execute();
+        });
+    }
+
+    @Test
+    public void countsFollowCommittedChanges(){
+        assertThat(counters.isReady()).isTrue();
+        assertThat(counters.countOfTeam("counterTeamA")).hasValue(20);
+        assertThat(counters.countOfTeam("counterTeamB")).hasValue(10);
+        assertThat(counters.total()).hasValue(actualTotal());
+
+//        changeTeam 은 옮긴 팀 양쪽에 반영된다
+        tx.executeWithoutResult(status -> {
+            Member moved = queryFactory.selectFrom(member).where(member.username.eq("counter-1")).fetchOne();
+            moved.changeTeam(em.find(Team.class, teamBId));
+            Member noTeam = queryFactory.selectFrom(member).where(member.username.eq("counter-noteam")).fetchOne();
+            noTeam.changeTeam(em.find(Team.class, teamAId));
+        });
+        assertThat(counters.countOfTeam("counterTeamA")).hasValue(20);
+        assertThat(counters.countOfTeam("counterTeamB")).hasValue(11);
+
+        tx.executeWithoutResult(status ->
+                em.remove(queryFactory.selectFrom(member).where(member.username.eq("counter-2")).fetchOne()));
+        assertThat(counters.countOfTeam("counterTeamA")).hasValue(19);
+        assertThat(counters.total()).hasValue(actualTotal());
+    }
+
+    @Test
+    public void rollbackLeavesCountsUnchanged(){
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("counter-rollback", 1, em.find(Team.class, teamAId)));
+            em.flush();
+            status.setRollbackOnly();
+        });
+        assertThat(counters.countOfTeam("counterTeamA")).hasValue(20);
+    }
+
+    @Test
+    public void pendingChangesFallBackToCountQuery(){
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("counter-pending", 1, em.find(Team.class, teamAId)));
+//            counter 에는 commit 직전에 반영되므로 이 트랜잭션 안에서는 값을 주지 않고 count 쿼리로 센다
+            assertThat(counters.countOfTeam("counterTeamA")).isEmpty();
+            Page<MemberTeamDto> page = memberRepository.searchPageComplex(teamCondition("counterTeamA"), PageRequest.of(0, 5));
+            assertThat(page.getTotalElements()).isEqualTo(21);
+        });
+        assertThat(counters.countOfTeam("counterTeamA")).hasValue(21);
+    }
+
+    @Test
+    public void bulkClausesRecount(){
+        tx.executeWithoutResult(status -> {
+            queryFactory.update(member).set(member.team, em.find(Team.class, teamBId))
+                    .where(member.username.in("counter-1", "counter-2")).execute();
+            queryFactory.delete(member).where(member.username.eq("counter-4")).execute();
+        });
+        assertThat(counters.countOfTeam("counterTeamA")).hasValue(17);
+        assertThat(counters.countOfTeam("counterTeamB")).hasValue(12);
+        assertThat(counters.total()).hasValue(actualTotal());
+    }
+
+    @Test
+    public void countOfMatchesCoveredShapes(){
+        assertThat(counters.countOf(countOf(queryFactory.selectFrom(member).leftJoin(member.team, team)
+                .where(team.name.eq("counterTeamA"))))).hasValue(20);
+        assertThat(counters.countOf(countOf(queryFactory.selectFrom(member).join(member.team, team)
+                .where(team.name.eq("counterTeamB"))))).hasValue(10);
+        assertThat(counters.countOf(countOf(queryFactory.selectFrom(member)
+                .where(member.team.name.eq("counterTeamB"))))).hasValue(10);
+        assertThat(counters.countOf(countOf(queryFactory.selectFrom(member).leftJoin(member.team, team))))
+                .hasValue(actualTotal());
+
+//        다른 조건이 섞이거나 inner join 으로 팀 없는 회원이 빠지는 경우는 세지 않는다
+        assertThat(counters.countOf(countOf(queryFactory.selectFrom(member).leftJoin(member.team, team)
+                .where(team.name.eq("counterTeamA"), member.age.goe(10))))).isEmpty();
+        assertThat(counters.countOf(countOf(queryFactory.selectFrom(member).join(member.team, team)))).isEmpty();
+        assertThat(counters.countOf(countOf(queryFactory.selectFrom(team)))).isEmpty();
+        assertThat(counters.countOf(countOf(queryFactory.selectFrom(member).distinct()))).isEmpty();
+    }
+
+    @Test
+    public void paginationUsesCountersWithoutCountQuery(){
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        Page<MemberTeamDto> complex = memberRepository.searchPageComplex(teamCondition("counterTeamB"), PageRequest.of(0, 3));
+        assertThat(complex.getTotalElements()).isEqualTo(10);
+        assertThat(complex.getContent()).hasSize(3);
+
+        Page<Member> applied = memberTestRepository.applyPagination(teamCondition("counterTeamA"), PageRequest.of(1, 3));
+        assertThat(applied.getTotalElements()).isEqualTo(20);
+        assertThat(applied.getContent()).hasSize(3);
+
+//        content 쿼리만 JPA 로 나가고 count 는 counter 를 JDBC 로 읽는다
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(2);
+        statistics.setStatisticsEnabled(false);
+    }
+
+    private long actualTotal() {
+        return tx.execute(status -> queryFactory.select(member.count()).from(member).fetchOne());
+    }
+
+    private QueryMetadata countOf(JPAQuery<?> contentQuery) {
+        return countQueryOf(queryFactory, contentQuery).getMetadata();
+    }
+
+    private static MemberSearchCondition teamCondition(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
@@ -0,0 +1,139 @@
+package study.querydsl.dictionary;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.sql.MemberSqlRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//사전은 commit 된 Team 변경으로 갱신되므로 @Transactional 을 쓰지 않고, 저장한 데이터는 테스트 후 지운다.
+//읽기/쓰기 트랜잭션 안에서는 사전을 쓰지 않고 join 으로 조회하므로 같은 검색을 트랜잭션 안에서 한번 더 해서 비교한다.
+@SpringBootTest(properties = {
+        "team-dictionary.enabled=true",
+        "querydsl-sql.enabled=true"
+})
+class TeamDictionaryTest {
+
+    @Autowired
+    TeamDictionary teamDictionary;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    Long teamAId;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("dictTeamA");
+            Team teamB = new Team("dictTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 20; i++) {
+                em.persist(new Member("dict-" + i, i, i % 4 == 0 ? teamB : teamA));
+            }
+            em.persist(new Member("dict-noteam", 30));
+            teamAId = teamA.getId();
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("dict-")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("dictTeam")).execute();
+        });
+    }
+
+    @Test
+    public void searchMatchesJoin(){
+        assertThat(teamDictionary.isUsable()).isTrue();
+        assertThat(teamDictionary.teamIdsOf("dictTeamA")).containsExactly(teamAId);
+
+        assertSameAsJoin(condition("dictTeamA", null));
+        assertSameAsJoin(condition("dictTeamB", 5));
+        assertSameAsJoin(condition(null, 10));
+
+        List<MemberTeamDto> teamA = memberSqlRepository.searchByWhereParam(condition("dictTeamA", null));
+        assertThat(teamA).hasSize(15);
+        assertThat(teamA).extracting("teamName").containsOnly("dictTeamA");
+        assertThat(memberSqlRepository.searchByUsernameIgnoreCase("DICT-noteam"))
+                .extracting("teamName").containsExactly((Object) null);
+    }
+
+    @Test
+    public void unknownTeamNameIsEmpty(){
+        MemberSearchCondition condition = condition("dictTeamNone", null);
+
+        assertThat(memberSqlRepository.searchByWhereParam(condition)).isEmpty();
+        Page<MemberTeamDto> page = memberSqlRepository.searchPageComplex(condition, PageRequest.of(0, 5));
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isZero();
+    }
+
+    @Test
+    public void pageCountsWithoutJoin(){
+        Page<MemberTeamDto> page = memberSqlRepository.searchPageCountOptimization(condition("dictTeamA", 3),
+                PageRequest.of(0, 5));
+        assertThat(page.getTotalElements()).isEqualTo(13);
+        assertThat(page.getContent()).hasSize(5);
+        assertThat(page.getContent()).extracting("teamId").containsOnly(teamAId);
+    }
+
+    @Test
+    public void committedTeamChangesRefreshDictionary(){
+        tx.executeWithoutResult(status -> em.find(Team.class, teamAId).setName("dictTeamC"));
+        assertThat(memberSqlRepository.searchByWhereParam(condition("dictTeamA", null))).isEmpty();
+        assertThat(memberSqlRepository.searchByWhereParam(condition("dictTeamC", null)))
+                .hasSize(15).extracting("teamName").containsOnly("dictTeamC");
+
+//        같은 이름의 팀이 여러 개면 모두 찾는다
+        tx.executeWithoutResult(status -> queryFactory.update(team).set(team.name, "dictTeamC")
+                .where(team.name.eq("dictTeamB")).execute());
+        assertThat(teamDictionary.teamIdsOf("dictTeamC")).hasSize(2);
+        assertSameAsJoin(condition("dictTeamC", null));
+        assertThat(memberSqlRepository.searchByWhereParam(condition("dictTeamC", null))).hasSize(20);
+    }
+
+    private void assertSameAsJoin(MemberSearchCondition condition) {
+        List<MemberTeamDto> joined = tx.execute(status -> memberSqlRepository.searchByWhereParam(condition));
+        assertThat(memberSqlRepository.searchByWhereParam(condition))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(joined);
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+}
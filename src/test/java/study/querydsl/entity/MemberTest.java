@@ -0,0 +1,129 @@
+package study.querydsl.entity;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.ManagedEntity;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class MemberTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void changeTeamDoesNotLoadMembers(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+        Member target = new Member("target", 10, teamA);
+        em.persist(target);
+        em.flush();
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        Member member = em.find(Member.class, target.getId());
+        Team findTeamB = em.find(Team.class, teamB.getId());
+        statistics.clear();
+
+        member.changeTeam(findTeamB);
+        em.persist(new Member("newMember", 20, findTeamB));
+        em.flush();
+
+//        팀원 수와 관계없이 update 1건 + insert 1건 (+ 시퀀스)만 나가고 members 는 로딩되지 않는다
+        assertThat(Hibernate.isInitialized(findTeamB.getMembers())).isFalse();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+
+//        나중에 컬렉션을 초기화하면 쌓아둔 add 가 반영된다
+        assertThat(findTeamB.getMembers()).extracting("username").contains("target", "newMember");
+    }
+
+    @Test
+    public void entitiesAreEnhanced(){
+        Member member = new Member("member1", 10);
+
+//        빌드 시점 bytecode enhancement 가 적용되어 있어야 한다 (build.gradle hibernate.enhance)
+        assertThat(member).isInstanceOf(ManagedEntity.class).isInstanceOf(SelfDirtinessTracker.class);
+        assertThat(new Team("teamA")).isInstanceOf(SelfDirtinessTracker.class);
+    }
+
+    @Test
+    public void dirtyTrackingRecordsChangedFields(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        List<Member> members = em.createQuery("select m from Member m where m.team = :team", Member.class)
+                .setParameter("team", em.getReference(Team.class, teamA.getId()))
+                .getResultList();
+        Member member = members.get(7);
+        statistics.clear();
+
+//        관리 중인 100건 중 바뀐 1건만 update. setter 뿐 아니라 엔티티 안의 필드 쓰기(username -> usernameNormalized)도 추적된다
+        member.setUsername("Renamed");
+        assertThat(((SelfDirtinessTracker) member).$$_hibernate_getDirtyAttributes())
+                .containsExactlyInAnyOrder("username", "usernameNormalized");
+        em.flush();
+
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+        assertThat(((SelfDirtinessTracker) member).$$_hibernate_hasDirtyAttributes()).isFalse();
+        em.clear();
+        assertThat(em.find(Member.class, member.getId()).getUsernameNormalized()).isEqualTo("renamed");
+    }
+
+    @Test
+    public void changeTeamWithEnhancementKeepsBothSides(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member target = new Member("target", 10, teamA);
+        em.persist(target);
+        em.persist(new Member("other", 20, teamB));
+        em.flush();
+        em.clear();
+
+        Member member = em.find(Member.class, target.getId());
+//        ManyToOne 지연 로딩은 enhancement 후에도 프록시로 동작한다
+        assertThat(Hibernate.isInitialized(member.getTeam())).isFalse();
+
+        Team findTeamA = em.find(Team.class, teamA.getId());
+        Team findTeamB = em.find(Team.class, teamB.getId());
+        assertThat(findTeamA.getMembers()).hasSize(1);
+        Hibernate.initialize(findTeamA.getMembers());
+        Hibernate.initialize(findTeamB.getMembers());
+
+        member.changeTeam(findTeamB);
+
+//        이전 팀에서 빠지고 새 팀에는 한번만 들어간다 (association management 와 중복 add 되지 않음)
+        assertThat(findTeamA.getMembers()).isEmpty();
+        assertThat(findTeamB.getMembers()).extracting("username").containsExactlyInAnyOrder("other", "target");
+        assertThat(((SelfDirtinessTracker) member).$$_hibernate_getDirtyAttributes()).containsExactly("team");
+
+        em.flush();
+        em.clear();
+        assertThat(em.find(Member.class, target.getId()).getTeam().getId()).isEqualTo(teamB.getId());
+        assertThat(em.find(Team.class, teamB.getId()).getMembers()).hasSize(2);
+    }
+}
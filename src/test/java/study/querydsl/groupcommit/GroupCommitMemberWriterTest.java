@@ -0,0 +1,149 @@
+package study.querydsl.groupcommit;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+//writer 스레드가 직접 commit 하므로 @Transactional 을 쓰지 않고, 저장한 데이터는 테스트 후 지운다.
+@SpringBootTest(properties = {
+        "member-group-commit.enabled=true",
+        "member-group-commit.max-batch-size=50",
+        "member-group-commit.max-wait=50ms"
+})
+class GroupCommitMemberWriterTest {
+
+    private static final int SAVES = 100;
+
+    @Autowired
+    GroupCommitMemberWriter groupCommitMemberWriter;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void after(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                new JPAQueryFactory(em).delete(member).where(member.username.startsWith("group-commit-")).execute());
+    }
+
+    @Test
+    public void concurrentSavesShareCommits() throws Exception {
+        DistributionSummary batchSize = meterRegistry.get("member.group_commit.batch_size").summary();
+        long batchesBefore = batchSize.count();
+
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        List<CompletableFuture<Member>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < SAVES; i++) {
+                int index = i;
+                futures.add(CompletableFuture.supplyAsync(() -> new Member("group-commit-" + index, index), callers)
+                        .thenCompose(groupCommitMemberWriter::save));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        } finally {
+            callers.shutdown();
+        }
+
+        assertThat(futures).allSatisfy(future -> assertThat(future.join().getId()).isNotNull());
+//        100건이 batch 여러 개로 묶여서 commit 횟수가 저장 건수보다 적다
+        long batches = batchSize.count() - batchesBefore;
+        assertThat(batches).isGreaterThanOrEqualTo(2).isLessThan(SAVES);
+
+        Long saved = new JPAQueryFactory(em).select(member.count()).from(member)
+                .where(member.username.startsWith("group-commit-")).fetchOne();
+        assertThat(saved).isEqualTo(SAVES);
+    }
+
+//    컬럼 길이를 넘는 username 이 batch 를 롤백시키면 건별로 다시 저장해서 그 건의 future 만 실패한다.
+    @Test
+    public void failingRowFailsOnlyItsOwnFuture(){
+        CompletableFuture<Member> before = groupCommitMemberWriter.save(new Member("group-commit-before", 1));
+        CompletableFuture<Member> tooLong = groupCommitMemberWriter.save(new Member("group-commit-" + "x".repeat(300), 2));
+        CompletableFuture<Member> after = groupCommitMemberWriter.save(new Member("group-commit-after", 3));
+
+        assertThatThrownBy(tooLong::join).isInstanceOf(CompletionException.class);
+        assertThat(before.join().getId()).isNotNull();
+        assertThat(after.join().getId()).isNotNull();
+
+        List<String> saved = new JPAQueryFactory(em).select(member.username).from(member)
+                .where(member.username.startsWith("group-commit-")).fetch();
+        assertThat(saved).containsExactlyInAnyOrder("group-commit-before", "group-commit-after");
+    }
+
+//    트랜잭션 밖의 MemberJpaRepository.save 는 group commit 으로 저장되고 commit 될 때까지 기다린다.
+    @Test
+    public void repositorySaveOutsideTransactionUsesGroupCommit(){
+        DistributionSummary batchSize = meterRegistry.get("member.group_commit.batch_size").summary();
+        long batchesBefore = batchSize.count();
+
+        Member saved = new Member("group-commit-repository", 10);
+        memberJpaRepository.save(saved);
+
+        assertThat(saved.getId()).isNotNull();
+        assertThat(batchSize.count()).isEqualTo(batchesBefore + 1);
+        assertThat(new JPAQueryFactory(em).selectFrom(member).where(member.id.eq(saved.getId())).fetchOne())
+                .isNotNull();
+    }
+
+//    close() 뒤의 save 는 queue 에 들어가지 못하고 바로 거절된다
+    @Test
+    public void saveAfterCloseIsRejected(){
+        GroupCommitMemberWriter writer = new GroupCommitMemberWriter(new GroupCommitProperties(), em,
+                new TransactionTemplate(transactionManager), meterRegistry);
+        writer.close();
+
+        assertThatThrownBy(() -> writer.save(new Member("group-commit-closed", 1)).join())
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+//    writer 스레드가 Error 로 죽으면 기다리던 future 를 실패시키고 이후 save 는 거절한다
+    @Test
+    public void writerDeathFailsPendingSaves(){
+        TransactionTemplate dying = new TransactionTemplate(transactionManager) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                throw new AssertionError("writer died");
+            }
+        };
+        GroupCommitMemberWriter writer = new GroupCommitMemberWriter(new GroupCommitProperties(), em, dying, meterRegistry);
+        try {
+            assertThatThrownBy(() -> writer.save(new Member("group-commit-dying", 1)).join())
+                    .hasCauseInstanceOf(AssertionError.class);
+            assertThatThrownBy(() -> writer.save(new Member("group-commit-dying", 2)).join())
+                    .hasCauseInstanceOf(RejectedExecutionException.class);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package study.querydsl.live;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//commit 후 이벤트를 보려면 실제로 commit 해야 하므로 @Transactional 을 쓰지 않고, 저장한 데이터는 테스트 후 지운다.
+//느린 구독자 테스트를 위해 구독자 버퍼와 send timeout 을 작게 잡는다.
+@SpringBootTest(properties = {
+        "member-live-query.enabled=true",
+        "member-live-query.subscriber-buffer=2",
+        "member-live-query.send-timeout=500ms"
+})
+class MemberSubscriptionHubTest {
+
+    @Autowired
+    MemberSubscriptionHub hub;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("live-")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("liveTeam")).execute();
+        });
+    }
+
+    @Test
+    public void matchingChangesAreStreamed() throws Exception {
+        BlockingQueue<MemberChange> changes = new LinkedBlockingQueue<>();
+        MemberSubscriptionHub.Subscription subscription = hub.subscribe(condition("liveTeamA", 20), changes::add);
+        try {
+            Long[] ids = tx.execute(status -> {
+                Team teamA = new Team("liveTeamA");
+                Team teamB = new Team("liveTeamB");
+                em.persist(teamA);
+                em.persist(teamB);
+                Member member1 = new Member("live-1", 25, teamA);
+                Member member2 = new Member("live-2", 10, teamA);
+                em.persist(member1);
+                em.persist(member2);
+                em.persist(new Member("live-3", 25, teamB));
+                return new Long[]{member1.getId(), member2.getId(), teamB.getId()};
+            });
+            assertChange(changes.poll(5, TimeUnit.SECONDS), MemberChange.Type.INSERT, "live-1", 25);
+
+//            조건에 들어옴. 새 트랜잭션에서 로딩했으므로 팀은 프록시이고 팀 이름은 hub 가 채운다
+            tx.executeWithoutResult(status -> em.find(Member.class, ids[1]).setAge(30));
+            MemberChange entered = changes.poll(5, TimeUnit.SECONDS);
+            assertChange(entered, MemberChange.Type.INSERT, "live-2", 30);
+            assertThat(entered.getTeamName()).isEqualTo("liveTeamA");
+
+            tx.executeWithoutResult(status -> em.find(Member.class, ids[0]).setAge(26));
+            assertChange(changes.poll(5, TimeUnit.SECONDS), MemberChange.Type.UPDATE, "live-1", 26);
+
+//            다른 팀으로 옮기면 조건에서 빠진다
+            tx.executeWithoutResult(status ->
+                    em.find(Member.class, ids[0]).changeTeam(em.getReference(Team.class, ids[2])));
+            assertChange(changes.poll(5, TimeUnit.SECONDS), MemberChange.Type.DELETE, "live-1", 26);
+
+            tx.executeWithoutResult(status -> em.remove(em.find(Member.class, ids[1])));
+            assertChange(changes.poll(5, TimeUnit.SECONDS), MemberChange.Type.DELETE, "live-2", 30);
+
+            assertThat(changes.poll(200, TimeUnit.MILLISECONDS)).isNull();
+        } finally {
+            hub.unsubscribe(subscription);
+        }
+    }
+
+    @Test
+    public void teamRenameMovesMembers() throws Exception {
+        Long teamId = tx.execute(status -> {
+            Team teamC = new Team("liveTeamC");
+            em.persist(teamC);
+            em.persist(new Member("live-4", 40, teamC));
+            return teamC.getId();
+        });
+
+        BlockingQueue<MemberChange> changes = new LinkedBlockingQueue<>();
+        MemberSubscriptionHub.Subscription subscription = hub.subscribe(condition("liveTeamD", null), changes::add);
+        try {
+            tx.executeWithoutResult(status -> em.find(Team.class, teamId).setName("liveTeamD"));
+            MemberChange renamed = changes.poll(5, TimeUnit.SECONDS);
+            assertChange(renamed, MemberChange.Type.INSERT, "live-4", 40);
+            assertThat(renamed.getTeamName()).isEqualTo("liveTeamD");
+        } finally {
+            hub.unsubscribe(subscription);
+        }
+        assertThat(hub.getSubscriberCount()).isZero();
+    }
+
+//    막힌 구독자는 끊기고, 같은 조건의 다른 구독자는 밀리지 않고 모두 받는다.
+    @Test
+    public void slowSubscriberIsDisconnected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<MemberChange> changes = new LinkedBlockingQueue<>();
+        MemberSubscriptionHub.Subscription slow = hub.subscribe(condition("liveTeamE", null), change -> await(release));
+        MemberSubscriptionHub.Subscription fast = hub.subscribe(condition("liveTeamE", null), changes::add);
+        try {
+            tx.executeWithoutResult(status -> {
+                Team teamE = new Team("liveTeamE");
+                em.persist(teamE);
+                for (int i = 0; i < 5; i++) {
+                    em.persist(new Member("live-e" + i, i, teamE));
+                }
+            });
+            for (int i = 0; i < 5; i++) {
+                assertThat(changes.poll(5, TimeUnit.SECONDS)).isNotNull();
+            }
+            awaitSubscriberCount(1);
+        } finally {
+            release.countDown();
+            hub.unsubscribe(slow);
+            hub.unsubscribe(fast);
+        }
+    }
+
+//    버퍼가 넘치지 않아도 send 하나가 send-timeout 을 넘기면 끊는다.
+    @Test
+    public void stalledSendTimesOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        MemberSubscriptionHub.Subscription stalled = hub.subscribe(condition("liveTeamF", null),
+                new MemberSubscriptionHub.Sink() {
+                    @Override
+                    public void send(MemberChange change) {
+                        await(release);
+                    }
+
+                    @Override
+                    public void close() {
+                        closed.countDown();
+                    }
+                });
+        try {
+            tx.executeWithoutResult(status -> {
+                Team teamF = new Team("liveTeamF");
+                em.persist(teamF);
+                em.persist(new Member("live-f", 1, teamF));
+            });
+            assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(hub.getSubscriberCount()).isZero();
+        } finally {
+            release.countDown();
+            hub.unsubscribe(stalled);
+        }
+    }
+
+    private void awaitSubscriberCount(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hub.getSubscriberCount() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(hub.getSubscriberCount()).isEqualTo(expected);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+
+    private static void assertChange(MemberChange change, MemberChange.Type type, String username, int age) {
+        assertThat(change).isNotNull();
+        assertThat(change.getType()).isEqualTo(type);
+        assertThat(change.getUsername()).isEqualTo(username);
+        assertThat(change.getAge()).isEqualTo(age);
+    }
+}
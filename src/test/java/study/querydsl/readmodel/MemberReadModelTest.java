@@ -0,0 +1,144 @@
+package study.querydsl.readmodel;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//commit 된 변경으로 갱신되는지 보려면 실제로 commit 해야 하므로 @Transactional 을 쓰지 않고, 저장한 데이터는 테스트 후 지운다.
+//segment-size 를 작게 해서 병렬 segment 계산도 같이 확인한다.
+@SpringBootTest(properties = {
+        "member-read-model.enabled=true",
+        "member-read-model.segment-size=64"
+})
+class MemberReadModelTest {
+
+    @Autowired
+    MemberReadModel readModel;
+
+    @Autowired
+    MemberReadModelRepository readModelRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("readModelTeamA");
+            Team teamB = new Team("readModelTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 300; i++) {
+                em.persist(new Member("readmodel-" + (i % 50), i % 60, i % 3 == 0 ? teamB : teamA));
+            }
+            em.persist(new Member("readmodel-noteam", 30));
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.username.startsWith("readmodel-")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("readModelTeam")).execute();
+        });
+        readModel.load();
+    }
+
+    @Test
+    public void searchMatchesJpa(){
+        assertSameResult(condition(null, "readModelTeamA", null, null));
+        assertSameResult(condition(null, "readModelTeamB", 10, 40));
+        assertSameResult(condition("readmodel-7", null, null, null));
+        assertSameResult(condition("readmodel-7", "readModelTeamA", 5, null));
+        assertSameResult(condition(null, null, 30, 30));
+        assertSameResult(condition(null, null, 50, 40));
+        assertSameResult(condition("readmodel-none", null, null, null));
+        assertSameResult(condition(null, "readModelTeamC", null, null));
+    }
+
+    @Test
+    public void pageAndCountWithoutSql(){
+        MemberSearchCondition condition = condition(null, "readModelTeamB", null, null);
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        Page<MemberTeamDto> page = readModelRepository.searchPageSimple(condition, PageRequest.of(2, 30));
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(page.getTotalElements()).isEqualTo(100);
+        assertThat(page.getContent()).hasSize(30);
+        assertThat(readModelRepository.count(condition)).isEqualTo(100);
+        List<MemberTeamDto> all = readModel.search(condition);
+        assertThat(page.getContent()).containsExactlyElementsOf(all.subList(60, 90));
+    }
+
+    @Test
+    public void committedChangesAreApplied(){
+        Long memberId = tx.execute(status -> new JPAQueryFactory(em).select(member.id).from(member)
+                .where(member.username.eq("readmodel-noteam")).fetchOne());
+
+        tx.executeWithoutResult(status -> {
+            Member noTeam = em.find(Member.class, memberId);
+            noTeam.setAge(99);
+            noTeam.changeTeam(new JPAQueryFactory(em).selectFrom(team).where(team.name.eq("readModelTeamA")).fetchOne());
+        });
+        assertThat(readModel.search(condition(null, "readModelTeamA", 99, null)))
+                .extracting("memberId").containsExactly(memberId);
+
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, memberId)));
+        assertThat(readModel.search(condition(null, null, 99, null))).extracting("memberId").doesNotContain(memberId);
+
+//        대소문자 무시 검색도 메모리에서
+        assertThat(readModel.searchByUsernameIgnoreCase("READMODEL-7")).hasSize(6);
+    }
+
+    private void assertSameResult(MemberSearchCondition condition) {
+        List<MemberTeamDto> expected = tx.execute(status -> memberRepository.searchByWhereParam(condition));
+        List<MemberTeamDto> actual = readModel.search(condition);
+        assertThat(actual).extracting("memberId")
+                .containsExactlyInAnyOrderElementsOf(expected.stream().map(MemberTeamDto::getMemberId).toList());
+        assertThat(actual).extracting("teamName")
+                .containsExactlyInAnyOrderElementsOf(expected.stream().map(MemberTeamDto::getTeamName).toList());
+    }
+
+    private static MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
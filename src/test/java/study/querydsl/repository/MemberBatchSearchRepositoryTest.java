@@ -0,0 +1,90 @@
+package study.querydsl.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberBatchSearchRepositoryTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberBatchSearchRepository memberBatchSearchRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("batchTeamA");
+        Team teamB = new Team("batchTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("batch1", 10, teamA));
+        em.persist(new Member("batch2", 20, teamA));
+        em.persist(new Member("batch3", 30, teamB));
+        em.persist(new Member("batch4", 40, teamB));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void searchBatchInOneQuery(){
+        Map<String, MemberSearchCondition> conditions = new LinkedHashMap<>();
+        conditions.put("teamA", condition("batchTeamA", null, null));
+        conditions.put("teamBOld", condition("batchTeamB", 35, null));
+        conditions.put("teamAYoung", condition("batchTeamA", null, 15));
+        conditions.put("none", condition("batchTeamC", null, null));
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        Map<String, List<MemberTeamDto>> result = memberBatchSearchRepository.searchBatch(conditions);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(result).containsOnlyKeys("teamA", "teamBOld", "teamAYoung", "none");
+        assertThat(result.get("teamA")).extracting("username").containsExactly("batch1", "batch2");
+        assertThat(result.get("teamBOld")).extracting("username").containsExactly("batch4");
+        assertThat(result.get("teamAYoung")).extracting("username").containsExactly("batch1");
+        assertThat(result.get("none")).isEmpty();
+    }
+
+    @Test
+    public void searchBatchSharedPredicate(){
+//        모든 조건에 공통인 teamName 은 한번만 적용되고, 나머지는 요청별로 나뉜다
+        Map<String, MemberSearchCondition> conditions = new LinkedHashMap<>();
+        conditions.put("all", condition("batchTeamB", null, null));
+        conditions.put("old", condition("batchTeamB", 35, null));
+
+        Map<String, List<MemberTeamDto>> result = memberBatchSearchRepository.searchBatch(conditions);
+
+        assertThat(result.get("all")).extracting("username").containsExactly("batch3", "batch4");
+        assertThat(result.get("old")).extracting("username").containsExactly("batch4");
+        assertThat(result.get("all")).extracting("teamName").containsOnly("batchTeamB");
+    }
+
+    private MemberSearchCondition condition(String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
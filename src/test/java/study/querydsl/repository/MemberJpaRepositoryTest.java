@@ -1,9 +1,13 @@
 package study.querydsl.repository;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.deadline.QueryDeadline;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -12,9 +16,13 @@ import study.querydsl.entity.Team;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional
@@ -75,26 +83,63 @@ class MemberJpaRepositoryTest {
         assertThat(result).extracting("username").containsExactly("member4");
     }
 
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
+    @Test
+    public void findAllByIdTest(){
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        Member member3 = new Member("member3", 30);
+        memberJpaRepository.save(member1);
+        memberJpaRepository.save(member2);
+        memberJpaRepository.save(member3);
+        em.flush();
+        em.clear();
+
+//        입력 순서 유지, 중복/없는 id 는 빠진다
+        List<Member> result = memberJpaRepository.findAllById(
+                List.of(member3.getId(), member1.getId(), member3.getId(), -1L));
+        assertThat(result).extracting("username").containsExactly("member3", "member1");
+    }
 
+    @Test
+    public void memberLoaderBatchesLoads(){
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        memberJpaRepository.save(member1);
+        memberJpaRepository.save(member2);
+        em.flush();
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        MemberLoader loader = new MemberLoader(memberJpaRepository);
+        Supplier<Optional<Member>> ref1 = loader.load(member1.getId());
+        Supplier<Optional<Member>> ref2 = loader.load(member2.getId());
+        Supplier<Optional<Member>> missing = loader.load(-1L);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+
+        assertThat(ref1.get()).map(Member::getUsername).contains("member1");
+        assertThat(ref2.get()).map(Member::getUsername).contains("member2");
+        assertThat(missing.get()).isEmpty();
+        assertThat(loader.find(member1.getId())).isPresent();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
 
+    @Test
+    public void deadlineExceeded(){
+        memberJpaRepository.save(new Member("member1", 10));
+
+//        요청 deadline 이 이미 지났으면 쿼리를 DB 로 보내지 않고 바로 실패한다
+        QueryDeadline.bind(QueryDeadline.after(Duration.ZERO));
+        try {
+            assertThatThrownBy(() -> memberJpaRepository.searchByWhereParam(new MemberSearchCondition()))
+                    .isInstanceOf(QueryTimeoutException.class);
+        } finally {
+            QueryDeadline.clear();
+        }
+
+        assertThat(memberJpaRepository.searchByWhereParam(new MemberSearchCondition())).hasSize(1);
+    }
 
+}
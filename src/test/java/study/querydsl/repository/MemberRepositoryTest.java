@@ -1,5 +1,8 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -8,15 +11,20 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CaseInsensitivePredicates;
+import study.querydsl.repository.support.CountQuerySupport;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
 
 @SpringBootTest
 @Transactional
@@ -27,6 +35,9 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    JPAQueryFactory queryFactory;
+
     @Test
     public void basicTest(){
         Member member = new Member("member1", 10);
@@ -69,6 +80,47 @@ class MemberRepositoryTest {
         assertThat(result).extracting("username").containsExactly("member4");
     }
 
+    @Test
+    public void searchByUsernameIgnoreCaseTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("Member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+
+        List<MemberTeamDto> result = memberRepository.searchByUsernameIgnoreCase("MEMBER1");
+        assertThat(result).extracting("username").containsExactly("Member1");
+
+        Member member2 = memberRepository.findByUsername("member2").get(0);
+        member2.setUsername("MemberTwo");
+        em.flush();
+        assertThat(memberRepository.searchByUsernameIgnoreCase("membertwo")).extracting("username").containsExactly("MemberTwo");
+    }
+
+    @Test
+    public void caseInsensitiveRewriteTest(){
+        Predicate rewritten = CaseInsensitivePredicates.rewrite(
+                member.age.goe(10).and(member.username.lower().eq("member1")));
+        assertThat(rewritten).isEqualTo(member.age.goe(10).and(member.usernameNormalized.eq("member1")));
+
+        assertThat(CaseInsensitivePredicates.rewrite(member.username.equalsIgnoreCase("MEMBER1")))
+                .isEqualTo(member.usernameNormalized.eq("member1"));
+    }
+
+//    predicate-guard 를 켜지 않아도 queryFactory 로 만든 쿼리의 where 는 정규화 컬럼 비교로 바뀐다
+    @Test
+    public void caseInsensitiveRewriteOnQueryTest(){
+        em.persist(new Member("Member1", 10));
+        em.persist(new Member("member2", 20));
+
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .where(member.username.equalsIgnoreCase("MEMBER1"), member.age.goe(10));
+
+        assertThat(query.getMetadata().getWhere())
+                .isEqualTo(member.usernameNormalized.eq("member1").and(member.age.goe(10)));
+        assertThat(query.fetch()).extracting("username").containsExactly("Member1");
+    }
+
     @Test
     public void searchPageSimpleTest(){
         Team teamA = new Team("teamA");
@@ -94,6 +146,56 @@ class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
 
+    @Test
+    public void searchPageComplexTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        Member member5 = new Member("member5", 50);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+        em.persist(member5);
+
+//        teamName 조건이 없으면 count 쿼리에서 team join이 빠지지만, 팀이 없는 회원도 count 된다
+        MemberSearchCondition condition = new MemberSearchCondition();
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(0, 3));
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+
+        condition.setTeamName("teamB");
+        Page<MemberTeamDto> teamResult = memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+        assertThat(teamResult.getTotalElements()).isEqualTo(2);
+        assertThat(teamResult.getContent()).extracting("username").containsExactly("member3");
+    }
+
+    @Test
+    public void countQueryJoinPruningTest(){
+        JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+
+        JPAQuery<MemberTeamDto> withoutTeamCondition = queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.goe(10))
+                .orderBy(team.name.asc());
+        JPAQuery<?> countQuery = CountQuerySupport.countQueryOf(queryFactory, withoutTeamCondition);
+        assertThat(countQuery.getMetadata().getJoins()).hasSize(1);
+        assertThat(countQuery.getMetadata().getOrderBy()).isEmpty();
+        assertThat(countQuery.getMetadata().getProjection()).isNull();
+
+        JPAQuery<MemberTeamDto> withTeamCondition = withoutTeamCondition.clone()
+                .where(team.name.eq("teamA"));
+        assertThat(CountQuerySupport.countQueryOf(queryFactory, withTeamCondition).getMetadata().getJoins()).hasSize(2);
+    }
+
 //    MemberRepository 에 QuerydslPredicateExecutor<Member> 을 상속받음으로써 spring data jpa 기능인 findAll에 querydsl 기능을 사용할 수 있다.
 //    다만 Jpa에서 Querydsl 기능을 제공하는 것이므로 단일 entity 에 한해서만 가능.... `join` 이라던지 복잡한 쿼리에 대해서는 사용하지 말자.(실무에 부적합)
 //    단점
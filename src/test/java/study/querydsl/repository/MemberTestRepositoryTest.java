@@ -0,0 +1,101 @@
+package study.querydsl.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.UnsupportedSortException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class MemberTestRepositoryTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member3", 40, teamB));
+    }
+
+    @Test
+    public void applyPaginationSortPolicy(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+//        name -> username 으로 바뀌고, 같은 username 은 id tiebreaker 로 순서가 고정된다
+        Page<Member> result = memberTestRepository.applyPagination(condition,
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "name")));
+
+        assertThat(result.getTotalElements()).isEqualTo(4);
+        assertThat(result.getContent()).extracting("age").containsExactly(40, 30, 20);
+    }
+
+    @Test
+    public void applyPaginationNullHandling(){
+        em.persist(new Member(null, 50));
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<Member> nullsLast = memberTestRepository.applyPagination(condition,
+                PageRequest.of(0, 5, Sort.by(Sort.Order.asc("username").nullsLast())));
+        assertThat(nullsLast.getContent()).extracting("age").containsExactly(10, 20, 30, 40, 50);
+
+        Page<Member> nullsFirst = memberTestRepository.applyPagination(condition,
+                PageRequest.of(0, 5, Sort.by(Sort.Order.asc("username").nullsFirst())));
+        assertThat(nullsFirst.getContent()).extracting("age").containsExactly(50, 10, 20, 30, 40);
+    }
+
+    @Test
+    public void applyPaginationWindowCount(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        em.flush();
+        em.clear();
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+//        content 와 total 을 count(*) over() 쿼리 하나로 가져온다
+        Page<Member> result = memberTestRepository.applyPagination(condition, PageRequest.of(1, 3, Sort.by("age")));
+        assertThat(result.getTotalElements()).isEqualTo(4);
+        assertThat(result.getContent()).extracting("age").containsExactly(40);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+//        마지막 페이지 이후는 count 쿼리로 센다
+        Page<Member> empty = memberTestRepository.applyPagination(condition, PageRequest.of(5, 3));
+        assertThat(empty.getContent()).isEmpty();
+        assertThat(empty.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    public void applyPaginationRejectsUnindexedSort(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        assertThatThrownBy(() -> memberTestRepository.applyPagination(condition,
+                PageRequest.of(0, 3, Sort.by("team.name"))))
+                .isInstanceOf(UnsupportedSortException.class);
+    }
+}
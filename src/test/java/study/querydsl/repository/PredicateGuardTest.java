@@ -0,0 +1,84 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.BooleanBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.guard.PredicateRejectedException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+//Member 테이블이 100만건이라고 가정하고 QuerydslPredicateExecutor 로 들어온 조건을 검사
+@SpringBootTest(properties = {
+        "predicate-guard.enabled=true",
+        "predicate-guard.table-rows.Member=1000000",
+        "predicate-guard.reject-scan-rows=100000",
+        "predicate-guard.default-limit=2"
+})
+@Transactional
+class PredicateGuardTest {
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+    }
+
+    @Test
+    public void rejectNonSargablePredicate(){
+        assertThatThrownBy(() -> memberRepository.findAll(member.username.contains("member")))
+                .isInstanceOf(PredicateRejectedException.class);
+        assertThatThrownBy(() -> memberRepository.findAll(member.username.upper().eq("MEMBER1")))
+                .isInstanceOf(PredicateRejectedException.class);
+
+        assertThat(meterRegistry.get("querydsl.predicate.guard").tag("action", "reject").counter().count())
+                .isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    public void indexedPredicateAllowed(){
+        Iterable<Member> result = memberRepository.findAll(member.username.eq("member1"));
+        assertThat(result).extracting("username").containsExactly("member1");
+    }
+
+//    lower(username) 비교는 인덱스가 있는 username_normalized 비교로 바뀌어서 실행된다
+    @Test
+    public void caseInsensitivePredicateRewritten(){
+        assertThat(memberRepository.findAll(member.username.lower().eq("member1")))
+                .extracting("username").containsExactly("member1");
+        assertThat(memberRepository.findAll(member.username.equalsIgnoreCase("MEMBER2")))
+                .extracting("username").containsExactly("member2");
+    }
+
+    @Test
+    public void unboundedFindAllLimited(){
+//        조건이 없으면 100만건 전체가 결과이므로 default-limit 만큼만 조회
+        assertThat(memberRepository.findAll()).hasSize(2);
+//        빈 BooleanBuilder 도 조건 없음으로 본다
+        assertThat(memberRepository.findAll(new BooleanBuilder())).hasSize(2);
+        assertThat(memberRepository.findAll(member.username.startsWith("member"))).hasSize(2);
+        assertThat(meterRegistry.get("querydsl.predicate.guard").tag("action", "limit").counter().count())
+                .isGreaterThanOrEqualTo(2);
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.repository.guard;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.entity.Member;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+//row 수를 고정값으로 주므로 DB 없이 판정만 검사한다
+class IndexAwarePredicateCostAnalyzerTest {
+
+    TableStatistics tableStatistics = new TableStatistics(null, Map.of("Member", 1_000_000L), Duration.ofMinutes(5));
+
+    @Test
+    public void noLimitByDefault(){
+        PredicateCostAnalyzer analyzer = new IndexAwarePredicateCostAnalyzer(tableStatistics, 100_000, 0);
+
+        assertThat(analyzer.analyze(Member.class, null, false).getAction()).isEqualTo(PredicateVerdict.Action.ALLOW);
+        assertThat(analyzer.analyze(Member.class, member.username.contains("member"), false).getAction())
+                .isEqualTo(PredicateVerdict.Action.REJECT);
+    }
+
+    @Test
+    public void limitUnboundedFindAll(){
+        PredicateCostAnalyzer analyzer = new IndexAwarePredicateCostAnalyzer(tableStatistics, 100_000, 1_000);
+
+        PredicateVerdict verdict = analyzer.analyze(Member.class, null, false);
+        assertThat(verdict.getAction()).isEqualTo(PredicateVerdict.Action.LIMIT);
+        assertThat(verdict.getLimit()).isEqualTo(1_000);
+        assertThat(analyzer.analyze(Member.class, null, true).getAction()).isEqualTo(PredicateVerdict.Action.ALLOW);
+    }
+}
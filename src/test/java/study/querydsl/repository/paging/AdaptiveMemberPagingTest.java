@@ -0,0 +1,105 @@
+package study.querydsl.repository.paging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class AdaptiveMemberPagingTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    AdaptiveMemberPaging adaptiveMemberPaging;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+        }
+    }
+
+    @Test
+    public void everyStrategyReturnsSamePage(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+
+//        방식과 관계없이 pageable 의 sort + id 순서로 같은 페이지가 나온다
+        for (PagingStrategy strategy : PagingStrategy.values()) {
+            Page<MemberTeamDto> result = adaptiveMemberPaging.search(condition, PageRequest.of(0, 10), strategy);
+            assertThat(result.getTotalElements()).as(strategy.name()).isEqualTo(4);
+            assertThat(result.getContent()).as(strategy.name()).extracting("username")
+                    .containsExactly("member2", "member4", "member6", "member8");
+
+            Page<MemberTeamDto> byAgeDesc = adaptiveMemberPaging.search(condition,
+                    PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age")), strategy);
+            assertThat(byAgeDesc.getContent()).as(strategy.name()).extracting("username")
+                    .containsExactly("member8", "member6", "member4");
+
+            Page<MemberTeamDto> secondPage = adaptiveMemberPaging.search(condition,
+                    PageRequest.of(1, 3, Sort.by(Sort.Direction.DESC, "age")), strategy);
+            assertThat(secondPage.getTotalElements()).as(strategy.name()).isEqualTo(4);
+            assertThat(secondPage.getContent()).as(strategy.name()).extracting("username")
+                    .containsExactly("member2");
+        }
+    }
+
+    @Test
+    public void adaptiveSearchPicksAStrategy(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        for (int i = 0; i < 20; i++) {
+            assertThat(adaptiveMemberPaging.search(condition, PageRequest.of(0, 3)).getTotalElements()).isEqualTo(10);
+        }
+        assertThat(adaptiveMemberPaging.currentStrategy(condition, PageRequest.of(0, 3)))
+                .isNotNull()
+                .isNotEqualTo(PagingStrategy.CAPPED_COUNT);
+    }
+
+    @Test
+    public void chooserHysteresis(){
+        StrategyChooser chooser = new StrategyChooser(1, Integer.MAX_VALUE, 0.2);
+        Set<PagingStrategy> candidates = Set.of(PagingStrategy.SPLIT_COUNT, PagingStrategy.SKIP_COUNT);
+
+//        샘플이 없는 방식부터 한번씩 써본다
+        chooser.record(chooser.choose(candidates), 1_000, 10);
+        chooser.record(chooser.choose(candidates), 1_000, 10);
+        for (int i = 0; i < 50; i++) {
+            chooser.record(PagingStrategy.SKIP_COUNT, 100, 10);
+        }
+        assertThat(chooser.choose(candidates)).isEqualTo(PagingStrategy.SKIP_COUNT);
+
+//        조금 빠른 정도로는 바꾸지 않는다
+        for (int i = 0; i < 50; i++) {
+            chooser.record(PagingStrategy.SPLIT_COUNT, 90, 10);
+        }
+        assertThat(chooser.choose(candidates)).isEqualTo(PagingStrategy.SKIP_COUNT);
+
+//        hysteresis(20%) 이상 빨라지면 바꾼다
+        for (int i = 0; i < 50; i++) {
+            chooser.record(PagingStrategy.SPLIT_COUNT, 50, 10);
+        }
+        assertThat(chooser.choose(candidates)).isEqualTo(PagingStrategy.SPLIT_COUNT);
+    }
+}
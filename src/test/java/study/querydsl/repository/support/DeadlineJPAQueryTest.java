@@ -0,0 +1,64 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.QueryModifiers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.deadline.QueryDeadline;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.QueryTimeoutException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+class DeadlineJPAQueryTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @AfterEach
+    public void after(){
+        QueryDeadline.clear();
+    }
+
+//    500ms 미만이 남아도 timeout 이 0(무제한)이 되지 않고 1초로 올림된다
+    @Test
+    public void shortDeadlineRoundsUpToOneSecond(){
+        QueryDeadline.bind(QueryDeadline.after(Duration.ofMillis(200)));
+
+        assertThat(timeoutOf(new DeadlineJPAQuery<>(em).select(member).from(member))).isEqualTo(1);
+    }
+
+    @Test
+    public void remainingDeadlineRoundsUpToSeconds(){
+        QueryDeadline.bind(QueryDeadline.after(Duration.ofMillis(2500)));
+
+        assertThat(timeoutOf(new DeadlineJPAQuery<>(em).select(member).from(member))).isEqualTo(3);
+    }
+
+    @Test
+    public void expiredDeadlineFailsBeforeExecution(){
+        QueryDeadline.bind(QueryDeadline.after(Duration.ZERO));
+
+        assertThatThrownBy(() -> new DeadlineJPAQuery<>(em).select(member).from(member).fetch())
+                .isInstanceOf(QueryTimeoutException.class);
+    }
+
+    @Test
+    public void noDeadlineNoTimeout(){
+        assertThat(timeoutOf(new DeadlineJPAQuery<>(em).select(member).from(member))).isNull();
+    }
+
+    private static Integer timeoutOf(DeadlineJPAQuery<?> query) {
+        Query created = query.createQuery(QueryModifiers.EMPTY, false);
+        return created.unwrap(org.hibernate.query.Query.class).getTimeout();
+    }
+}
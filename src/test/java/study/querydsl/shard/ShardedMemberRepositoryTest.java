@@ -0,0 +1,126 @@
+package study.querydsl.shard;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//shard 마다 별도의 in-memory H2 를 띄워서 확인한다.
+@SpringBootTest(properties = {
+        "member-shard.enabled=true",
+        "member-shard.count=3"
+})
+class ShardedMemberRepositoryTest {
+
+    @Autowired
+    ShardedMemberRepository shardedMemberRepository;
+
+    @Autowired
+    MemberShards memberShards;
+
+    @BeforeEach
+    public void before(){
+        for (int i = 0; i < 12; i++) {
+            shardedMemberRepository.save("member" + i, i * 10, "team" + (i % 4));
+        }
+    }
+
+    @AfterEach
+    public void after(){
+        shardedMemberRepository.deleteAll();
+    }
+
+    @Test
+    public void teamNameRoutesToSingleShard(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team1");
+
+        assertThat(shardedMemberRepository.targetShards(condition))
+                .containsExactly(memberShards.shardOf("team1", null));
+
+        List<MemberTeamDto> result = shardedMemberRepository.searchByWhereParam(condition);
+        assertThat(result).extracting("username").containsExactly("member1", "member5", "member9");
+    }
+
+    @Test
+    public void scatterGatherPage(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        assertThat(shardedMemberRepository.targetShards(condition)).hasSize(3);
+
+        Page<MemberTeamDto> result = shardedMemberRepository.searchPageSimple(condition,
+                PageRequest.of(1, 5, Sort.by(Sort.Direction.DESC, "age")));
+
+        assertThat(result.getTotalElements()).isEqualTo(12);
+        assertThat(result.getContent()).extracting("age").containsExactly(60, 50, 40, 30, 20);
+
+        condition.setAgeGoe(50);
+        Page<MemberTeamDto> filtered = shardedMemberRepository.searchPageSimple(condition, PageRequest.of(0, 3));
+        assertThat(filtered.getTotalElements()).isEqualTo(7);
+        assertThat(filtered.getContent()).hasSize(3);
+    }
+
+    @Test
+    public void pageComplexAndCountOptimizationMatchSimple(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeLoe(90);
+        PageRequest pageable = PageRequest.of(1, 4, Sort.by(Sort.Direction.ASC, "username"));
+
+        Page<MemberTeamDto> simple = shardedMemberRepository.searchPageSimple(condition, pageable);
+        Page<MemberTeamDto> complex = shardedMemberRepository.searchPageComplex(condition, pageable);
+        Page<MemberTeamDto> optimized = shardedMemberRepository.searchPageCountOptimization(condition, pageable);
+
+        assertThat(simple.getContent()).extracting("username")
+                .containsExactly("member4", "member5", "member6", "member7");
+        assertThat(complex.getContent()).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(simple.getContent());
+        assertThat(optimized.getContent()).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(simple.getContent());
+        assertThat(complex.getTotalElements()).isEqualTo(10);
+        assertThat(optimized.getTotalElements()).isEqualTo(10);
+
+//        마지막 페이지는 count 없이 offset + content 크기로 total 을 구한다
+        Page<MemberTeamDto> last = shardedMemberRepository.searchPageCountOptimization(condition, PageRequest.of(2, 4));
+        assertThat(last.getContent()).hasSize(2);
+        assertThat(last.getTotalElements()).isEqualTo(10);
+    }
+
+    @Test
+    public void usernameIgnoreCaseSearchesAllShards(){
+        assertThat(shardedMemberRepository.searchByUsernameIgnoreCase("MEMBER7"))
+                .extracting("username", "teamName").containsExactly(tuple("member7", "team3"));
+    }
+
+//    shard 마다 schema 가 따로여도 id 는 겹치지 않고, id 로 shard 를 알 수 있다
+    @Test
+    public void idsAreGloballyUniqueAndEncodeShard(){
+        List<MemberTeamDto> result = shardedMemberRepository.searchByWhereParam(new MemberSearchCondition());
+
+        assertThat(result).hasSize(12);
+        assertThat(result).extracting(MemberTeamDto::getMemberId).doesNotHaveDuplicates().isSorted();
+        assertThat(result).allSatisfy(dto -> {
+            int shard = memberShards.shardOf(dto.getTeamName(), null);
+            assertThat(memberShards.shardOfId(dto.getMemberId())).isEqualTo(shard);
+            assertThat(memberShards.shardOfId(dto.getTeamId())).isEqualTo(shard);
+        });
+    }
+
+    @Test
+    public void kWayMerge(){
+        List<List<Integer>> lists = List.of(List.of(1, 4, 7), List.of(2, 5, 8), List.of(), List.of(3, 6, 9));
+
+        assertThat(KWayMerge.merge(lists, Comparator.naturalOrder(), 2, 4)).containsExactly(3, 4, 5, 6);
+        assertThat(KWayMerge.merge(lists, Comparator.naturalOrder(), 8, 4)).containsExactly(9);
+    }
+}
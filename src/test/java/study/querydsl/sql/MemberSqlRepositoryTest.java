@@ -0,0 +1,111 @@
+package study.querydsl.sql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.UnsupportedSortException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(properties = "querydsl-sql.enabled=true")
+@Transactional
+class MemberSqlRepositoryTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    Team teamA;
+
+    @BeforeEach
+    public void before(){
+        teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("Member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+//        JDBC 로 바로 조회하므로 flush 해야 보인다
+        em.flush();
+    }
+
+    @Test
+    public void sameResultAsJpa(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setTeamName("teamB");
+
+        List<MemberTeamDto> sql = memberSqlRepository.searchByWhereParam(condition);
+        List<MemberTeamDto> jpa = memberRepository.searchByWhereParam(condition);
+
+        assertThat(sql).extracting("memberId", "username", "age", "teamId", "teamName")
+                .containsExactlyInAnyOrderElementsOf(
+                        jpa.stream().map(dto -> tuple(
+                                dto.getMemberId(), dto.getUsername(), dto.getAge(), dto.getTeamId(), dto.getTeamName()))
+                                .collect(Collectors.toList()));
+        assertThat(sql).extracting("username").containsExactlyInAnyOrder("Member3", "member4");
+    }
+
+    @Test
+    public void searchPage(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<MemberTeamDto> result = memberSqlRepository.searchPageComplex(condition, PageRequest.of(0, 3));
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(result.getContent()).hasSize(3);
+
+        condition.setTeamName("teamA");
+        Page<MemberTeamDto> teamAPage = memberSqlRepository.searchPageCountOptimization(condition, PageRequest.of(0, 3));
+        assertThat(teamAPage.getTotalElements()).isEqualTo(2);
+        assertThat(teamAPage.getContent()).extracting("teamId").containsOnly(teamA.getId());
+    }
+
+    @Test
+    public void searchPageSorted(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<MemberTeamDto> result = memberSqlRepository.searchPageSimple(condition,
+                PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "age")));
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(result.getContent()).extracting("age").containsExactly(30, 20);
+
+//        name 은 username 으로 바꿔서 정렬한다
+        Page<MemberTeamDto> byName = memberSqlRepository.searchPageCountOptimization(condition,
+                PageRequest.of(0, 3, Sort.by("name")));
+        assertThat(byName.getContent()).extracting("username").containsExactly("Member3", "member1", "member2");
+
+        assertThatThrownBy(() -> memberSqlRepository.searchPageComplex(condition, PageRequest.of(0, 3, Sort.by("teamName"))))
+                .isInstanceOf(UnsupportedSortException.class);
+    }
+
+    @Test
+    public void searchByUsernameIgnoreCase(){
+        assertThat(memberSqlRepository.searchByUsernameIgnoreCase("MEMBER3"))
+                .extracting("username").containsExactly("Member3");
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.trace;
+
+import com.p6spy.engine.common.StatementInformation;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlFingerprintCollectorTest {
+
+    @Test
+    public void evictLeastUsedFingerprint(){
+        SqlFingerprintCollector collector = new SqlFingerprintCollector();
+        for (int i = 0; i < 10; i++) {
+            execute(collector, "select * from member where age = " + i);
+        }
+//        모양이 전부 다른 SQL 이 계속 들어와도 상한을 넘지 않는다
+        for (int i = 0; i < 5_000; i++) {
+            execute(collector, "select * from table" + i);
+        }
+
+        assertThat(collector.size()).isLessThanOrEqualTo(1_000);
+        assertThat(collector.top(1)).extracting(SqlFingerprintStats::getFingerprint)
+                .containsExactly("select * from member where age = ?");
+    }
+
+    private void execute(SqlFingerprintCollector collector, String sql) {
+        StatementInformation statementInformation = new StatementInformation(null);
+        statementInformation.setStatementQuery(sql);
+        collector.onAfterAnyExecute(statementInformation, 1_000_000, null);
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.trace;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlFingerprintTest {
+
+    @Test
+    public void sameShapeSameFingerprint(){
+        String a = SqlFingerprint.of("/* select member1 from Member member1 */ select m.member_id from member m where m.username = 'member1' and m.age in (10, 20)");
+        String b = SqlFingerprint.of("select   m.member_id from member m\n where m.username = 'it''s' and m.age in (?, ?, ?, ?)");
+
+        assertThat(a).isEqualTo(b);
+        assertThat(a).isEqualTo("select m.member_id from member m where m.username = ? and m.age in (?+)");
+    }
+
+    @Test
+    public void aliasDigitsAreNotLiterals(){
+        assertThat(SqlFingerprint.of("select member0_.member_id as member_i1_1_ from member member0_ limit ?"))
+                .isEqualTo("select member0_.member_id as member_i1_1_ from member member0_ limit ?");
+    }
+
+    @Test
+    public void histogramPercentile(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+
+//        구간 상한값을 돌려주므로 12.5% 이내의 오차
+        assertThat(histogram.percentile(0.5)).isBetween(50_000L, 56_250L);
+        assertThat(histogram.percentile(0.99)).isBetween(99_000L, 111_375L);
+    }
+}
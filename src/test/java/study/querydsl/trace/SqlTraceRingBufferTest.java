@@ -0,0 +1,43 @@
+package study.querydsl.trace;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlTraceRingBufferTest {
+
+    @Test
+    public void drainInOrder(){
+        SqlTraceRingBuffer buffer = new SqlTraceRingBuffer(4);
+        buffer.offer(trace("select 1"));
+        buffer.offer(trace("select 2"));
+
+        List<String> result = new ArrayList<>();
+        buffer.drain(trace -> result.add(trace.getSql()));
+
+        assertThat(result).containsExactly("select 1", "select 2");
+        assertThat(buffer.getLost()).isZero();
+    }
+
+    @Test
+    public void overwriteOldestWhenFull(){
+        SqlTraceRingBuffer buffer = new SqlTraceRingBuffer(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.offer(trace("select " + i));
+        }
+
+//        요청 스레드는 기다리지 않고 가장 오래된 2건을 덮어쓴다
+        List<String> result = new ArrayList<>();
+        buffer.drain(trace -> result.add(trace.getSql()));
+
+        assertThat(result).containsExactly("select 2", "select 3", "select 4", "select 5");
+        assertThat(buffer.getLost()).isEqualTo(2);
+    }
+
+    private SqlTrace trace(String sql) {
+        return new SqlTrace(sql, new Object[0], 0, false, false, "test", System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.trace;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlTraceWriterTest {
+
+    @Test
+    public void bindValuesInOrder(){
+        String sql = SqlTraceWriter.withValues(
+                "select * from member where username = ? and age > ? and team_id is ?",
+                new Object[]{"O'Brien", 10, null});
+
+        assertThat(sql).isEqualTo("select * from member where username = 'O''Brien' and age > 10 and team_id is NULL");
+    }
+
+    @Test
+    public void keepPlaceholderWithoutValue(){
+        assertThat(SqlTraceWriter.withValues("select ? , ?", new Object[]{1})).isEqualTo("select 1 , ?");
+        assertThat(SqlTraceWriter.withValues("select 1", new Object[0])).isEqualTo("select 1");
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.warmup;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "warmup.enabled=true",
+        "warmup.iterations=2"
+})
+class QueryWarmupTest {
+
+    @Autowired
+    QueryWarmup queryWarmup;
+
+    @Autowired
+    ApplicationAvailability availability;
+
+    @Test
+    public void warmupRunsBeforeReady(){
+        WarmupReport report = queryWarmup.getReport();
+
+        assertThat(report).isNotNull();
+        assertThat(report.getShapes()).isEqualTo(16);
+//        조건 모양마다 v1 1개 + 페이지 2개 x 페이징 6가지
+        assertThat(report.getQueries()).isEqualTo(16 * (1 + 2 * 6));
+        assertThat(report.getPasses()).isEqualTo(2);
+        assertThat(report.getConnections()).isGreaterThan(0);
+        assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+    }
+}
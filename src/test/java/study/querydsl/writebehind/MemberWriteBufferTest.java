@@ -0,0 +1,131 @@
+package study.querydsl.writebehind;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+//flush 는 새 트랜잭션(REQUIRES_NEW)으로 commit 되므로 @Transactional 을 쓰지 않고, 저장한 데이터는 테스트 후 지운다.
+//주기적 flush 가 테스트 중간에 돌지 않도록 flush-interval 을 길게 잡고 직접 flush 한다.
+@SpringBootTest(properties = {
+        "member-write-behind.enabled=true",
+        "member-write-behind.flush-interval=1h",
+        "member-write-behind.max-buffered=2",
+        "member-write-behind.max-attempts=2"
+})
+class MemberWriteBufferTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberWriteBuffer memberWriteBuffer;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    Member member1;
+    Member member2;
+    Member member3;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            member1 = new Member("wb-member1", 10);
+            member2 = new Member("wb-member2", 20);
+            member3 = new Member("wb-member3", 30);
+            em.persist(member1);
+            em.persist(member2);
+            em.persist(member3);
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> queryFactory.delete(member).where(member.username.startsWith("wb-")).execute());
+    }
+
+    @Test
+    public void coalesceUpdates(){
+        long flushedRows = memberWriteBuffer.getFlushedRows();
+        for (int i = 0; i < 1000; i++) {
+            memberWriteBuffer.addAge(member1.getId(), 1);
+            memberWriteBuffer.addAge(member2.getId(), 1);
+        }
+        memberWriteBuffer.setAge(member2.getId(), 100);
+        memberWriteBuffer.addAge(member2.getId(), 5);
+        memberWriteBuffer.setUsername(member2.getId(), "wb-Renamed");
+        assertThat(memberWriteBuffer.getPending()).isEqualTo(2);
+
+        memberWriteBuffer.flush();
+
+//        2003 번의 변경이 update 2건으로 합쳐진다
+        assertThat(memberWriteBuffer.getFlushedRows() - flushedRows).isEqualTo(2);
+        assertThat(memberWriteBuffer.getPending()).isEqualTo(0);
+
+        Member findMember1 = find(member1.getId());
+        Member findMember2 = find(member2.getId());
+        assertThat(findMember1.getAge()).isEqualTo(1010);
+        assertThat(findMember2.getAge()).isEqualTo(105);
+        assertThat(findMember2.getUsername()).isEqualTo("wb-Renamed");
+        assertThat(findMember2.getUsernameNormalized()).isEqualTo("wb-renamed");
+    }
+
+//    컬럼 길이를 넘는 username 은 batch 를 실패시키지만 같은 batch 의 다른 회원은 반영된다.
+    @Test
+    public void failingRowIsRetriedThenDeadLettered(){
+        long deadLettered = memberWriteBuffer.getDeadLettered();
+        memberWriteBuffer.setUsername(member1.getId(), "wb-" + "x".repeat(300));
+        memberWriteBuffer.addAge(member2.getId(), 5);
+
+        memberWriteBuffer.flush();
+        assertThat(find(member2.getId()).getAge()).isEqualTo(25);
+        assertThat(memberWriteBuffer.getPending()).isEqualTo(1);
+        assertThat(memberWriteBuffer.getDeadLettered()).isEqualTo(deadLettered);
+
+//        max-attempts 번째 실패에서 버린다
+        memberWriteBuffer.flush();
+        assertThat(memberWriteBuffer.getPending()).isEqualTo(0);
+        assertThat(memberWriteBuffer.getDeadLettered()).isEqualTo(deadLettered + 1);
+        assertThat(find(member1.getId()).getUsername()).isEqualTo("wb-member1");
+    }
+
+    @Test
+    public void rejectsNewMembersWhenFull(){
+        memberWriteBuffer.addAge(member1.getId(), 1);
+        memberWriteBuffer.addAge(member2.getId(), 1);
+
+        assertThatThrownBy(() -> memberWriteBuffer.addAge(member3.getId(), 1))
+                .isInstanceOf(RejectedExecutionException.class);
+//        이미 버퍼에 있는 회원의 변경은 합쳐지므로 받는다
+        memberWriteBuffer.addAge(member1.getId(), 1);
+        assertThat(memberWriteBuffer.getPending()).isEqualTo(2);
+
+        memberWriteBuffer.flush();
+        memberWriteBuffer.addAge(member3.getId(), 1);
+        memberWriteBuffer.flush();
+        assertThat(find(member1.getId()).getAge()).isEqualTo(12);
+        assertThat(find(member3.getId()).getAge()).isEqualTo(31);
+    }
+
+    private Member find(Long memberId) {
+        return tx.execute(status -> em.find(Member.class, memberId));
+    }
+}